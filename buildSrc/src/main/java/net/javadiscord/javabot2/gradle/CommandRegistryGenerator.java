@@ -0,0 +1,183 @@
+package net.javadiscord.javabot2.gradle;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Generates the Java source of the command registry from a list of parsed
+ * command definitions. Each YAML property is turned into a call to the
+ * matching setter, so any property which doesn't exist on the config classes
+ * results in a compilation error.
+ */
+public class CommandRegistryGenerator {
+	/**
+	 * The simple name of the generated class.
+	 */
+	public static final String CLASS_NAME = "CommandRegistry";
+
+	private static final Pattern CLASS_NAME_PATTERN = Pattern.compile("([a-zA-Z_$][\\w$]*\\.)*[a-zA-Z_$][\\w$]*");
+
+	/**
+	 * The config class used for each property that contains a list of nested
+	 * objects.
+	 */
+	private static final Map<String, String> NESTED_TYPES = Map.of(
+			"privileges", "CommandPrivilegeConfig",
+			"options", "OptionConfig",
+			"subCommands", "SubCommandConfig",
+			"subCommandGroups", "SubCommandGroupConfig",
+			"choices", "OptionChoiceConfig"
+	);
+
+	/**
+	 * The config class used for each property that contains a single nested
+	 * object.
+	 */
+	private static final Map<String, String> OBJECT_TYPES = Map.of(
+			"rateLimit", "RateLimitConfig"
+	);
+
+	private final String packageName;
+	private final StringBuilder methods = new StringBuilder();
+	private int objectCount = 0;
+
+	/**
+	 * Constructs the generator.
+	 * @param packageName The package of the generated class, which must be
+	 *                    the package containing the command config classes.
+	 */
+	public CommandRegistryGenerator(String packageName) {
+		this.packageName = packageName;
+	}
+
+	/**
+	 * Generates the registry source.
+	 * @param commands The list of command definitions, as parsed from YAML.
+	 * @return The Java source code of the registry class.
+	 * @throws IllegalArgumentException If the command definitions are invalid.
+	 */
+	public String generate(List<Map<String, Object>> commands) {
+		StringBuilder commandsArray = new StringBuilder();
+		StringBuilder handlers = new StringBuilder();
+		Set<String> names = new HashSet<>();
+		for (var command : commands) {
+			Object name = command.get("name");
+			if (!(name instanceof String s) || s.isBlank()) {
+				throw new IllegalArgumentException("Found a command without a name: " + command);
+			}
+			if (!names.add(s)) {
+				throw new IllegalArgumentException("Command " + s + " is defined more than once.");
+			}
+			Object handler = command.get("handler");
+			if (!(handler instanceof String h) || !CLASS_NAME_PATTERN.matcher(h).matches()) {
+				throw new IllegalArgumentException("Command " + s + " does not have a valid handler class.");
+			}
+			commandsArray.append("\t\t\t\t").append(object("CommandConfig", command)).append("(),\n");
+			handlers.append("\t\thandlers.put(").append(literal(s)).append(", new ").append(h).append("());\n");
+		}
+		return "package " + packageName + ";\n\n"
+				+ "import net.javadiscord.javabot2.command.SlashCommandHandler;\n\n"
+				+ "import java.util.HashMap;\n"
+				+ "import java.util.Map;\n\n"
+				+ "/**\n"
+				+ " * Registry of all slash commands. This class is generated from the command\n"
+				+ " * configuration YAML files at build time, do not edit it.\n"
+				+ " */\n"
+				+ "public final class " + CLASS_NAME + " {\n"
+				+ "\tprivate " + CLASS_NAME + "() {}\n\n"
+				+ "\t/**\n"
+				+ "\t * Builds the configuration of all slash commands.\n"
+				+ "\t * @return An array containing each command's config.\n"
+				+ "\t */\n"
+				+ "\tpublic static CommandConfig[] getCommands() {\n"
+				+ "\t\treturn new CommandConfig[] {\n"
+				+ commandsArray
+				+ "\t\t};\n"
+				+ "\t}\n\n"
+				+ "\t/**\n"
+				+ "\t * Creates a new instance of each command's handler.\n"
+				+ "\t * @return The handlers, mapped by their command's name.\n"
+				+ "\t */\n"
+				+ "\tpublic static Map<String, SlashCommandHandler> createHandlers() {\n"
+				+ "\t\tMap<String, SlashCommandHandler> handlers = new HashMap<>();\n"
+				+ handlers
+				+ "\t\treturn handlers;\n"
+				+ "\t}\n"
+				+ methods
+				+ "}\n";
+	}
+
+	/**
+	 * Generates a method which builds a config object.
+	 * @param type The simple name of the config class.
+	 * @param properties The object's properties.
+	 * @return The name of the generated method.
+	 */
+	@SuppressWarnings("unchecked")
+	private String object(String type, Map<String, Object> properties) {
+		String methodName = "config" + objectCount++;
+		StringBuilder body = new StringBuilder();
+		for (var entry : properties.entrySet()) {
+			String key = entry.getKey();
+			Object value = entry.getValue();
+			if (value == null) continue;
+			String setter = "set" + Character.toUpperCase(key.charAt(0)) + key.substring(1);
+			String expression;
+			if (value instanceof List<?> list) {
+				String nestedType = NESTED_TYPES.get(key);
+				if (nestedType == null) {
+					throw new IllegalArgumentException("Unknown list property " + key + " in " + type + ".");
+				}
+				StringBuilder array = new StringBuilder("new " + nestedType + "[] {");
+				for (int i = 0; i < list.size(); i++) {
+					if (!(list.get(i) instanceof Map<?, ?> map)) {
+						throw new IllegalArgumentException("Property " + key + " in " + type + " must be a list of objects.");
+					}
+					if (i > 0) array.append(", ");
+					array.append(object(nestedType, (Map<String, Object>) map)).append("()");
+				}
+				expression = array.append('}').toString();
+			} else if (value instanceof Map<?, ?> map) {
+				String objectType = OBJECT_TYPES.get(key);
+				if (objectType == null) {
+					throw new IllegalArgumentException("Unknown object property " + key + " in " + type + ".");
+				}
+				expression = object(objectType, (Map<String, Object>) map) + "()";
+			} else {
+				expression = literal(value);
+			}
+			body.append("\t\tc.").append(setter).append('(').append(expression).append(");\n");
+		}
+		methods.append("\n\tprivate static ").append(type).append(' ').append(methodName).append("() {\n")
+				.append("\t\tvar c = new ").append(type).append("();\n")
+				.append(body)
+				.append("\t\treturn c;\n")
+				.append("\t}\n");
+		return methodName;
+	}
+
+	private static String literal(Object value) {
+		if (value instanceof String s) {
+			StringBuilder sb = new StringBuilder("\"");
+			for (char c : s.toCharArray()) {
+				switch (c) {
+					case '"' -> sb.append("\\\"");
+					case '\\' -> sb.append("\\\\");
+					case '\n' -> sb.append("\\n");
+					case '\r' -> sb.append("\\r");
+					case '\t' -> sb.append("\\t");
+					default -> sb.append(c);
+				}
+			}
+			return sb.append('"').toString();
+		} else if (value instanceof Long) {
+			return value + "L";
+		} else if (value instanceof Boolean || value instanceof Integer || value instanceof Double) {
+			return value.toString();
+		}
+		throw new IllegalArgumentException("Unsupported property value: " + value);
+	}
+}
@@ -0,0 +1,87 @@
+package net.javadiscord.javabot2.gradle;
+
+import org.gradle.api.DefaultTask;
+import org.gradle.api.GradleException;
+import org.gradle.api.file.ConfigurableFileCollection;
+import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.provider.Property;
+import org.gradle.api.tasks.CacheableTask;
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.InputFiles;
+import org.gradle.api.tasks.OutputDirectory;
+import org.gradle.api.tasks.PathSensitive;
+import org.gradle.api.tasks.PathSensitivity;
+import org.gradle.api.tasks.TaskAction;
+import org.yaml.snakeyaml.Yaml;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Task which reads the slash command configuration YAML files, validates
+ * them, and generates a registry class that contains all command data and
+ * instantiates each command's handler directly, so that the bot doesn't need
+ * to parse YAML or use reflection at runtime.
+ */
+@CacheableTask
+public abstract class GenerateCommandRegistryTask extends DefaultTask {
+	/**
+	 * The YAML files that define the bot's slash commands.
+	 * @return The collection of command files.
+	 */
+	@InputFiles
+	@PathSensitive(PathSensitivity.RELATIVE)
+	public abstract ConfigurableFileCollection getCommandFiles();
+
+	/**
+	 * The package in which the registry class is generated.
+	 * @return The package name.
+	 */
+	@Input
+	public abstract Property<String> getPackageName();
+
+	/**
+	 * The source directory to write the generated registry class to.
+	 * @return The output directory.
+	 */
+	@OutputDirectory
+	public abstract DirectoryProperty getOutputDir();
+
+	/**
+	 * Generates the registry source file.
+	 * @throws IOException If a file can't be read or written.
+	 */
+	@TaskAction
+	public void generate() throws IOException {
+		List<Map<String, Object>> commands = new ArrayList<>();
+		List<File> files = new ArrayList<>(getCommandFiles().getFiles());
+		files.sort(Comparator.comparing(File::getName));
+		Yaml yaml = new Yaml();
+		for (var file : files) {
+			try (Reader reader = Files.newBufferedReader(file.toPath())) {
+				List<Map<String, Object>> fileCommands = yaml.load(reader);
+				if (fileCommands == null) continue;
+				commands.addAll(fileCommands);
+			} catch (ClassCastException e) {
+				throw new GradleException("Command file " + file + " must contain a list of commands.", e);
+			}
+		}
+		String source;
+		try {
+			source = new CommandRegistryGenerator(getPackageName().get()).generate(commands);
+		} catch (IllegalArgumentException e) {
+			throw new GradleException("Invalid slash command configuration: " + e.getMessage(), e);
+		}
+		String packageName = getPackageName().get();
+		Path dir = getOutputDir().get().getAsFile().toPath().resolve(packageName.replace('.', '/'));
+		Files.createDirectories(dir);
+		Files.writeString(dir.resolve(CommandRegistryGenerator.CLASS_NAME + ".java"), source);
+	}
+}
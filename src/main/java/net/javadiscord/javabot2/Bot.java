@@ -10,7 +10,12 @@ import lombok.extern.slf4j.Slf4j;
 import net.javadiscord.javabot2.command.SlashCommandListener;
 import net.javadiscord.javabot2.config.BotConfig;
 import net.javadiscord.javabot2.db.DbHelper;
+import net.javadiscord.javabot2.metrics.Metrics;
+import net.javadiscord.javabot2.systems.moderation.ModerationOutbox;
+import net.javadiscord.javabot2.systems.moderation.ModerationService;
+import net.javadiscord.javabot2.systems.moderation.MuteExpiryScheduler;
 import net.javadiscord.javabot2.tasks.ScheduledTasks;
+import net.javadiscord.javabot2.util.MonitoredExecutor;
 import org.javacord.api.DiscordApi;
 import org.javacord.api.DiscordApiBuilder;
 import org.javacord.api.entity.intent.Intent;
@@ -42,6 +47,26 @@ public class Bot {
 	 */
 	public static ScheduledExecutorService asyncPool;
 
+	/**
+	 * A single-threaded scheduler for timers, like linger times, deadlines
+	 * and retry delays. Timers are kept off the {@link Bot#asyncPool}, so that
+	 * they fire on time even when it's busy, which means that a timer's task
+	 * must only start asynchronous work, and never wait for it.
+	 */
+	public static ScheduledExecutorService timerPool;
+
+	/**
+	 * The thread pool that slash command handlers are run on, so that they
+	 * don't block the thread which receives events from Discord.
+	 */
+	public static MonitoredExecutor commandDispatchPool;
+
+	/**
+	 * The thread pool that database actions are run on, which has one thread
+	 * for each connection in the {@link Bot#hikariDataSource}.
+	 */
+	public static MonitoredExecutor databasePool;
+
 	// Hide constructor.
 	private Bot() {}
 
@@ -53,17 +78,25 @@ public class Bot {
 		TimeZone.setDefault(TimeZone.getTimeZone(ZoneOffset.UTC));
 		initDataSources();
 		asyncPool = Executors.newScheduledThreadPool(config.getSystems().getAsyncPoolSize());
+		timerPool = Executors.newSingleThreadScheduledExecutor();
+		var dispatchConfig = config.getSystems().getCommandDispatchConfig();
+		commandDispatchPool = Metrics.register(
+				new MonitoredExecutor("command-dispatch", dispatchConfig.getPoolSize(), dispatchConfig.getQueueCapacity()),
+				"Executors", "command-dispatch"
+		);
 		DiscordApi api = new DiscordApiBuilder()
 				.setToken(config.getSystems().getDiscordBotToken())
 				.setAllIntentsExcept(Intent.GUILD_MESSAGE_TYPING, Intent.GUILD_PRESENCES, Intent.GUILD_VOICE_STATES)
 				.login().join();
 		config.loadGuilds(api.getServers()); // Once we've logged in, load all guild config files.
 		config.flush(); // Flush to save any new config files that are generated for new guilds.
+		ModerationService.assignUnknownGuild(api).join();
 		SlashCommandListener commandListener = new SlashCommandListener(
 				api,
-				args.length > 0 && args[0].equalsIgnoreCase("--register-commands"),
-				"commands/moderation.yaml"
+				args.length > 0 && args[0].equalsIgnoreCase("--register-commands")
 		);
+		MuteExpiryScheduler.getInstance().start(api);
+		ModerationOutbox.getInstance().start(api);
 		api.addSlashCommandCreateListener(commandListener);
 		try {
 			ScheduledTasks.init(api);
@@ -85,6 +118,7 @@ public class Bot {
 			throw new IllegalStateException("Missing required Discord bot token! Please edit config/systems.json to add it, then run again.");
 		}
 		hikariDataSource = DbHelper.initDataSource(config);
+		databasePool = DbHelper.initExecutor(config);
 	}
 
 	@Deprecated
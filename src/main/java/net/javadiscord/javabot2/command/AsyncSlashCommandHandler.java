@@ -0,0 +1,59 @@
+package net.javadiscord.javabot2.command;
+
+import org.javacord.api.interaction.SlashCommandInteraction;
+import org.javacord.api.interaction.callback.InteractionImmediateResponseBuilder;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * A variant of {@link SlashCommandHandler} for commands whose response depends
+ * on some asynchronous work, like a database action. The {@link SlashCommandListener}
+ * will respond immediately if the response is ready within the configured
+ * latency budget, and otherwise defers the interaction and sends the response
+ * once it's available.
+ */
+public interface AsyncSlashCommandHandler extends SlashCommandHandler {
+	/**
+	 * Handles a slash command interaction asynchronously.
+	 * @param interaction The interaction.
+	 * @param options The interaction's options, bound and validated according
+	 *                to the command's configuration.
+	 * @return A future that completes with the response to send. The future
+	 * may complete exceptionally with a {@link ResponseException} to send a
+	 * well-formatted error or warning response.
+	 * @throws ResponseException If an error occurs before any asynchronous
+	 * work is started, like if an option has an invalid value.
+	 */
+	CompletableFuture<Responses.ResponseBuilder> handleAsync(SlashCommandInteraction interaction, CommandOptions options) throws ResponseException;
+
+	/**
+	 * Determines if this handler's responses are only visible to the user who
+	 * used the command. An interaction must be deferred before its response
+	 * is known, so handlers whose responses are made public with
+	 * {@link Responses.ResponseBuilder#makePublic()} must override this.
+	 * @return True if responses are ephemeral, which is the default.
+	 */
+	default boolean isEphemeral() {
+		return true;
+	}
+
+	/**
+	 * Blocking fallback which waits for the asynchronous response. This
+	 * should generally not be used, since the listener knows how to deal with
+	 * asynchronous handlers directly.
+	 * @param interaction The interaction.
+	 * @param options The interaction's options.
+	 * @return An immediate response to the interaction.
+	 * @throws ResponseException If an error occurs while handling the event.
+	 */
+	@Override
+	default InteractionImmediateResponseBuilder handle(SlashCommandInteraction interaction, CommandOptions options) throws ResponseException {
+		try {
+			return handleAsync(interaction, options).join().build(interaction);
+		} catch (CompletionException e) {
+			if (e.getCause() instanceof ResponseException responseException) throw responseException;
+			throw e;
+		}
+	}
+}
@@ -0,0 +1,169 @@
+package net.javadiscord.javabot2.command;
+
+import org.javacord.api.entity.DiscordEntity;
+import org.javacord.api.entity.user.User;
+
+import java.time.Duration;
+import java.time.format.DateTimeParseException;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.regex.Pattern;
+
+/**
+ * The typed options that were given to a slash command, as bound by an
+ * {@link OptionBinder}. Required options have already been checked to be
+ * present, and options with choices have already been checked to have one of
+ * their configured values, so handlers can read them directly.
+ */
+public final class CommandOptions {
+	private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+	private final Map<String, Integer> indexes;
+	private final Object[] values;
+
+	/**
+	 * Constructs a set of bound options.
+	 * @param indexes The index of each option's value, mapped by option name.
+	 * @param values The option values, or null for options that weren't given.
+	 */
+	CommandOptions(Map<String, Integer> indexes, Object[] values) {
+		this.indexes = indexes;
+		this.values = values;
+	}
+
+	/**
+	 * Gets the value of a required user option.
+	 * @param name The name of the option.
+	 * @return The user.
+	 */
+	public User getUser(String name) {
+		return require(name, User.class);
+	}
+
+	/**
+	 * Gets the value of an optional user option.
+	 * @param name The name of the option.
+	 * @return The user, if one was given.
+	 */
+	public Optional<User> getOptionalUser(String name) {
+		return Optional.ofNullable(get(name, User.class));
+	}
+
+	/**
+	 * Gets the value of a required string option.
+	 * @param name The name of the option.
+	 * @return The string value.
+	 */
+	public String getString(String name) {
+		return require(name, String.class);
+	}
+
+	/**
+	 * Gets the value of a required string option which may only be up to a
+	 * certain length.
+	 * @param name The name of the option.
+	 * @param maxLength The maximum number of characters.
+	 * @return The string value.
+	 * @throws ResponseException If the given value is too long.
+	 */
+	public String getString(String name, int maxLength) throws ResponseException {
+		var value = getString(name);
+		if (value.length() > maxLength) {
+			throw ResponseException.warning(String.format("The `%s` can be at most %d characters long.", name, maxLength)).get();
+		}
+		return value;
+	}
+
+	/**
+	 * Gets the value of an optional string option.
+	 * @param name The name of the option.
+	 * @return The string value, if one was given.
+	 */
+	public Optional<String> getOptionalString(String name) {
+		return Optional.ofNullable(get(name, String.class));
+	}
+
+	/**
+	 * Gets the value of a boolean option.
+	 * @param name The name of the option.
+	 * @param defaultValue The value to use if the option wasn't given.
+	 * @return The boolean value.
+	 */
+	public boolean getBoolean(String name, boolean defaultValue) {
+		var value = get(name, Boolean.class);
+		return value == null ? defaultValue : value;
+	}
+
+	/**
+	 * Gets the value of a required string option whose choices are the names
+	 * of an enum's constants.
+	 * @param name The name of the option.
+	 * @param type The enum class.
+	 * @param <E> The enum type.
+	 * @return The enum constant.
+	 */
+	public <E extends Enum<E>> E getEnum(String name, Class<E> type) {
+		return Enum.valueOf(type, getString(name));
+	}
+
+	/**
+	 * Gets the value of a string option that contains an ISO-8601 duration,
+	 * like {@code PT30M}.
+	 * @param name The name of the option.
+	 * @param defaultValue The duration to use if the option wasn't given.
+	 * @return The duration.
+	 * @throws ResponseException If the given value isn't a valid duration.
+	 */
+	public Duration getDuration(String name, Duration defaultValue) throws ResponseException {
+		var value = get(name, String.class);
+		if (value == null) return defaultValue;
+		try {
+			return Duration.parse(value.trim().toUpperCase());
+		} catch (DateTimeParseException e) {
+			throw new ResponseException(Responses.deferredWarningBuilder()
+					.title("Invalid Duration")
+					.message("""
+							You provided an invalid duration. Please use ISO-8601 format.
+							Please see here for more info: https://en.wikipedia.org/wiki/ISO_8601#Durations
+							For example, `P1D` means *1 day*, and `PT30M` means *30 minutes*."""));
+		}
+	}
+
+	/**
+	 * Gets a normalized representation of all option values, which is the
+	 * same for options that only differ in letter case or whitespace, and
+	 * which identifies entities like users by their id.
+	 * @return The normalized values.
+	 */
+	public String getNormalizedValues() {
+		var sb = new StringBuilder();
+		for (var value : values) {
+			if (value instanceof DiscordEntity entity) {
+				sb.append(entity.getId());
+			} else if (value instanceof String string) {
+				sb.append(WHITESPACE.matcher(string.trim()).replaceAll(" ").toLowerCase(Locale.ROOT));
+			} else if (value != null) {
+				sb.append(value);
+			}
+			sb.append('\n');
+		}
+		return sb.toString();
+	}
+
+	private <T> T require(String name, Class<T> type) {
+		var value = get(name, type);
+		if (value == null) {
+			throw new IllegalStateException("Option " + name + " is not required, and was not given.");
+		}
+		return value;
+	}
+
+	private <T> T get(String name, Class<T> type) {
+		Integer index = indexes.get(name);
+		if (index == null) {
+			throw new IllegalArgumentException("Unknown option " + name + ".");
+		}
+		return type.cast(values[index]);
+	}
+}
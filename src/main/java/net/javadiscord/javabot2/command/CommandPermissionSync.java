@@ -0,0 +1,221 @@
+package net.javadiscord.javabot2.command;
+
+import lombok.extern.slf4j.Slf4j;
+import net.javadiscord.javabot2.Bot;
+import net.javadiscord.javabot2.command.data.CommandConfig;
+import net.javadiscord.javabot2.command.data.CommandPrivilegeConfig;
+import net.javadiscord.javabot2.command.data.CommandRegistrationState;
+import net.javadiscord.javabot2.config.SystemsConfig;
+import net.javadiscord.javabot2.util.HashUtils;
+import org.javacord.api.DiscordApi;
+import org.javacord.api.entity.server.Server;
+import org.javacord.api.exception.DiscordException;
+import org.javacord.api.exception.RatelimitException;
+import org.javacord.api.interaction.ServerSlashCommandPermissionsBuilder;
+import org.javacord.api.interaction.SlashCommandPermissions;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Synchronizes the permissions of all slash commands in every server that the
+ * bot is in. Only a limited number of servers are updated concurrently, rate
+ * limited requests are retried with exponential backoff, and servers whose
+ * permissions haven't changed since they were last sent are skipped.
+ */
+@Slf4j
+public class CommandPermissionSync {
+	private static final int PROGRESS_LOG_INTERVAL = 25;
+
+	/**
+	 * Whether a sync is currently running, so that we never run two at once.
+	 */
+	private static final AtomicBoolean running = new AtomicBoolean(false);
+
+	private final DiscordApi api;
+	private final CommandConfig[] commandConfigs;
+	private final Map<String, Long> commandIds;
+	private final CommandRegistrationState state;
+	private final SystemsConfig.PermissionSyncConfig config;
+	private final Queue<Server> pending;
+	private final int total;
+	private final AtomicInteger activeWorkers = new AtomicInteger();
+	private final AtomicInteger updated = new AtomicInteger();
+	private final AtomicInteger unchanged = new AtomicInteger();
+	private final AtomicInteger failed = new AtomicInteger();
+	private final CompletableFuture<Result> result = new CompletableFuture<>();
+	private long startedAt;
+
+	private CommandPermissionSync(DiscordApi api, CommandConfig[] commandConfigs, CommandRegistrationState state) {
+		this.api = api;
+		this.commandConfigs = commandConfigs;
+		this.commandIds = state.getIds();
+		this.state = state;
+		this.config = Bot.config.getSystems().getPermissionSyncConfig();
+		this.pending = new ConcurrentLinkedQueue<>(api.getServers());
+		this.total = this.pending.size();
+	}
+
+	/**
+	 * Synchronizes the permissions of the given commands in all servers. The
+	 * fingerprint of each server's permissions is recorded in the given state,
+	 * which should be saved afterwards.
+	 * @param api The Discord api to use.
+	 * @param commandConfigs The commands whose permissions to update.
+	 * @param state The registration state, which contains the ids of all
+	 *              registered commands.
+	 * @return A future that completes with the result of the sync, or fails
+	 * with a {@link ResponseException} if a sync is already running.
+	 */
+	public static CompletableFuture<Result> run(DiscordApi api, CommandConfig[] commandConfigs, CommandRegistrationState state) {
+		if (!running.compareAndSet(false, true)) {
+			return CompletableFuture.failedFuture(new ResponseException(Responses.deferredWarningBuilder()
+					.message("Slash command permissions are already being synchronized.")));
+		}
+		return new CommandPermissionSync(api, commandConfigs, state).start()
+				.whenComplete((r, throwable) -> running.set(false));
+	}
+
+	private CompletableFuture<Result> start() {
+		this.startedAt = System.nanoTime();
+		log.info("Synchronizing slash command permissions for {} servers.", total);
+		int workers = Math.min(Math.max(1, config.getConcurrency()), Math.max(1, total));
+		activeWorkers.set(workers);
+		for (int i = 0; i < workers; i++) {
+			next();
+		}
+		return result;
+	}
+
+	/**
+	 * Processes servers from the queue until one needs to be updated, in which
+	 * case this is called again once that update is done. Servers that are
+	 * skipped are handled in a loop, to avoid deep recursion.
+	 */
+	private void next() {
+		while (true) {
+			Server server = pending.poll();
+			if (server == null) {
+				if (activeWorkers.decrementAndGet() == 0) finish();
+				return;
+			}
+			List<ServerSlashCommandPermissionsBuilder> builders = new ArrayList<>();
+			String fingerprint;
+			try {
+				fingerprint = buildPermissions(server, builders);
+			} catch (IllegalArgumentException | NoSuchElementException e) {
+				log.warn("Could not resolve slash command permissions for server {} ({}): {}", server.getName(), server.getId(), e.getMessage());
+				failed.incrementAndGet();
+				logProgress();
+				continue;
+			}
+			if (fingerprint.equals(state.getServerPermissionsFingerprint(server.getId()))) {
+				unchanged.incrementAndGet();
+				logProgress();
+				continue;
+			}
+			send(server, builders, 1).whenComplete((unused, throwable) -> {
+				if (throwable == null) {
+					state.putServerPermissions(server.getId(), fingerprint);
+					updated.incrementAndGet();
+				} else {
+					log.error("Could not update slash command permissions for server " + server.getName() + " (" + server.getId() + ").", throwable);
+					failed.incrementAndGet();
+				}
+				logProgress();
+				next();
+			});
+			return;
+		}
+	}
+
+	/**
+	 * Builds the permissions for all commands in a server. Each distinct
+	 * privilege is only resolved once per server.
+	 * @param server The server to build permissions for.
+	 * @param builders The list to add permission builders to.
+	 * @return A fingerprint of the server's permissions.
+	 */
+	private String buildPermissions(Server server, List<ServerSlashCommandPermissionsBuilder> builders) {
+		Map<CommandPrivilegeConfig, SlashCommandPermissions> resolved = new HashMap<>();
+		StringBuilder fingerprintData = new StringBuilder();
+		for (var commandConfig : commandConfigs) {
+			if (commandConfig.getPrivileges() == null || commandConfig.getPrivileges().length == 0) continue;
+			Long commandId = commandIds.get(commandConfig.getName());
+			if (commandId == null) continue;
+			List<SlashCommandPermissions> permissions = new ArrayList<>(commandConfig.getPrivileges().length);
+			fingerprintData.append(commandId).append(':');
+			for (var privilege : commandConfig.getPrivileges()) {
+				var permission = resolved.computeIfAbsent(privilege, p -> p.toData(server));
+				permissions.add(permission);
+				fingerprintData.append(permission.getType()).append('=').append(permission.getId()).append(',');
+			}
+			fingerprintData.append(';');
+			builders.add(new ServerSlashCommandPermissionsBuilder(commandId, permissions));
+		}
+		return HashUtils.sha256(fingerprintData.toString());
+	}
+
+	private CompletableFuture<Void> send(Server server, List<ServerSlashCommandPermissionsBuilder> builders, int attempt) {
+		return api.batchUpdateSlashCommandPermissions(server, builders)
+				.<Void>thenApply(permissions -> null)
+				.exceptionallyCompose(throwable -> {
+					if (attempt >= config.getMaxAttempts() || !isRateLimited(throwable)) {
+						return CompletableFuture.failedFuture(throwable);
+					}
+					long backoff = config.getInitialBackoffMillis() << (attempt - 1);
+					log.warn("Rate limited while updating slash command permissions for server {}, retrying in {} ms.", server.getId(), backoff);
+					var delayedExecutor = CompletableFuture.delayedExecutor(backoff, TimeUnit.MILLISECONDS, Bot.asyncPool);
+					return CompletableFuture.runAsync(() -> {}, delayedExecutor)
+							.thenCompose(unused -> send(server, builders, attempt + 1));
+				});
+	}
+
+	private static boolean isRateLimited(Throwable throwable) {
+		Throwable cause = throwable instanceof CompletionException && throwable.getCause() != null ? throwable.getCause() : throwable;
+		if (cause instanceof RatelimitException) return true;
+		return cause instanceof DiscordException discordException
+				&& discordException.getResponse().map(response -> response.getCode() == 429).orElse(false);
+	}
+
+	private void logProgress() {
+		int processed = updated.get() + unchanged.get() + failed.get();
+		if (processed % PROGRESS_LOG_INTERVAL == 0 && processed < total) {
+			log.info("Synchronized slash command permissions for {}/{} servers ({} servers/s).", processed, total, String.format("%.1f", throughput(processed)));
+		}
+	}
+
+	private double throughput(int processed) {
+		double seconds = (System.nanoTime() - startedAt) / 1_000_000_000.0;
+		return seconds > 0 ? processed / seconds : processed;
+	}
+
+	private void finish() {
+		var r = new Result(updated.get(), unchanged.get(), failed.get(), Duration.ofNanos(System.nanoTime() - startedAt));
+		log.info(
+				"Finished synchronizing slash command permissions in {} ms: {} updated, {} unchanged, {} failed ({} servers/s).",
+				r.duration().toMillis(), r.updated(), r.unchanged(), r.failed(), String.format("%.1f", throughput(total))
+		);
+		result.complete(r);
+	}
+
+	/**
+	 * The result of a permission sync.
+	 * @param updated The number of servers whose permissions were updated.
+	 * @param unchanged The number of servers whose permissions were unchanged.
+	 * @param failed The number of servers whose permissions couldn't be updated.
+	 * @param duration The time it took to complete the sync.
+	 */
+	public record Result(int updated, int unchanged, int failed, Duration duration) {}
+}
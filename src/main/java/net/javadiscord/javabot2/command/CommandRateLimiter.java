@@ -0,0 +1,134 @@
+package net.javadiscord.javabot2.command;
+
+import net.javadiscord.javabot2.command.data.CommandConfig;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.LongSupplier;
+
+/**
+ * Limits how often slash commands may be used per user and per server, using
+ * the {@link net.javadiscord.javabot2.command.data.RateLimitConfig} of each
+ * command. Each limit is implemented as a fixed-size array of token buckets
+ * that's indexed by the hash of a user or server id, and which is updated
+ * using compare-and-set, so checking a limit never blocks and never allocates.
+ */
+public class CommandRateLimiter {
+	/**
+	 * The number of buckets for each limit. Ids whose hashes collide share a
+	 * bucket, so this should be much larger than the number of users that are
+	 * expected to use a command within a single period.
+	 */
+	private static final int STRIPES = 4096;
+
+	private final Map<String, StripedTokenBuckets> userBuckets = new HashMap<>();
+	private final Map<String, StripedTokenBuckets> serverBuckets = new HashMap<>();
+
+	/**
+	 * Constructs the rate limiter.
+	 * @param commandConfigs The commands to enforce limits for. Commands
+	 *                       without a rate limit config are never limited.
+	 */
+	public CommandRateLimiter(CommandConfig[] commandConfigs) {
+		this(commandConfigs, () -> TimeUnit.NANOSECONDS.toMillis(System.nanoTime()));
+	}
+
+	/**
+	 * Constructs the rate limiter with the given clock.
+	 * @param commandConfigs The commands to enforce limits for.
+	 * @param clockMillis A monotonic clock that gives the current time in
+	 *                    milliseconds.
+	 */
+	CommandRateLimiter(CommandConfig[] commandConfigs, LongSupplier clockMillis) {
+		for (var config : commandConfigs) {
+			var rateLimit = config.getRateLimit();
+			if (rateLimit == null) continue;
+			long periodMillis = TimeUnit.SECONDS.toMillis(rateLimit.getPeriodSeconds());
+			if (rateLimit.getUserLimit() > 0) {
+				userBuckets.put(config.getName(), new StripedTokenBuckets(rateLimit.getUserLimit(), periodMillis, clockMillis));
+			}
+			if (rateLimit.getServerLimit() > 0) {
+				serverBuckets.put(config.getName(), new StripedTokenBuckets(rateLimit.getServerLimit(), periodMillis, clockMillis));
+			}
+		}
+	}
+
+	/**
+	 * Attempts to use a command, consuming a token from both the user's and the
+	 * server's bucket.
+	 * @param commandName The name of the command.
+	 * @param userId The id of the user who used the command.
+	 * @param serverId The id of the server the command was used in, or 0 if
+	 *                 it wasn't used in a server.
+	 * @return True if the command may be used, or false if a limit is exceeded.
+	 */
+	public boolean tryAcquire(String commandName, long userId, long serverId) {
+		var users = userBuckets.get(commandName);
+		if (users != null && !users.tryAcquire(userId)) return false;
+		var servers = serverBuckets.get(commandName);
+		return servers == null || serverId == 0 || servers.tryAcquire(serverId);
+	}
+
+	/**
+	 * A fixed-size array of token buckets. Each bucket's state is packed into
+	 * a single long, with the time of the last refill in the upper bits and
+	 * the number of available milli-tokens in the lower bits.
+	 */
+	private static class StripedTokenBuckets {
+		private static final int TOKEN_BITS = 21;
+		private static final long TOKEN_MASK = (1L << TOKEN_BITS) - 1;
+		private static final long MILLIS_PER_TOKEN = 1000;
+		private static final int MAX_CAPACITY = (int) (TOKEN_MASK / MILLIS_PER_TOKEN);
+
+		private final AtomicLongArray states = new AtomicLongArray(STRIPES);
+		private final long capacity;
+		private final long periodMillis;
+		private final LongSupplier clockMillis;
+		private final long epochMillis;
+
+		StripedTokenBuckets(int limit, long periodMillis, LongSupplier clockMillis) {
+			this.capacity = Math.min(limit, MAX_CAPACITY) * MILLIS_PER_TOKEN;
+			this.periodMillis = Math.max(1, periodMillis);
+			this.clockMillis = clockMillis;
+			this.epochMillis = clockMillis.getAsLong();
+		}
+
+		boolean tryAcquire(long id) {
+			int index = (int) (mix(id) & (STRIPES - 1));
+			// Offset by one, so that a state of 0 always means an unused, full bucket.
+			long now = clockMillis.getAsLong() - epochMillis + 1;
+			while (true) {
+				long state = states.get(index);
+				long lastRefill = state == 0 ? now : state >>> TOKEN_BITS;
+				long tokens = state == 0 ? capacity : state & TOKEN_MASK;
+				long elapsed = Math.min(Math.max(0, now - lastRefill), periodMillis);
+				long refill = elapsed * capacity / periodMillis;
+				if (refill > 0) {
+					tokens = Math.min(capacity, tokens + refill);
+					lastRefill = now;
+				}
+				if (tokens < MILLIS_PER_TOKEN) return false;
+				long newState = (lastRefill << TOKEN_BITS) | (tokens - MILLIS_PER_TOKEN);
+				if (states.compareAndSet(index, state, newState)) return true;
+			}
+		}
+
+		/**
+		 * Spreads the bits of an id, since Discord's snowflake ids have very
+		 * predictable low bits.
+		 * @param id The id to mix.
+		 * @return The mixed id.
+		 */
+		private static long mix(long id) {
+			long h = id;
+			h ^= h >>> 33;
+			h *= 0xff51afd7ed558ccdL;
+			h ^= h >>> 33;
+			h *= 0xc4ceb9fe1a85ec53L;
+			h ^= h >>> 33;
+			return h;
+		}
+	}
+}
@@ -0,0 +1,118 @@
+package net.javadiscord.javabot2.command;
+
+import net.javadiscord.javabot2.command.data.CommandConfig;
+import org.javacord.api.entity.server.Server;
+import org.javacord.api.interaction.SlashCommandInteraction;
+
+import java.time.Instant;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+
+/**
+ * Remembers recent uses of commands which are configured with
+ * {@code deduplicate: true}, so that when a user submits the same command
+ * with the same options again within a short window, like when Discord is
+ * slow to show a response, the duplicate is dropped before it's handled.
+ * <p>
+ *     Only commands that were handled successfully are remembered, so a
+ *     command that failed can be retried immediately.
+ * </p>
+ */
+public class DuplicateCommandGuard {
+	/**
+	 * The number of registrations between each sweep of expired entries.
+	 */
+	private static final int SWEEP_INTERVAL = 256;
+
+	private final Set<String> guardedCommands = new HashSet<>();
+	private final Map<String, Submission> submissions = new ConcurrentHashMap<>();
+	private final AtomicInteger registrations = new AtomicInteger();
+	private final long windowNanos;
+	private final LongSupplier clockNanos;
+
+	/**
+	 * Constructs the guard.
+	 * @param commandConfigs The commands to guard. Only commands which have
+	 *                       {@link CommandConfig#isDeduplicate()} set are
+	 *                       checked for duplicates.
+	 * @param windowSeconds The number of seconds for which a command is
+	 *                      remembered.
+	 */
+	public DuplicateCommandGuard(CommandConfig[] commandConfigs, int windowSeconds) {
+		this(commandConfigs, windowSeconds, System::nanoTime);
+	}
+
+	/**
+	 * Constructs the guard with the given clock.
+	 * @param commandConfigs The commands to guard.
+	 * @param windowSeconds The number of seconds for which a command is
+	 *                      remembered.
+	 * @param clockNanos A monotonic clock that gives the current time in
+	 *                   nanoseconds.
+	 */
+	DuplicateCommandGuard(CommandConfig[] commandConfigs, int windowSeconds, LongSupplier clockNanos) {
+		for (var config : commandConfigs) {
+			if (config.isDeduplicate()) guardedCommands.add(config.getName());
+		}
+		this.windowNanos = TimeUnit.SECONDS.toNanos(windowSeconds);
+		this.clockNanos = clockNanos;
+	}
+
+	/**
+	 * Gets the key that identifies an interaction for duplicate detection.
+	 * It's made up of the server, the user, the command, and the normalized
+	 * values of its options, which include any target user.
+	 * @param interaction The interaction.
+	 * @param options The interaction's bound options.
+	 * @return The key, or null if the command isn't guarded.
+	 */
+	public String getKey(SlashCommandInteraction interaction, CommandOptions options) {
+		if (windowNanos <= 0 || !guardedCommands.contains(interaction.getCommandName())) return null;
+		return interaction.getServer().map(Server::getId).orElse(0L)
+				+ ":" + interaction.getUser().getId()
+				+ ":" + interaction.getCommandName()
+				+ ":" + options.getNormalizedValues();
+	}
+
+	/**
+	 * Registers a submission of a command.
+	 * @param key The key of the submission, as given by {@link #getKey(SlashCommandInteraction, CommandOptions)}.
+	 * @return Null if this is a new submission, or the original submission if
+	 * this is a duplicate of one that was made within the window.
+	 */
+	public Submission register(String key) {
+		if (registrations.incrementAndGet() % SWEEP_INTERVAL == 0) sweep();
+		long now = clockNanos.getAsLong();
+		var submission = new Submission(Instant.now(), now);
+		var existing = submissions.compute(key, (k, previous) ->
+				previous != null && now - previous.nanos() < windowNanos ? previous : submission);
+		return existing == submission ? null : existing;
+	}
+
+	/**
+	 * Forgets a submission, so that the same command can be submitted again.
+	 * This should be called when the original submission wasn't successful.
+	 * @param key The key of the submission.
+	 */
+	public void forget(String key) {
+		submissions.remove(key);
+	}
+
+	private void sweep() {
+		long now = clockNanos.getAsLong();
+		submissions.values().removeIf(submission -> now - submission.nanos() >= windowNanos);
+	}
+
+	/**
+	 * A submission of a command.
+	 * @param submittedAt The time at which the command was submitted.
+	 * @param nanos The time of the guard's clock at which the command was
+	 *              submitted, which is used to check expiry.
+	 */
+	public record Submission(Instant submittedAt, long nanos) {}
+}
@@ -0,0 +1,114 @@
+package net.javadiscord.javabot2.command;
+
+import net.javadiscord.javabot2.command.data.CommandConfig;
+import net.javadiscord.javabot2.command.data.OptionChoiceConfig;
+import net.javadiscord.javabot2.command.data.OptionConfig;
+import org.javacord.api.interaction.SlashCommandInteraction;
+import org.javacord.api.interaction.SlashCommandInteractionOption;
+import org.javacord.api.interaction.SlashCommandOptionType;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Binds the options of a slash command interaction to a {@link CommandOptions}
+ * object, according to a command's option configuration. Binders are built
+ * once for each command when the bot starts, so that handling an interaction
+ * only needs a single pass over the options it was given, and validation of
+ * required options and choices happens in one place instead of in each
+ * handler.
+ * <p>
+ *     Only top-level options are bound. Commands with subcommands should read
+ *     their options from the interaction directly.
+ * </p>
+ */
+public final class OptionBinder {
+	private final String[] names;
+	private final SlashCommandOptionType[] types;
+	private final boolean[] required;
+	private final List<Set<String>> choices;
+	private final Map<String, Integer> indexes;
+
+	/**
+	 * Constructs a binder for the given options.
+	 * @param options The options of a command. This may be null if the
+	 *                command doesn't have any options.
+	 */
+	public OptionBinder(OptionConfig[] options) {
+		int count = options == null ? 0 : options.length;
+		this.names = new String[count];
+		this.types = new SlashCommandOptionType[count];
+		this.required = new boolean[count];
+		this.choices = new ArrayList<>(count);
+		this.indexes = new HashMap<>();
+		for (int i = 0; i < count; i++) {
+			var option = options[i];
+			this.names[i] = option.getName();
+			this.types[i] = SlashCommandOptionType.valueOf(option.getType().toUpperCase());
+			this.required[i] = option.isRequired();
+			this.choices.add(option.getChoices() == null || option.getChoices().length == 0
+					? null
+					: Arrays.stream(option.getChoices()).map(OptionChoiceConfig::getValue).collect(Collectors.toUnmodifiableSet()));
+			this.indexes.put(option.getName(), i);
+		}
+	}
+
+	/**
+	 * Builds a binder for each of the given commands.
+	 * @param commands The commands to build binders for.
+	 * @return The binders, mapped by command name.
+	 */
+	public static Map<String, OptionBinder> forCommands(CommandConfig[] commands) {
+		Map<String, OptionBinder> binders = new HashMap<>();
+		for (var command : commands) {
+			binders.put(command.getName(), new OptionBinder(command.getOptions()));
+		}
+		return binders;
+	}
+
+	/**
+	 * Binds the options of an interaction.
+	 * @param interaction The interaction whose options to bind.
+	 * @return The bound options.
+	 * @throws ResponseException If a required option is missing, or an option
+	 * has a value that's not one of its configured choices.
+	 */
+	public CommandOptions bind(SlashCommandInteraction interaction) throws ResponseException {
+		Object[] values = new Object[names.length];
+		for (var option : interaction.getOptions()) {
+			Integer index = indexes.get(option.getName());
+			if (index != null) {
+				values[index] = extract(option, types[index]);
+			}
+		}
+		for (int i = 0; i < values.length; i++) {
+			if (values[i] == null) {
+				if (required[i]) throw ResponseException.warning(String.format("Missing required option `%s`.", names[i])).get();
+			} else if (choices.get(i) != null && !choices.get(i).contains(String.valueOf(values[i]))) {
+				throw ResponseException.warning(String.format("Invalid value for option `%s`.", names[i])).get();
+			}
+		}
+		return new CommandOptions(indexes, values);
+	}
+
+	private static Object extract(SlashCommandInteractionOption option, SlashCommandOptionType type) {
+		var value = switch (type) {
+			case STRING -> option.getStringValue();
+			case LONG -> option.getLongValue();
+			case BOOLEAN -> option.getBooleanValue();
+			case USER -> option.getUserValue();
+			case CHANNEL -> option.getChannelValue();
+			case ROLE -> option.getRoleValue();
+			case MENTIONABLE -> option.getMentionableValue();
+			case DECIMAL -> option.getDecimalValue();
+			default -> Optional.empty();
+		};
+		return value.orElse(null);
+	}
+}
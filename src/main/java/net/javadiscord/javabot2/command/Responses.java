@@ -1,5 +1,6 @@
 package net.javadiscord.javabot2.command;
 
+import org.javacord.api.entity.message.Message;
 import org.javacord.api.entity.message.embed.EmbedBuilder;
 import org.javacord.api.event.interaction.SlashCommandCreateEvent;
 import org.javacord.api.interaction.InteractionBase;
@@ -84,17 +85,21 @@ public class Responses {
 			boolean ephemeral
 	) {
 		var responder = interaction.createImmediateResponder()
-				.addEmbed(new EmbedBuilder()
-					.setTitle(title)
-					.setColor(color)
-					.setTimestampToNow()
-					.setDescription(message));
+				.addEmbed(buildEmbed(title, message, color));
 		if (ephemeral) {
 			responder.setFlags(InteractionCallbackDataFlag.EPHEMERAL);
 		}
 		return responder;
 	}
 
+	private static EmbedBuilder buildEmbed(String title, String message, Color color) {
+		return new EmbedBuilder()
+				.setTitle(title)
+				.setColor(color)
+				.setTimestampToNow()
+				.setDescription(message);
+	}
+
 	/**
 	 * A builder that's used to construct a response using a fluent interface.
 	 */
@@ -150,7 +155,20 @@ public class Responses {
 		}
 
 		/**
-		 * Makes this response publicly visible, i.e. not ephemeral.
+		 * Determines if this response is only visible to the user who used
+		 * the command.
+		 * @return True if the response is ephemeral.
+		 */
+		public boolean isEphemeral() {
+			return this.ephemeral;
+		}
+
+		/**
+		 * Makes this response publicly visible, i.e. not ephemeral. If the
+		 * response is sent as an update to a deferred interaction, the
+		 * visibility that the interaction was deferred with applies instead,
+		 * which for asynchronous handlers is given by
+		 * {@link AsyncSlashCommandHandler#isEphemeral()}.
 		 * @return The response builder.
 		 */
 		public ResponseBuilder makePublic() {
@@ -195,5 +213,17 @@ public class Responses {
 		public CompletableFuture<InteractionOriginalResponseUpdater> respond() {
 			return this.build().respond();
 		}
+
+		/**
+		 * Sends this builder's response as an update to the original response
+		 * of an interaction that was responded to later, i.e. deferred. The
+		 * response keeps the visibility that the interaction was deferred
+		 * with, since Discord doesn't allow it to be changed.
+		 * @param updater The updater for the interaction's original response.
+		 * @return A future that completes once the response is updated.
+		 */
+		public CompletableFuture<Message> update(InteractionOriginalResponseUpdater updater) {
+			return updater.addEmbed(buildEmbed(title, message, color)).update();
+		}
 	}
 }
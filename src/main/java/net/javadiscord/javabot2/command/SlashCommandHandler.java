@@ -11,8 +11,10 @@ public interface SlashCommandHandler {
 	/**
 	 * Handles a slash command interaction.
 	 * @param interaction The interaction.
+	 * @param options The interaction's options, bound and validated according
+	 *                to the command's configuration.
 	 * @return An immediate response to the interaction.
 	 * @throws ResponseException If an error occurs while handling the event.
 	 */
-	InteractionImmediateResponseBuilder handle(SlashCommandInteraction interaction) throws ResponseException;
+	InteractionImmediateResponseBuilder handle(SlashCommandInteraction interaction, CommandOptions options) throws ResponseException;
 }
@@ -1,17 +1,30 @@
 package net.javadiscord.javabot2.command;
 
 import lombok.extern.slf4j.Slf4j;
+import net.javadiscord.javabot2.Bot;
 import net.javadiscord.javabot2.command.data.CommandConfig;
-import net.javadiscord.javabot2.command.data.CommandDataLoader;
+import net.javadiscord.javabot2.command.data.CommandRegistrationState;
+import net.javadiscord.javabot2.command.data.CommandRegistry;
+import net.javadiscord.javabot2.metrics.Metrics;
+import net.javadiscord.javabot2.metrics.OperationStats;
+import net.javadiscord.javabot2.util.Pair;
 import org.javacord.api.DiscordApi;
+import org.javacord.api.entity.server.Server;
 import org.javacord.api.event.interaction.SlashCommandCreateEvent;
-import org.javacord.api.interaction.ServerSlashCommandPermissionsBuilder;
-import org.javacord.api.interaction.SlashCommandBuilder;
-import org.javacord.api.interaction.SlashCommandPermissions;
+import org.javacord.api.interaction.SlashCommand;
+import org.javacord.api.interaction.SlashCommandInteraction;
+import org.javacord.api.interaction.callback.InteractionOriginalResponseUpdater;
 import org.javacord.api.listener.interaction.SlashCommandCreateListener;
 
+import java.nio.file.Path;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * This listener is responsible for handling any incoming slash commands sent by
@@ -25,102 +38,290 @@ public final class SlashCommandListener implements SlashCommandCreateListener {
 	 */
 	private final Map<String, SlashCommandHandler> commandHandlers;
 
+	/**
+	 * The rate limiter that's checked before any command is dispatched.
+	 */
+	private final CommandRateLimiter rateLimiter;
+
+	/**
+	 * The option binder for each command, mapped by command name.
+	 */
+	private final Map<String, OptionBinder> optionBinders;
+
+	/**
+	 * The guard that drops duplicate submissions of commands.
+	 */
+	private final DuplicateCommandGuard duplicateGuard;
+
 	/**
 	 * Constructs a new slash command listener using the given Discord api, and
-	 * loads commands from configuration YAML files according to the list of
-	 * resources.
+	 * loads commands from the {@link CommandRegistry} that's generated from the
+	 * command configuration YAML files at build time.
 	 * @param api The Discord api to use.
 	 * @param sendUpdate Set to true if we should update the slash commands in
 	 *                   the API, or false if we should just assume it's done.
-	 * @param resources The list of classpath resources to load commands from.
 	 */
-	public SlashCommandListener(DiscordApi api, boolean sendUpdate, String... resources) {
+	public SlashCommandListener(DiscordApi api, boolean sendUpdate) {
+		this.rateLimiter = new CommandRateLimiter(CommandRegistry.getCommands());
+		this.optionBinders = OptionBinder.forCommands(CommandRegistry.getCommands());
+		this.duplicateGuard = new DuplicateCommandGuard(CommandRegistry.getCommands(), Bot.config.getSystems().getDuplicateCommandWindowSeconds());
 		if (sendUpdate) {
-			this.commandHandlers = new HashMap<>();
-			registerSlashCommands(api, resources)
+			this.commandHandlers = new ConcurrentHashMap<>();
+			registerSlashCommands(api)
 					.thenAcceptAsync(commandHandlers::putAll)
 					.thenRun(() -> log.info("Registered all slash commands."));
 		} else {
-			this.commandHandlers = initializeHandlers(CommandDataLoader.load(resources));
+			this.commandHandlers = CommandRegistry.createHandlers();
 			log.info("Registered all slash commands.");
 		}
 	}
 
 	@Override
 	public void onSlashCommandCreate(SlashCommandCreateEvent event) {
-		var handler = commandHandlers.get(event.getSlashCommandInteraction().getCommandName());
-		if (handler != null) {
-			try {
-				handler.handle(event.getSlashCommandInteraction()).respond();
-			} catch (ResponseException e) {
-				e.getResponseBuilder().respond(event.getSlashCommandInteraction());
-			}
-		} else {
-			Responses.warningBuilder(event)
-					.title("No Handler")
-					.message("There is no associated handler for this command. Please contact an administrator if this error persists.")
+		long startNanos = System.nanoTime();
+		var interaction = event.getSlashCommandInteraction();
+		long serverId = interaction.getServer().map(Server::getId).orElse(0L);
+		if (!rateLimiter.tryAcquire(interaction.getCommandName(), interaction.getUser().getId(), serverId)) {
+			Responses.warning(interaction, "Slow Down", "This command is being used too often. Please try again later.").respond();
+			return;
+		}
+		try {
+			Bot.commandDispatchPool.execute(() -> dispatch(interaction, startNanos));
+		} catch (RejectedExecutionException e) {
+			log.warn("Rejected slash command {} because the command dispatch queue is full.", interaction.getCommandName());
+			Responses.warningBuilder(interaction)
+					.title("Busy")
+					.message("The bot is handling too many commands right now. Please try again in a moment.")
 					.respond();
 		}
 	}
 
-	private CompletableFuture<Map<String, SlashCommandHandler>> registerSlashCommands(DiscordApi api, String... resources) {
-		var commandConfigs = CommandDataLoader.load(resources);
-		var handlers = initializeHandlers(commandConfigs);
-		List<SlashCommandBuilder> commandBuilders = Arrays.stream(commandConfigs)
-				.map(CommandConfig::toData).toList();
-		return deleteAllSlashCommands(api)
-				.thenComposeAsync(unused -> api.bulkOverwriteGlobalSlashCommands(commandBuilders))
-				.thenComposeAsync(slashCommands -> {
-					Map<String, Long> nameToId = new HashMap<>();
-					for (var slashCommand : slashCommands) {
-						nameToId.put(slashCommand.getName(), slashCommand.getId());
-					}
-					return updatePermissions(api, commandConfigs, nameToId)
-							.thenRun(() -> log.info("Updated permissions for all slash commands."))
-							.thenApplyAsync(unused -> handlers);
+	/**
+	 * Calls the appropriate handler for a slash command interaction, and sends
+	 * its response. This is run on the {@link Bot#commandDispatchPool}.
+	 * @param interaction The interaction to handle.
+	 * @param startNanos The time at which the interaction was received.
+	 */
+	private void dispatch(SlashCommandInteraction interaction, long startNanos) {
+		var handler = commandHandlers.get(interaction.getCommandName());
+		if (handler == null) {
+			Responses.warningBuilder(interaction)
+					.title("No Handler")
+					.message("There is no associated handler for this command. Please contact an administrator if this error persists.")
+					.respond();
+			return;
+		}
+		AtomicReference<String> duplicateKey = new AtomicReference<>();
+		// Starting from a completed future turns any exception thrown while handling the command into a failed future.
+		CompletableFuture.completedFuture(handler)
+				.thenAccept(h -> handle(interaction, h, startNanos, duplicateKey))
+				.exceptionally(throwable -> {
+					var response = toErrorResponse(throwable);
+					recordWhenSent(interaction, startNanos, response.first().respond(interaction), response.second(), duplicateKey.get());
+					return null;
 				});
 	}
 
-	private Map<String, SlashCommandHandler> initializeHandlers(CommandConfig[] commandConfigs) {
-		Map<String, SlashCommandHandler> handlers = new HashMap<>();
-		for (var commandConfig : commandConfigs) {
-			if (commandConfig.getHandler() != null && !commandConfig.getHandler().isBlank()) {
-				try {
-					Class<?> handlerClass = Class.forName(commandConfig.getHandler());
-					handlers.put(commandConfig.getName(), (SlashCommandHandler) handlerClass.getConstructor().newInstance());
-				} catch (ReflectiveOperationException e) {
-					log.error("An error occurred when trying to get new instance of a slash command handler class.", e);
+	/**
+	 * Binds an interaction's options, and calls its handler. Any exception
+	 * other than a {@link ResponseException} is thrown to the caller, which
+	 * responds with an error.
+	 * @param interaction The interaction to handle.
+	 * @param handler The interaction's handler.
+	 * @param startNanos The time at which the interaction was received.
+	 * @param duplicateKey Set to the interaction's duplicate detection key, once
+	 *                     it's been registered.
+	 */
+	private void handle(SlashCommandInteraction interaction, SlashCommandHandler handler, long startNanos, AtomicReference<String> duplicateKey) {
+		try {
+			var options = optionBinders.get(interaction.getCommandName()).bind(interaction);
+			duplicateKey.set(duplicateGuard.getKey(interaction, options));
+			if (duplicateKey.get() != null) {
+				var original = duplicateGuard.register(duplicateKey.get());
+				if (original != null) {
+					// The original submission must not be forgotten if this one fails.
+					duplicateKey.set(null);
+					respondDuplicate(interaction, original);
+					return;
 				}
+			}
+			if (handler instanceof AsyncSlashCommandHandler asyncHandler) {
+				respondAsync(interaction, asyncHandler.handleAsync(interaction, options), asyncHandler.isEphemeral(), startNanos, duplicateKey.get());
 			} else {
-				log.error("Command {} does not have an associated slash command handler.", commandConfig.getName());
+				recordWhenSent(interaction, startNanos, handler.handle(interaction, options).respond(), OperationStats.Outcome.SUCCESS, duplicateKey.get());
 			}
+		} catch (ResponseException e) {
+			recordWhenSent(interaction, startNanos, e.getResponseBuilder().respond(interaction), OperationStats.Outcome.RESPONSE_EXCEPTION, duplicateKey.get());
 		}
-		return handlers;
 	}
 
-	private CompletableFuture<Void> deleteAllSlashCommands(DiscordApi api) {
-		var serverDeleteFutures = api.getServers().stream()
-				.map(server -> api.bulkOverwriteServerSlashCommands(server, List.of()))
-				.toList();
-		return api.bulkOverwriteGlobalSlashCommands(List.of())
-				.thenComposeAsync(unused -> CompletableFuture.allOf(serverDeleteFutures.toArray(new CompletableFuture[0])));
+	/**
+	 * Responds to an interaction that was dropped as a duplicate, referring
+	 * the user to their original submission.
+	 * @param interaction The duplicate interaction.
+	 * @param original The original submission.
+	 */
+	private void respondDuplicate(SlashCommandInteraction interaction, DuplicateCommandGuard.Submission original) {
+		log.info("Dropped duplicate /{} command from {}.", interaction.getCommandName(), interaction.getUser().getDiscriminatedName());
+		Responses.warning(interaction, "Duplicate Command", String.format(
+				"This is identical to the `/%s` command you submitted <t:%d:R>, so it was ignored. Check the response to that command instead.",
+				interaction.getCommandName(), original.submittedAt().getEpochSecond()
+		)).respond();
 	}
 
-	private CompletableFuture<Void> updatePermissions(DiscordApi api, CommandConfig[] commandConfigs, Map<String, Long> nameToId) {
-		List<CompletableFuture<?>> permissionFutures = new ArrayList<>();
-		for (var server : api.getServers()) {
-			List<ServerSlashCommandPermissionsBuilder> permissionsBuilders = new ArrayList<>();
+	/**
+	 * Responds to an interaction using the result of an asynchronous handler.
+	 * If the result isn't available within the configured latency budget, the
+	 * interaction is deferred, and the result is sent as an update to the
+	 * original response once it's ready.
+	 * @param interaction The interaction to respond to.
+	 * @param result The future result of the handler.
+	 * @param ephemeral Whether the interaction should be deferred with an
+	 *                  ephemeral response, as declared by the handler.
+	 * @param startNanos The time at which the interaction was received.
+	 * @param duplicateKey The interaction's duplicate detection key, or null.
+	 */
+	private void respondAsync(SlashCommandInteraction interaction, CompletableFuture<Responses.ResponseBuilder> result, boolean ephemeral, long startNanos, String duplicateKey) {
+		AtomicBoolean responded = new AtomicBoolean(false);
+		CompletableFuture<InteractionOriginalResponseUpdater> deferred = new CompletableFuture<>();
+		long budget = Bot.config.getSystems().getInteractionDeferralBudgetMillis();
+		var deferralTask = Bot.timerPool.schedule(() -> {
+			if (responded.compareAndSet(false, true)) {
+				interaction.respondLater(ephemeral).whenComplete((updater, throwable) -> {
+					if (throwable != null) {
+						deferred.completeExceptionally(throwable);
+					} else {
+						deferred.complete(updater);
+					}
+				});
+			}
+		}, budget, TimeUnit.MILLISECONDS);
+		result.handle((response, throwable) -> throwable == null
+						? new Pair<>(response, OperationStats.Outcome.SUCCESS)
+						: toErrorResponse(throwable))
+				.thenAccept(response -> {
+					// If we get here before the deferral task, we can still respond immediately.
+					if (responded.compareAndSet(false, true)) {
+						deferralTask.cancel(false);
+						recordWhenSent(interaction, startNanos, response.first().respond(interaction), response.second(), duplicateKey);
+					} else {
+						if (response.first().isEphemeral() != ephemeral) {
+							log.warn("The response to /{} was deferred as {}, so its visibility can't be changed.",
+									interaction.getCommandName(), ephemeral ? "ephemeral" : "public");
+						}
+						var sent = deferred.thenCompose(response.first()::update);
+						recordWhenSent(interaction, startNanos, sent, response.second(), duplicateKey);
+						sent.exceptionally(throwable -> {
+							log.error("Could not send deferred response to interaction.", throwable);
+							return null;
+						});
+					}
+				});
+	}
+
+	private Pair<Responses.ResponseBuilder, OperationStats.Outcome> toErrorResponse(Throwable throwable) {
+		Throwable cause = throwable instanceof CompletionException && throwable.getCause() != null ? throwable.getCause() : throwable;
+		if (cause instanceof ResponseException responseException) {
+			return new Pair<>(responseException.getResponseBuilder(), OperationStats.Outcome.RESPONSE_EXCEPTION);
+		}
+		log.error("An error occurred while handling a slash command.", cause);
+		var response = Responses.deferredErrorBuilder()
+				.message("An error occurred while handling this command. Please contact an administrator if this error persists.");
+		return new Pair<>(response, OperationStats.Outcome.ERROR);
+	}
+
+	/**
+	 * Records the latency and outcome of handling an interaction, once its
+	 * response has been sent.
+	 * @param interaction The interaction that was handled.
+	 * @param startNanos The time at which the interaction was received.
+	 * @param sent A future that completes once the response is sent.
+	 * @param outcome The outcome of handling the interaction. This is
+	 *                overridden if the response couldn't be sent.
+	 * @param duplicateKey The interaction's duplicate detection key, or null.
+	 *                     Unless the interaction was handled successfully, its
+	 *                     submission is forgotten so that it may be retried.
+	 */
+	private void recordWhenSent(SlashCommandInteraction interaction, long startNanos, CompletableFuture<?> sent, OperationStats.Outcome outcome, String duplicateKey) {
+		sent.whenComplete((unused, throwable) -> {
+			var finalOutcome = throwable == null ? outcome : OperationStats.Outcome.ERROR;
+			if (duplicateKey != null && finalOutcome != OperationStats.Outcome.SUCCESS) {
+				duplicateGuard.forget(duplicateKey);
+			}
+			Metrics.command(interaction.getCommandName()).record(startNanos, finalOutcome);
+			interaction.getServer().ifPresent(server -> Metrics.server(server.getId()).record(startNanos, finalOutcome));
+		});
+	}
+
+	/**
+	 * Registers all slash commands with Discord. Only commands whose data
+	 * has changed since they were last registered are sent, and if nothing
+	 * has changed at all, the global commands aren't fetched. Permissions are
+	 * always synchronized, since a server's resolved permissions may change
+	 * without any change to the commands, but only servers whose permissions
+	 * have changed are sent.
+	 * @param api The Discord api to use.
+	 * @return A future that completes with the command handlers once all
+	 * commands are registered.
+	 */
+	private CompletableFuture<Map<String, SlashCommandHandler>> registerSlashCommands(DiscordApi api) {
+		var commandConfigs = CommandRegistry.getCommands();
+		var handlers = CommandRegistry.createHandlers();
+		Path stateFile = CommandRegistrationState.getFile();
+		var previousState = CommandRegistrationState.load(stateFile);
+		CompletableFuture<CommandRegistrationState> registered;
+		if (previousState.matches(commandConfigs)) {
+			log.info("Slash commands are unchanged since they were last registered.");
+			registered = CompletableFuture.completedFuture(previousState);
+		} else {
+			registered = updateGlobalCommands(api, commandConfigs, previousState);
+		}
+		return registered
+				.thenComposeAsync(state -> {
+					// Servers whose resolved permissions haven't changed are skipped by the sync.
+					state.setServerPermissions(previousState.getServerPermissions());
+					return CommandPermissionSync.run(api, commandConfigs, state)
+							.thenApply(result -> state);
+				})
+				.thenApply(state -> {
+					state.save(stateFile);
+					return handlers;
+				});
+	}
+
+	/**
+	 * Compares the given commands to the global commands that are currently
+	 * registered, and creates, updates, or deletes only those which differ.
+	 * @param api The Discord api to use.
+	 * @param commandConfigs The commands that should be registered.
+	 * @param previousState The state from the last time commands were registered.
+	 * @return A future that completes with the new registration state.
+	 */
+	private CompletableFuture<CommandRegistrationState> updateGlobalCommands(DiscordApi api, CommandConfig[] commandConfigs, CommandRegistrationState previousState) {
+		return api.getGlobalSlashCommands().thenComposeAsync(registeredCommands -> {
+			Map<String, SlashCommand> registered = new HashMap<>();
+			for (var command : registeredCommands) {
+				registered.put(command.getName(), command);
+			}
+			var state = new CommandRegistrationState();
+			List<CompletableFuture<?>> futures = new ArrayList<>();
 			for (var config : commandConfigs) {
-				if (config.getPrivileges() != null && config.getPrivileges().length > 0) {
-					List<SlashCommandPermissions> permissions = Arrays.stream(config.getPrivileges())
-							.map(p -> p.toData(server)).toList();
-					long commandId = nameToId.get(config.getName());
-					var builder = new ServerSlashCommandPermissionsBuilder(commandId, permissions);
-					permissionsBuilders.add(builder);
+				var current = registered.remove(config.getName());
+				var previous = previousState.getCommands().get(config.getName());
+				if (current != null && previous != null && previous.getId() == current.getId()
+						&& config.getDataFingerprint().equals(previous.getDataFingerprint())) {
+					state.put(config, current.getId());
+				} else {
+					// Creating a command with the same name as an existing one overwrites it.
+					log.info("Registering slash command {}.", config.getName());
+					futures.add(config.toData().createGlobal(api).thenAccept(command -> state.put(config, command.getId())));
 				}
 			}
-			permissionFutures.add(api.batchUpdateSlashCommandPermissions(server, permissionsBuilders));
-		}
-		return CompletableFuture.allOf(permissionFutures.toArray(new CompletableFuture[0]));
+			for (var command : registered.values()) {
+				log.info("Deleting slash command {}.", command.getName());
+				futures.add(command.deleteGlobal());
+			}
+			return CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).thenApply(unused -> state);
+		});
 	}
 }
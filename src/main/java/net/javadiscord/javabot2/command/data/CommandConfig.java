@@ -1,8 +1,10 @@
 package net.javadiscord.javabot2.command.data;
 
 import lombok.Data;
+import net.javadiscord.javabot2.util.HashUtils;
 import org.javacord.api.interaction.SlashCommandBuilder;
 
+import java.util.Arrays;
 import java.util.Objects;
 
 /**
@@ -18,6 +20,8 @@ public class CommandConfig {
 	private SubCommandConfig[] subCommands;
 	private SubCommandGroupConfig[] subCommandGroups;
 	private String handler;
+	private RateLimitConfig rateLimit;
+	private boolean deduplicate;
 
 	/**
 	 * Converts this config data into data that's ready for the Discord API.
@@ -46,6 +50,31 @@ public class CommandConfig {
 		return builder;
 	}
 
+	/**
+	 * Computes a fingerprint of the data that's sent to Discord for this
+	 * command, which can be used to detect if the command has changed since
+	 * it was last registered.
+	 * @return A hex-encoded SHA-256 hash of the command's data.
+	 */
+	public String getDataFingerprint() {
+		return HashUtils.sha256(String.join("|",
+				this.name,
+				this.description,
+				Boolean.toString(this.enabledByDefault),
+				Arrays.deepToString(this.options),
+				Arrays.deepToString(this.subCommands),
+				Arrays.deepToString(this.subCommandGroups)
+		));
+	}
+
+	/**
+	 * Computes a fingerprint of this command's privileges.
+	 * @return A hex-encoded SHA-256 hash of the command's privileges.
+	 */
+	public String getPrivilegesFingerprint() {
+		return HashUtils.sha256(Arrays.deepToString(this.privileges));
+	}
+
 	@Override
 	public boolean equals(Object o) {
 		if (this == o) return true;
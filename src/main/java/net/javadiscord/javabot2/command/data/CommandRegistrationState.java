@@ -0,0 +1,153 @@
+package net.javadiscord.javabot2.command.data;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonParseException;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import net.javadiscord.javabot2.Bot;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Locally persisted record of the slash commands that were last registered
+ * with Discord, which is used to only send updates for commands that have
+ * actually changed.
+ */
+@Data
+@Slf4j
+public class CommandRegistrationState {
+	/**
+	 * The name of the file in the config directory where the state is stored.
+	 */
+	private static final String FILE_NAME = "registered_commands.json";
+
+	/**
+	 * The registered commands, mapped by their name.
+	 */
+	private Map<String, RegisteredCommand> commands = new HashMap<>();
+
+	/**
+	 * A fingerprint of the command permissions that were last sent to each
+	 * server, mapped by the server's id.
+	 */
+	private Map<Long, String> serverPermissions = new HashMap<>();
+
+	/**
+	 * Gets the path to the file where the state is stored.
+	 * @return The path to the state file.
+	 */
+	public static Path getFile() {
+		return Bot.config.getDir().resolve(FILE_NAME);
+	}
+
+	/**
+	 * Loads the state from the given file. If the file doesn't exist or can't
+	 * be read, an empty state is returned, which means all commands will be
+	 * compared against Discord's current state.
+	 * @param file The file to load from.
+	 * @return The state that was loaded.
+	 */
+	public static CommandRegistrationState load(Path file) {
+		if (Files.exists(file)) {
+			try (var reader = Files.newBufferedReader(file)) {
+				var state = new Gson().fromJson(reader, CommandRegistrationState.class);
+				if (state != null && state.getCommands() != null) {
+					if (state.getServerPermissions() == null) state.setServerPermissions(new HashMap<>());
+					return state;
+				}
+			} catch (IOException | JsonParseException e) {
+				log.warn("Could not read slash command registration state from " + file + ", ignoring it.", e);
+			}
+		}
+		return new CommandRegistrationState();
+	}
+
+	/**
+	 * Saves the state to the given file.
+	 * @param file The file to save to.
+	 */
+	public synchronized void save(Path file) {
+		Gson gson = new GsonBuilder().setPrettyPrinting().create();
+		try (var writer = Files.newBufferedWriter(file)) {
+			gson.toJson(this, writer);
+			writer.flush();
+		} catch (IOException e) {
+			log.error("Could not save slash command registration state.", e);
+		}
+	}
+
+	/**
+	 * Records that a command was registered with the given id.
+	 * @param config The command's config.
+	 * @param id The id of the registered command.
+	 */
+	public synchronized void put(CommandConfig config, long id) {
+		this.commands.put(config.getName(), new RegisteredCommand(id, config.getDataFingerprint(), config.getPrivilegesFingerprint()));
+	}
+
+	/**
+	 * Records the fingerprint of the permissions that were sent to a server.
+	 * @param serverId The id of the server.
+	 * @param fingerprint The fingerprint of the server's permissions.
+	 */
+	public synchronized void putServerPermissions(long serverId, String fingerprint) {
+		this.serverPermissions.put(serverId, fingerprint);
+	}
+
+	/**
+	 * Gets the fingerprint of the permissions that were last sent to a server.
+	 * @param serverId The id of the server.
+	 * @return The fingerprint, or null if no permissions were sent yet.
+	 */
+	public synchronized String getServerPermissionsFingerprint(long serverId) {
+		return this.serverPermissions.get(serverId);
+	}
+
+	/**
+	 * Determines if this state describes exactly the given set of commands,
+	 * including their privileges, in which case no updates are needed.
+	 * @param configs The commands to check.
+	 * @return True if all commands are unchanged, or false otherwise.
+	 */
+	public boolean matches(CommandConfig[] configs) {
+		if (configs.length != this.commands.size()) return false;
+		for (var config : configs) {
+			var registered = this.commands.get(config.getName());
+			if (registered == null
+					|| !config.getDataFingerprint().equals(registered.getDataFingerprint())
+					|| !config.getPrivilegesFingerprint().equals(registered.getPrivilegesFingerprint())) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Gets the id of each registered command.
+	 * @return A map of command ids, mapped by the command name.
+	 */
+	public synchronized Map<String, Long> getIds() {
+		Map<String, Long> ids = new HashMap<>();
+		this.commands.forEach((name, command) -> ids.put(name, command.getId()));
+		return ids;
+	}
+
+	/**
+	 * Information about a single registered command.
+	 */
+	@Data
+	@NoArgsConstructor
+	@AllArgsConstructor
+	public static class RegisteredCommand {
+		private long id;
+		private String dataFingerprint;
+		private String privilegesFingerprint;
+	}
+}
@@ -0,0 +1,28 @@
+package net.javadiscord.javabot2.command.data;
+
+import lombok.Data;
+
+/**
+ * Simple DTO which defines how often a slash command may be used.
+ */
+@Data
+public class RateLimitConfig {
+	private static final int DEFAULT_PERIOD_SECONDS = 60;
+
+	/**
+	 * The number of times that a single user may use the command per period,
+	 * or 0 if there's no limit per user.
+	 */
+	private int userLimit;
+
+	/**
+	 * The number of times that the command may be used in a single server per
+	 * period, or 0 if there's no limit per server.
+	 */
+	private int serverLimit;
+
+	/**
+	 * The number of seconds over which the limits apply.
+	 */
+	private int periodSeconds = DEFAULT_PERIOD_SECONDS;
+}
@@ -117,6 +117,10 @@ public class BotConfig {
 		return this.systemsConfig;
 	}
 
+	public Path getDir() {
+		return this.dir;
+	}
+
 	/**
 	 * Flushes all configuration to the disk.
 	 */
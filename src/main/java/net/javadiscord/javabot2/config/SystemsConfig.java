@@ -1,6 +1,10 @@
 package net.javadiscord.javabot2.config;
 
 import lombok.Data;
+import net.javadiscord.javabot2.util.MonitoredExecutor;
+
+import java.util.HashMap;
+import java.util.Map;
 
 /**
  * Contains configuration settings for various systems which the bot uses, such
@@ -9,6 +13,12 @@ import lombok.Data;
 @Data
 public class SystemsConfig {
 	private static final int DEFAULT_ASYNC_POOL_SIZE = 4;
+	private static final long DEFAULT_INTERACTION_DEFERRAL_BUDGET_MILLIS = 1500;
+	private static final int DEFAULT_DUPLICATE_COMMAND_WINDOW_SECONDS = 15;
+	private static final int DEFAULT_ACTIVE_MUTE_CACHE_SIZE = 10_000;
+	private static final int DEFAULT_MUTE_EXPIRY_CHECK_MINUTES = 15;
+	private static final int DEFAULT_MUTE_EXPIRY_CONCURRENCY = 8;
+	private static final long DEFAULT_MUTE_EXPIRY_RETRY_MILLIS = 60_000;
 
 	/**
 	 * The token used to create the Discord bot instance.
@@ -26,19 +36,337 @@ public class SystemsConfig {
 	 */
 	private int asyncPoolSize = DEFAULT_ASYNC_POOL_SIZE;
 
+	/**
+	 * The number of milliseconds that an asynchronous slash command handler
+	 * has to produce its response, before the interaction is deferred and the
+	 * response is sent later. Discord requires an initial response within 3
+	 * seconds, so this should stay well below that.
+	 */
+	private long interactionDeferralBudgetMillis = DEFAULT_INTERACTION_DEFERRAL_BUDGET_MILLIS;
+
+	/**
+	 * The number of seconds for which a command that's marked with
+	 * {@code deduplicate} is remembered, so that an identical command from
+	 * the same user is ignored as a duplicate submission.
+	 */
+	private int duplicateCommandWindowSeconds = DEFAULT_DUPLICATE_COMMAND_WINDOW_SECONDS;
+
+	/**
+	 * The maximum number of users whose active mutes are cached in memory.
+	 */
+	private int activeMuteCacheSize = DEFAULT_ACTIVE_MUTE_CACHE_SIZE;
+
+	/**
+	 * The number of minutes between each check for expired mutes that have
+	 * been missed. Users are normally unmuted at the exact time their mute
+	 * ends, so this is only a safety net.
+	 */
+	private int muteExpiryCheckMinutes = DEFAULT_MUTE_EXPIRY_CHECK_MINUTES;
+
+	/**
+	 * The maximum number of users whose expired mutes are processed at once
+	 * when many mutes expire together.
+	 */
+	private int muteExpiryConcurrency = DEFAULT_MUTE_EXPIRY_CONCURRENCY;
+
+	/**
+	 * The time to wait before retrying a user who couldn't be unmuted after
+	 * their mute expired. This is doubled for each subsequent attempt.
+	 */
+	private long muteExpiryRetryMillis = DEFAULT_MUTE_EXPIRY_RETRY_MILLIS;
+
+	/**
+	 * Configuration for the executor that slash command handlers are run on.
+	 */
+	private CommandDispatchConfig commandDispatchConfig = new CommandDispatchConfig();
+
+	/**
+	 * Configuration for synchronizing slash command permissions in servers.
+	 */
+	private PermissionSyncConfig permissionSyncConfig = new PermissionSyncConfig();
+
 	/**
 	 * Configuration for the Hikari connection pool that's used for the bot's
 	 * SQL data source.
 	 */
 	private HikariConfig hikariConfig = new HikariConfig();
 
+	/**
+	 * Configuration for the executor that database actions are run on.
+	 */
+	private DatabaseExecutorConfig databaseExecutorConfig = new DatabaseExecutorConfig();
+
+	/**
+	 * Configuration for batching writes of warns and mutes.
+	 */
+	private BatchWriteConfig batchWriteConfig = new BatchWriteConfig();
+
+	/**
+	 * Configuration for the in-memory cache of users' warn severity totals.
+	 */
+	private WarnTotalsConfig warnTotalsConfig = new WarnTotalsConfig();
+
+	/**
+	 * Configuration for delivering the Discord side effects of moderation
+	 * actions from the outbox.
+	 */
+	private OutboxConfig outboxConfig = new OutboxConfig();
+
+	/**
+	 * Configuration for packing moderation log embeds into fewer messages.
+	 */
+	private LogPublisherConfig logPublisherConfig = new LogPublisherConfig();
+
+	/**
+	 * Configuration settings for the command dispatch executor.
+	 */
+	@Data
+	public static class CommandDispatchConfig {
+		private static final int DEFAULT_POOL_SIZE = 8;
+		private static final int DEFAULT_QUEUE_CAPACITY = 256;
+
+		/**
+		 * The number of threads that handle slash commands concurrently.
+		 */
+		private int poolSize = DEFAULT_POOL_SIZE;
+
+		/**
+		 * The maximum number of slash commands that may wait for a thread
+		 * before new ones are rejected.
+		 */
+		private int queueCapacity = DEFAULT_QUEUE_CAPACITY;
+	}
+
+	/**
+	 * Configuration settings for the slash command permission sync.
+	 */
+	@Data
+	public static class PermissionSyncConfig {
+		private static final int DEFAULT_CONCURRENCY = 4;
+		private static final int DEFAULT_MAX_ATTEMPTS = 5;
+		private static final long DEFAULT_INITIAL_BACKOFF_MILLIS = 1000;
+
+		/**
+		 * The maximum number of servers whose permissions are updated at the
+		 * same time.
+		 */
+		private int concurrency = DEFAULT_CONCURRENCY;
+
+		/**
+		 * The maximum number of attempts to update a server's permissions when
+		 * the request is rate limited.
+		 */
+		private int maxAttempts = DEFAULT_MAX_ATTEMPTS;
+
+		/**
+		 * The time to wait before retrying a rate limited request. This is
+		 * doubled for each subsequent attempt.
+		 */
+		private long initialBackoffMillis = DEFAULT_INITIAL_BACKOFF_MILLIS;
+	}
+
+	/**
+	 * Configuration settings for the database executor. Its number of threads
+	 * is the same as {@link HikariConfig#getMaximumPoolSize()}, so that every
+	 * connection in the pool can be used at once.
+	 */
+	@Data
+	public static class DatabaseExecutorConfig {
+		private static final int DEFAULT_QUEUE_CAPACITY = 512;
+		private static final long DEFAULT_BLOCK_TIMEOUT_MILLIS = 2000;
+
+		/**
+		 * The maximum number of database actions that may wait for a thread
+		 * before the rejection policy applies.
+		 */
+		private int queueCapacity = DEFAULT_QUEUE_CAPACITY;
+
+		/**
+		 * What to do with database actions that are submitted while the queue
+		 * is full.
+		 */
+		private MonitoredExecutor.RejectionPolicy rejectionPolicy = MonitoredExecutor.RejectionPolicy.BLOCK;
+
+		/**
+		 * For the {@code BLOCK} rejection policy, the maximum number of
+		 * milliseconds to wait for space in the queue before an action fails.
+		 */
+		private long blockTimeoutMillis = DEFAULT_BLOCK_TIMEOUT_MILLIS;
+	}
+
+	/**
+	 * Configuration settings for batched database writes.
+	 */
+	@Data
+	public static class BatchWriteConfig {
+		private static final int DEFAULT_MAX_BATCH_SIZE = 64;
+		private static final long DEFAULT_LINGER_MILLIS = 5;
+
+		/**
+		 * The maximum number of writes in a single batch.
+		 */
+		private int maxBatchSize = DEFAULT_MAX_BATCH_SIZE;
+
+		/**
+		 * The maximum number of milliseconds that a write waits for others to
+		 * join its batch. If this is 0, writes are only batched with those
+		 * that are already waiting.
+		 */
+		private long lingerMillis = DEFAULT_LINGER_MILLIS;
+	}
+
+	/**
+	 * Configuration settings for the cache of users' warn severity totals.
+	 */
+	@Data
+	public static class WarnTotalsConfig {
+		private static final int DEFAULT_STRIPES = 16;
+		private static final int DEFAULT_MAX_USERS_PER_STRIPE = 1024;
+		private static final int DEFAULT_BUCKET_MINUTES = 60;
+
+		/**
+		 * The number of independently locked stripes that the cache is split
+		 * into, so that updates for different users rarely contend.
+		 */
+		private int stripes = DEFAULT_STRIPES;
+
+		/**
+		 * The maximum number of users whose totals are kept in each stripe.
+		 * The least recently used user is evicted once a stripe is full.
+		 */
+		private int maxUsersPerStripe = DEFAULT_MAX_USERS_PER_STRIPE;
+
+		/**
+		 * The number of minutes that each time bucket covers. Warns expire a
+		 * whole bucket at a time, so a warn may count towards a user's total
+		 * for up to this long after its timeout has passed.
+		 */
+		private int bucketMinutes = DEFAULT_BUCKET_MINUTES;
+	}
+
+	/**
+	 * Configuration settings for the moderation outbox.
+	 */
+	@Data
+	public static class OutboxConfig {
+		private static final int DEFAULT_POLL_SECONDS = 30;
+		private static final int DEFAULT_BATCH_SIZE = 100;
+		private static final int DEFAULT_CONCURRENCY = 4;
+		private static final int DEFAULT_MAX_ATTEMPTS = 8;
+		private static final long DEFAULT_INITIAL_BACKOFF_MILLIS = 2000;
+		private static final long DEFAULT_MAX_BACKOFF_MILLIS = 600_000;
+
+		/**
+		 * The number of seconds between each check for messages that are due.
+		 * Messages are normally delivered as soon as they're committed, so
+		 * this mainly picks up retries, and messages left over from a restart.
+		 */
+		private int pollSeconds = DEFAULT_POLL_SECONDS;
+
+		/**
+		 * The maximum number of messages that are read from the outbox at once.
+		 */
+		private int batchSize = DEFAULT_BATCH_SIZE;
+
+		/**
+		 * The maximum number of users whose messages are delivered at the same
+		 * time. Each user's messages are always delivered in order.
+		 */
+		private int concurrency = DEFAULT_CONCURRENCY;
+
+		/**
+		 * The maximum number of attempts to deliver a message, after which
+		 * it's marked as failed and kept for inspection.
+		 */
+		private int maxAttempts = DEFAULT_MAX_ATTEMPTS;
+
+		/**
+		 * The time to wait before retrying a message that couldn't be
+		 * delivered. This is doubled for each subsequent attempt.
+		 */
+		private long initialBackoffMillis = DEFAULT_INITIAL_BACKOFF_MILLIS;
+
+		/**
+		 * The longest time to wait before retrying a message.
+		 */
+		private long maxBackoffMillis = DEFAULT_MAX_BACKOFF_MILLIS;
+	}
+
+	/**
+	 * Configuration settings for the moderation log publisher.
+	 */
+	@Data
+	public static class LogPublisherConfig {
+		private static final long DEFAULT_LINGER_MILLIS = 500;
+		private static final int DEFAULT_MAX_BACKLOG = 1000;
+
+		/**
+		 * The number of milliseconds that the first embed in a message waits
+		 * for more embeds to send along with it.
+		 */
+		private long lingerMillis = DEFAULT_LINGER_MILLIS;
+
+		/**
+		 * The maximum number of embeds that may wait to be sent to a guild's
+		 * log channel, after which new embeds are rejected until the backlog
+		 * shrinks.
+		 */
+		private int maxBacklog = DEFAULT_MAX_BACKLOG;
+	}
+
 	/**
 	 * Configuration settings for the Hikari connection pool.
 	 */
 	@Data
 	public static class HikariConfig {
 		private static final int DEFAULT_POOL_SIZE = 5;
-		private String jdbcUrl = "jdbc:h2:tcp://localhost:9123/./javabot";
+		private static final int DEFAULT_TCP_SERVER_PORT = 9123;
+		private static final String DEFAULT_QUERY_CACHE_SIZE = "64";
+
+		/**
+		 * The JDBC URL of the database. By default, the database file is
+		 * accessed in-process, which avoids any network overhead. A URL like
+		 * {@code jdbc:h2:tcp://localhost:9123/./javabot} may be used instead,
+		 * in which case the TCP server is always started.
+		 */
+		private String jdbcUrl = "jdbc:h2:file:./javabot";
+
 		private int maximumPoolSize = DEFAULT_POOL_SIZE;
+
+		/**
+		 * Whether to start an H2 TCP server, so that other tools can connect
+		 * to the database while the bot is running.
+		 */
+		private boolean tcpServerEnabled = false;
+
+		/**
+		 * The port that the H2 TCP server listens on, if it's started.
+		 */
+		private int tcpServerPort = DEFAULT_TCP_SERVER_PORT;
+
+		/**
+		 * The maximum number of milliseconds that a pooled connection is kept
+		 * before it's replaced. Each H2 connection caches the statements that
+		 * were prepared with it, so by default connections are never replaced,
+		 * since that would throw away their caches for no benefit when the
+		 * database is accessed in-process.
+		 */
+		private long maxLifetimeMillis = 0;
+
+		/**
+		 * Properties that are passed to the JDBC driver when connecting. For
+		 * H2, these may be any of its database settings. By default, H2's
+		 * {@code QUERY_CACHE_SIZE} is raised so that every statement the bot
+		 * uses is cached, so that preparing it again on the same connection
+		 * doesn't parse or plan it again. Note that if this is set in the
+		 * config, it replaces the default properties entirely.
+		 */
+		private Map<String, String> dataSourceProperties = defaultDataSourceProperties();
+
+		private static Map<String, String> defaultDataSourceProperties() {
+			Map<String, String> properties = new HashMap<>();
+			properties.put("QUERY_CACHE_SIZE", DEFAULT_QUERY_CACHE_SIZE);
+			return properties;
+		}
 	}
 }
@@ -0,0 +1,56 @@
+package net.javadiscord.javabot2.config.guild;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+
+/**
+ * Configuration for an embed template. Any text may contain placeholders in
+ * the form {@code {name}}, which are replaced with values when the template is
+ * rendered. When used as an override, any property which is null is taken
+ * from the default template instead.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class EmbedTemplateConfig {
+	/**
+	 * The title of the embed.
+	 */
+	private String title;
+
+	/**
+	 * The description of the embed.
+	 */
+	private String description;
+
+	/**
+	 * The color of the embed, as a hex string like {@code #FF0000}.
+	 */
+	private String color;
+
+	/**
+	 * The fields of the embed, mapped from field name to field value. Fields
+	 * appear in the map's iteration order, which for maps loaded from the
+	 * config file is the order in which they're written.
+	 */
+	private Map<String, String> fields;
+
+	/**
+	 * Gets a copy of this template where any property that's set in the given
+	 * override replaces the one from this template.
+	 * @param override The override to apply. This may be null.
+	 * @return The merged template.
+	 */
+	public EmbedTemplateConfig withOverride(EmbedTemplateConfig override) {
+		if (override == null) return this;
+		return new EmbedTemplateConfig(
+				override.title != null ? override.title : this.title,
+				override.description != null ? override.description : this.description,
+				override.color != null ? override.color : this.color,
+				override.fields != null ? override.fields : this.fields
+		);
+	}
+}
@@ -6,6 +6,9 @@ import net.javadiscord.javabot2.config.GuildConfigItem;
 import org.javacord.api.entity.channel.ServerTextChannel;
 import org.javacord.api.entity.permission.Role;
 
+import java.util.HashMap;
+import java.util.Map;
+
 /**
  * Configuration for the server's moderation.
  */
@@ -40,6 +43,13 @@ public class ModerationConfig extends GuildConfigItem {
 	 */
 	private long logChannelId;
 
+	/**
+	 * Overrides for the embeds that are sent when moderation actions are
+	 * taken, mapped by the name of the action, like {@code warn} or
+	 * {@code mute}. Actions without an override use the default template.
+	 */
+	private Map<String, EmbedTemplateConfig> embedTemplates = new HashMap<>();
+
 	public Role getStaffRole() {
 		return this.getGuild().getRoleById(staffRoleId).orElseThrow();
 	}
@@ -0,0 +1,23 @@
+package net.javadiscord.javabot2.db;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * Functional interface for defining operations that handle a batch of
+ * requests using a single Connection.
+ * @param <T> The type of the requests.
+ * @param <R> The type of the result for each request.
+ */
+@FunctionalInterface
+public interface BatchFunction<T, R> {
+	/**
+	 * Handles a batch of requests.
+	 * @param con The connection to use.
+	 * @param requests The requests to handle.
+	 * @return The result of each request, in the same order as the requests.
+	 * @throws SQLException If an error occurs.
+	 */
+	List<R> apply(Connection con, List<T> requests) throws SQLException;
+}
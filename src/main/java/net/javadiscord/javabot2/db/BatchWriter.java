@@ -0,0 +1,149 @@
+package net.javadiscord.javabot2.db;
+
+import lombok.extern.slf4j.Slf4j;
+import net.javadiscord.javabot2.Bot;
+import net.javadiscord.javabot2.config.SystemsConfig;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Collects write requests that are submitted concurrently, and handles them
+ * in batches, each in a single transaction. A batch is written once it's
+ * full, or once the first request in it has waited for the configured
+ * linger time, so that during bursts of activity, many writes share a single
+ * commit instead of each committing on its own.
+ * <p>
+ *     If a batch fails, its requests are written again one at a time, in
+ *     order, so that a single bad request only fails itself, and not the
+ *     other requests that happened to share its batch.
+ * </p>
+ * @param <T> The type of the requests.
+ * @param <R> The type of the result for each request.
+ */
+@Slf4j
+public class BatchWriter<T, R> {
+	private final String name;
+	private final int maxBatchSize;
+	private final long lingerMillis;
+	private final BatchFunction<T, R> function;
+
+	private final Queue<PendingRequest<T, R>> queue = new ConcurrentLinkedQueue<>();
+	private final AtomicInteger queueSize = new AtomicInteger();
+	private final AtomicBoolean flushScheduled = new AtomicBoolean(false);
+
+	/**
+	 * Constructs the writer.
+	 * @param name The name of the writer, which is used for logging.
+	 * @param config The batch size and linger time to use.
+	 * @param function The function that writes each batch. It's called in a
+	 *                 transaction, which is committed once it returns.
+	 */
+	public BatchWriter(String name, SystemsConfig.BatchWriteConfig config, BatchFunction<T, R> function) {
+		this.name = name;
+		this.maxBatchSize = Math.max(1, config.getMaxBatchSize());
+		this.lingerMillis = config.getLingerMillis();
+		this.function = function;
+	}
+
+	/**
+	 * Submits a request to be written in the next batch.
+	 * @param request The request.
+	 * @return A future that completes with the request's result, once the
+	 * batch it's part of has been committed.
+	 */
+	public CompletableFuture<R> submit(T request) {
+		var pending = new PendingRequest<T, R>(request, new CompletableFuture<>());
+		queue.add(pending);
+		if (queueSize.incrementAndGet() >= maxBatchSize || lingerMillis <= 0) {
+			flush();
+		} else {
+			scheduleFlush();
+		}
+		return pending.result();
+	}
+
+	private void scheduleFlush() {
+		if (flushScheduled.compareAndSet(false, true)) {
+			Bot.timerPool.schedule(() -> {
+				flushScheduled.set(false);
+				flush();
+			}, lingerMillis, TimeUnit.MILLISECONDS);
+		}
+	}
+
+	/**
+	 * Takes up to one batch of requests from the queue, and writes them.
+	 */
+	private void flush() {
+		List<PendingRequest<T, R>> batch = new ArrayList<>(maxBatchSize);
+		while (batch.size() < maxBatchSize) {
+			var pending = queue.poll();
+			if (pending == null) break;
+			queueSize.decrementAndGet();
+			batch.add(pending);
+		}
+		// Anything left over goes in the next batch.
+		if (!queue.isEmpty()) scheduleFlush();
+		if (batch.isEmpty()) return;
+		write(batch).whenComplete((results, throwable) -> {
+			if (throwable != null && batch.size() > 1) {
+				log.warn("Could not write batch of {} {} requests, writing them one at a time.", batch.size(), name, throwable);
+				writeEach(batch);
+			} else {
+				complete(batch, results, throwable);
+			}
+		});
+	}
+
+	/**
+	 * Writes each request in its own transaction, one after another, so that
+	 * requests which depend on earlier ones in the batch still see them.
+	 * @param batch The requests to write.
+	 */
+	private void writeEach(List<PendingRequest<T, R>> batch) {
+		CompletableFuture<?> previous = CompletableFuture.completedFuture(null);
+		for (var pending : batch) {
+			var single = List.of(pending);
+			previous = previous.thenCompose(unused -> write(single)
+					.handle((results, throwable) -> {
+						complete(single, results, throwable);
+						return null;
+					}));
+		}
+	}
+
+	private CompletableFuture<List<R>> write(List<PendingRequest<T, R>> batch) {
+		List<T> requests = batch.stream().map(PendingRequest::request).toList();
+		return DbHelper.transaction(con -> function.apply(con, requests));
+	}
+
+	private void complete(List<PendingRequest<T, R>> batch, List<R> results, Throwable throwable) {
+		if (throwable != null) {
+			log.error("Could not write batch of {} {} requests.", batch.size(), name, throwable);
+			batch.forEach(p -> p.result().completeExceptionally(throwable));
+		} else if (results.size() != batch.size()) {
+			var e = new IllegalStateException("Expected " + batch.size() + " results, but got " + results.size() + ".");
+			batch.forEach(p -> p.result().completeExceptionally(e));
+		} else {
+			for (int i = 0; i < batch.size(); i++) {
+				batch.get(i).result().complete(results.get(i));
+			}
+		}
+	}
+
+	/**
+	 * A request that's waiting to be written.
+	 * @param request The request.
+	 * @param result The future that's completed with the request's result.
+	 * @param <T> The type of the request.
+	 * @param <R> The type of the result.
+	 */
+	private record PendingRequest<T, R>(T request, CompletableFuture<R> result) {}
+}
@@ -0,0 +1,14 @@
+package net.javadiscord.javabot2.db;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Functional interface for defining operations that use a Connection to
+ * produce a result.
+ * @param <T> The type of the result.
+ */
+@FunctionalInterface
+public interface ConnectionFunction<T> {
+	T apply(Connection con) throws SQLException;
+}
@@ -0,0 +1,14 @@
+package net.javadiscord.javabot2.db;
+
+import java.sql.SQLException;
+
+/**
+ * Functional interface for defining operations that use a specified data-
+ * access object to produce a result.
+ * @param <D> The type of the data access object.
+ * @param <T> The type of the result.
+ */
+@FunctionalInterface
+public interface DaoFunction<D, T> {
+	T apply(D dao) throws SQLException;
+}
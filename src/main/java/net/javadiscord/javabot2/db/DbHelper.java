@@ -5,18 +5,18 @@ import com.zaxxer.hikari.HikariDataSource;
 import lombok.extern.slf4j.Slf4j;
 import net.javadiscord.javabot2.Bot;
 import net.javadiscord.javabot2.config.BotConfig;
+import net.javadiscord.javabot2.metrics.Metrics;
+import net.javadiscord.javabot2.metrics.OperationStats;
+import net.javadiscord.javabot2.util.MonitoredExecutor;
 import org.h2.tools.Server;
 
 import java.io.IOException;
-import java.io.InputStream;
-import java.nio.file.Files;
-import java.nio.file.Path;
 import java.sql.Connection;
 import java.sql.SQLException;
-import java.util.Arrays;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.function.Function;
-import java.util.regex.Pattern;
 
 /**
  * Class that provides helper methods for dealing with the database.
@@ -34,106 +34,186 @@ public class DbHelper {
 	 * start the database.
 	 */
 	public static HikariDataSource initDataSource(BotConfig config) {
-		// Determine if we need to initialize the schema, before starting up the server.
-		boolean shouldInitSchema = shouldInitSchema(config.getSystems().getHikariConfig().getJdbcUrl());
-
-		// Now that we have remembered whether we need to initialize the schema, start up the server.
-		Server server;
-		try {
-			server = Server.createTcpServer("-tcpPort", "9123", "-ifNotExists").start();
-		} catch (SQLException e) {
-			throw new IllegalStateException("Cannot start database server.", e);
+		var hikariConfigSource = config.getSystems().getHikariConfig();
+		String jdbcUrl = hikariConfigSource.getJdbcUrl();
+		// The bot itself accesses the database in-process, unless it's configured to connect through TCP.
+		// The TCP server is only needed for that, or for connecting to the database with other tools.
+		Server server = null;
+		if (hikariConfigSource.isTcpServerEnabled() || jdbcUrl.startsWith("jdbc:h2:tcp://localhost")) {
+			try {
+				server = Server.createTcpServer("-tcpPort", Integer.toString(hikariConfigSource.getTcpServerPort()), "-ifNotExists").start();
+				log.info("Started database TCP server on port {}.", server.getPort());
+			} catch (SQLException e) {
+				throw new IllegalStateException("Cannot start database server.", e);
+			}
 		}
 		var hikariConfig = new HikariConfig();
-		var hikariConfigSource = config.getSystems().getHikariConfig();
-		hikariConfig.setJdbcUrl(hikariConfigSource.getJdbcUrl());
+		hikariConfig.setJdbcUrl(jdbcUrl);
 		hikariConfig.setMaximumPoolSize(hikariConfigSource.getMaximumPoolSize());
+		hikariConfig.setMaxLifetime(hikariConfigSource.getMaxLifetimeMillis());
+		if (hikariConfigSource.getDataSourceProperties() != null) {
+			hikariConfigSource.getDataSourceProperties().forEach(hikariConfig::addDataSourceProperty);
+		}
 		var ds = new HikariDataSource(hikariConfig);
 		// Add a shutdown hook to close down the datasource and server when the JVM terminates.
+		final Server tcpServer = server;
 		Runtime.getRuntime().addShutdownHook(new Thread(() -> {
 			ds.close();
-			server.stop();
+			if (tcpServer != null) tcpServer.stop();
 		}));
-		if (shouldInitSchema) {
-			try {
-				initializeSchema(ds);
-			} catch (IOException | SQLException e) {
-				e.printStackTrace();
-				throw new IllegalStateException("Cannot initialize database schema.", e);
-			}
+		try {
+			MigrationRunner.migrate(ds);
+		} catch (IOException | SQLException e) {
+			throw new IllegalStateException("Cannot migrate database schema.", e);
 		}
 		return ds;
 	}
 
 	/**
-	 * Does an asynchronous database action using the bot's async pool.
+	 * Initializes the executor that database actions are run on. It has one
+	 * thread for each connection in the data source's pool.
+	 * @param config The bot's configuration.
+	 * @return The executor.
+	 */
+	public static MonitoredExecutor initExecutor(BotConfig config) {
+		var executorConfig = config.getSystems().getDatabaseExecutorConfig();
+		var executor = new MonitoredExecutor(
+				"database",
+				config.getSystems().getHikariConfig().getMaximumPoolSize(),
+				executorConfig.getQueueCapacity(),
+				executorConfig.getRejectionPolicy(),
+				executorConfig.getBlockTimeoutMillis()
+		);
+		return Metrics.register(executor, "Executors", "database");
+	}
+
+	/**
+	 * Does an asynchronous database action using the bot's database pool.
 	 * @param consumer The consumer that will use a connection.
-	 * @return A future that completes when the action is complete.
+	 * @return A future that completes when the action is complete. If the
+	 * database pool is too busy to accept the action, the future completes
+	 * exceptionally with a {@link RejectedExecutionException}.
 	 */
 	public static CompletableFuture<Void> doDbAction(ConnectionConsumer consumer) {
-		CompletableFuture<Void> future = new CompletableFuture<>();
-		Bot.asyncPool.submit(() -> {
-			try (var c = Bot.hikariDataSource.getConnection()) {
-				consumer.consume(c);
-				future.complete(null);
-			} catch (SQLException e) {
-				future.completeExceptionally(e);
-			}
+		return query(con -> {
+			consumer.consume(con);
+			return null;
 		});
-		return future;
 	}
 
 	/**
-	 * Does an asynchronous database action using the bot's async pool, and
+	 * Does an asynchronous database action using the bot's database pool, and
 	 * wraps access to the connection behind a data access object that can be
 	 * built using the provided dao constructor.
 	 * @param daoConstructor A function to build a DAO using a connection.
 	 * @param consumer The consumer that does something with the DAO.
 	 * @param <T> The type of data access object. Usually some kind of repository.
-	 * @return A future that completes when the action is complete.
+	 * @return A future that completes when the action is complete. If the
+	 * database pool is too busy to accept the action, the future completes
+	 * exceptionally with a {@link RejectedExecutionException}.
 	 */
 	public static <T> CompletableFuture<Void> doDaoAction(Function<Connection, T> daoConstructor, DaoConsumer<T> consumer) {
-		CompletableFuture<Void> future = new CompletableFuture<>();
-		Bot.asyncPool.submit(() -> {
-			try (var c = Bot.hikariDataSource.getConnection()) {
-				var dao = daoConstructor.apply(c);
-				consumer.consume(dao);
-				future.complete(null);
-			} catch (SQLException e) {
-				future.completeExceptionally(e);
-			}
+		return query(con -> {
+			consumer.consume(daoConstructor.apply(con));
+			return null;
 		});
-		return future;
 	}
 
-	private static boolean shouldInitSchema(String jdbcUrl) {
-		var p = Pattern.compile("jdbc:h2:tcp://localhost:\\d+/(.*)");
-		var m = p.matcher(jdbcUrl);
-		boolean shouldInitSchema = false;
-		if (m.find()) {
-			String dbFilePath = m.group(1) + ".mv.db";
-			if (Files.notExists(Path.of(dbFilePath))) {
-				log.info("Database file doesn't exist yet. Initializing schema.");
-				shouldInitSchema = true;
-			}
-		} else {
-			throw new IllegalArgumentException("Invalid JDBC URL. Should point to a file.");
-		}
-		return shouldInitSchema;
+	/**
+	 * Asynchronously runs a query using the bot's database pool, and gets its
+	 * result. The connection is in auto-commit mode, and is returned to the
+	 * pool as soon as the function is done, so any slow work that uses the
+	 * result, like sending messages, should be done once the future completes.
+	 * @param function The function that uses a connection to get a result.
+	 * @param <T> The type of the result.
+	 * @return A future that completes with the result of the function. If the
+	 * database pool is too busy to accept the query, the future completes
+	 * exceptionally with a {@link RejectedExecutionException}.
+	 */
+	public static <T> CompletableFuture<T> query(ConnectionFunction<T> function) {
+		return submit(function);
 	}
 
-	private static void initializeSchema(HikariDataSource dataSource) throws IOException, SQLException {
-		InputStream is = DbHelper.class.getResourceAsStream("/db/schema.sql");
-		if (is == null) throw new IOException("Could not load schema.sql.");
-		var queries = Arrays.stream(new String(is.readAllBytes()).split(";"))
-				.filter(s -> !s.isBlank()).toList();
-		try (var c = dataSource.getConnection()) {
-			for (var query : queries) {
-				var stmt = c.createStatement();
-				stmt.executeUpdate(query);
-				stmt.close();
+	/**
+	 * Asynchronously runs a query that uses a data access object, and gets
+	 * its result.
+	 * @param daoConstructor A function to build a DAO using a connection.
+	 * @param function The function that uses the DAO to get a result.
+	 * @param <D> The type of data access object. Usually some kind of repository.
+	 * @param <T> The type of the result.
+	 * @return A future that completes with the result of the function.
+	 * @see DbHelper#query(ConnectionFunction)
+	 */
+	public static <D, T> CompletableFuture<T> query(Function<Connection, D> daoConstructor, DaoFunction<D, T> function) {
+		return submit(con -> function.apply(daoConstructor.apply(con)));
+	}
+
+	/**
+	 * Asynchronously runs a query on a connection that's marked as
+	 * read-only, and gets its result. This is a hint to the database driver,
+	 * which may or may not enforce it, so the function must not modify data.
+	 * @param function The function that uses a connection to get a result.
+	 * @param <T> The type of the result.
+	 * @return A future that completes with the result of the function.
+	 * @see DbHelper#query(ConnectionFunction)
+	 */
+	public static <T> CompletableFuture<T> queryReadOnly(ConnectionFunction<T> function) {
+		return submit(con -> {
+			con.setReadOnly(true);
+			return function.apply(con);
+		});
+	}
+
+	/**
+	 * Asynchronously runs a function in a single transaction, and gets its
+	 * result. The transaction is committed if the function completes
+	 * normally, and rolled back otherwise.
+	 * @param function The function that uses a connection to get a result.
+	 * @param <T> The type of the result.
+	 * @return A future that completes with the result of the function, once
+	 * the transaction is committed.
+	 * @see DbHelper#query(ConnectionFunction)
+	 */
+	public static <T> CompletableFuture<T> transaction(ConnectionFunction<T> function) {
+		return submit(con -> {
+			con.setAutoCommit(false);
+			boolean committed = false;
+			try {
+				T result = function.apply(con);
+				con.commit();
+				committed = true;
+				return result;
+			} finally {
+				if (!committed) con.rollback();
 			}
+		});
+	}
+
+	/**
+	 * Submits a function to the database pool, which is given a connection
+	 * from the data source, and records the database metrics once it's done.
+	 * @param function The function to run.
+	 * @param <T> The type of the result.
+	 * @return A future that completes with the result of the function.
+	 */
+	private static <T> CompletableFuture<T> submit(ConnectionFunction<T> function) {
+		long startNanos = System.nanoTime();
+		CompletableFuture<T> future;
+		try {
+			future = CompletableFuture.supplyAsync(() -> {
+				try (var c = Bot.hikariDataSource.getConnection()) {
+					return function.apply(c);
+				} catch (SQLException e) {
+					throw new CompletionException(e);
+				}
+			}, Bot.databasePool);
+		} catch (RejectedExecutionException e) {
+			log.warn("Rejected database action because the database queue is full.");
+			future = CompletableFuture.failedFuture(e);
 		}
-		log.info("Successfully initialized H2 database.");
+		return future.whenComplete((result, throwable) -> Metrics.database().record(
+				startNanos,
+				throwable == null ? OperationStats.Outcome.SUCCESS : OperationStats.Outcome.ERROR
+		));
 	}
 }
@@ -0,0 +1,124 @@
+package net.javadiscord.javabot2.db;
+
+import lombok.extern.slf4j.Slf4j;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Applies versioned schema migrations to the database. Migrations are SQL
+ * scripts in the {@code /db/migrations} resource directory, named like
+ * {@code V2__add_indexes.sql}, and listed in order in that directory's
+ * {@code index.txt} file. The version of every migration that's been applied
+ * is recorded in the {@code schema_version} table, so that existing databases
+ * are brought up to date when the bot starts, and migrations that completed
+ * aren't applied again.
+ * <p>
+ *     A migration's statements are run in a transaction along with recording
+ *     its version, but H2 commits every DDL statement, like {@code CREATE} or
+ *     {@code ALTER}, as soon as it's run. So if a migration fails partway
+ *     through, the statements before the failure stay applied, while its
+ *     version isn't recorded, and the whole migration is run again on the
+ *     next start. Every statement in a migration must therefore be
+ *     idempotent, by using {@code IF NOT EXISTS} and {@code IF EXISTS}.
+ * </p>
+ * <p>
+ *     Migrations must never be changed once they've been released. To change
+ *     the schema, add a new migration instead.
+ * </p>
+ */
+@Slf4j
+public class MigrationRunner {
+	private static final String MIGRATIONS_PATH = "/db/migrations/";
+	private static final Pattern NAME_PATTERN = Pattern.compile("V(\\d+)__(\\w+)\\.sql");
+	private static final Pattern COMMENT_PATTERN = Pattern.compile("(?m)^\\s*--.*$");
+
+	private MigrationRunner() {}
+
+	/**
+	 * Applies all migrations that haven't been applied yet.
+	 * @param dataSource The data source to use.
+	 * @throws IOException If a migration script can't be read.
+	 * @throws SQLException If a migration fails. Any migrations before it
+	 * remain applied, as do any DDL statements of the failed migration that
+	 * were run before the failure.
+	 */
+	public static void migrate(DataSource dataSource) throws IOException, SQLException {
+		try (var c = dataSource.getConnection()) {
+			try (var s = c.createStatement()) {
+				s.executeUpdate("""
+						CREATE TABLE IF NOT EXISTS schema_version (
+							version INT PRIMARY KEY,
+							description VARCHAR(255) NOT NULL,
+							applied_at TIMESTAMP(0) NOT NULL DEFAULT CURRENT_TIMESTAMP(0)
+						)""");
+			}
+			int currentVersion = getCurrentVersion(c);
+			int applied = 0;
+			for (var name : readLines(MIGRATIONS_PATH + "index.txt")) {
+				var m = NAME_PATTERN.matcher(name);
+				if (!m.matches()) throw new IOException("Invalid migration name: " + name);
+				int version = Integer.parseInt(m.group(1));
+				if (version <= currentVersion) continue;
+				apply(c, version, m.group(2).replace('_', ' '), read(MIGRATIONS_PATH + name));
+				currentVersion = version;
+				applied++;
+			}
+			log.info("Database schema is at version {} ({} migrations applied).", currentVersion, applied);
+		}
+	}
+
+	private static int getCurrentVersion(Connection c) throws SQLException {
+		try (var s = c.createStatement(); var rs = s.executeQuery("SELECT MAX(version) FROM schema_version")) {
+			return rs.next() ? rs.getInt(1) : 0;
+		}
+	}
+
+	private static void apply(Connection c, int version, String description, String script) throws SQLException {
+		log.info("Applying database migration {}: {}.", version, description);
+		var statements = Arrays.stream(COMMENT_PATTERN.matcher(script).replaceAll("").split(";"))
+				.filter(statement -> !statement.isBlank())
+				.toList();
+		c.setAutoCommit(false);
+		try {
+			try (var s = c.createStatement()) {
+				for (var statement : statements) {
+					s.executeUpdate(statement);
+				}
+			}
+			try (var s = c.prepareStatement("INSERT INTO schema_version (version, description) VALUES (?, ?)")) {
+				s.setInt(1, version);
+				s.setString(2, description);
+				s.executeUpdate();
+			}
+			c.commit();
+		} catch (SQLException e) {
+			c.rollback();
+			throw new SQLException("Database migration " + version + " failed.", e);
+		} finally {
+			c.setAutoCommit(true);
+		}
+	}
+
+	private static List<String> readLines(String resource) throws IOException {
+		return read(resource).lines()
+				.map(String::trim)
+				.filter(line -> !line.isEmpty())
+				.collect(Collectors.toList());
+	}
+
+	private static String read(String resource) throws IOException {
+		try (InputStream is = MigrationRunner.class.getResourceAsStream(resource)) {
+			if (is == null) throw new IOException("Could not load " + resource + ".");
+			return new String(is.readAllBytes(), StandardCharsets.UTF_8);
+		}
+	}
+}
@@ -0,0 +1,98 @@
+package net.javadiscord.javabot2.db;
+
+import net.javadiscord.javabot2.metrics.CacheStats;
+import net.javadiscord.javabot2.metrics.Metrics;
+
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A bounded, least-recently-used cache of values that are loaded from the
+ * database when they're missing. Its hits, misses and evictions are published
+ * through {@link Metrics#cache(String)}.
+ * <p>
+ *     Writers must {@link #invalidate(Object)} a key whenever they change the
+ *     data it was loaded from, both when the change is made and once it's
+ *     been committed. A value is only cached if no key was invalidated while
+ *     it was being loaded, so a load that read data which was about to change
+ *     can't leave a stale value behind.
+ * </p>
+ * @param <K> The type of the keys.
+ * @param <V> The type of the values, which should be immutable.
+ */
+public class ReadThroughCache<K, V> {
+	private final Map<K, V> entries;
+	private final CacheStats stats;
+	private long version;
+
+	/**
+	 * Constructs the cache.
+	 * @param name The name of the cache, which its metrics are published under.
+	 * @param maxSize The maximum number of entries to keep.
+	 */
+	public ReadThroughCache(String name, int maxSize) {
+		this.stats = Metrics.cache(name);
+		int capacity = Math.max(1, maxSize);
+		this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+				if (size() > capacity) {
+					stats.recordEviction();
+					return true;
+				}
+				return false;
+			}
+		};
+	}
+
+	/**
+	 * Gets the value for a key, loading it if it isn't cached.
+	 * @param key The key.
+	 * @param loader The loader to use if the value isn't cached. It's called
+	 *               without holding any lock.
+	 * @return The value.
+	 * @throws SQLException If the value couldn't be loaded.
+	 */
+	public V get(K key, Loader<V> loader) throws SQLException {
+		long loadVersion;
+		synchronized (this) {
+			var value = entries.get(key);
+			if (value != null) {
+				stats.recordHit();
+				return value;
+			}
+			loadVersion = version;
+		}
+		stats.recordMiss();
+		var value = loader.load();
+		synchronized (this) {
+			if (version == loadVersion) entries.put(key, value);
+		}
+		return value;
+	}
+
+	/**
+	 * Removes a key's value from the cache, and prevents any value which is
+	 * currently being loaded from being cached.
+	 * @param key The key.
+	 */
+	public synchronized void invalidate(K key) {
+		version++;
+		entries.remove(key);
+	}
+
+	/**
+	 * Loads a value from the database.
+	 * @param <V> The type of the value.
+	 */
+	@FunctionalInterface
+	public interface Loader<V> {
+		/**
+		 * Loads the value.
+		 * @return The value.
+		 * @throws SQLException If an error occurs.
+		 */
+		V load() throws SQLException;
+	}
+}
@@ -0,0 +1,68 @@
+package net.javadiscord.javabot2.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Hit, miss and eviction statistics for an in-memory cache.
+ */
+public class CacheStats implements CacheStatsMXBean {
+	private static final double PERCENT = 100.0;
+
+	private final LongAdder hitCount = new LongAdder();
+	private final LongAdder missCount = new LongAdder();
+	private final LongAdder evictionCount = new LongAdder();
+
+	/**
+	 * Records a lookup that was served from the cache.
+	 */
+	public void recordHit() {
+		hitCount.increment();
+	}
+
+	/**
+	 * Records a lookup that had to load its value.
+	 */
+	public void recordMiss() {
+		missCount.increment();
+	}
+
+	/**
+	 * Records an entry that was evicted to keep the cache within its size.
+	 */
+	public void recordEviction() {
+		evictionCount.increment();
+	}
+
+	@Override
+	public long getHitCount() {
+		return hitCount.sum();
+	}
+
+	@Override
+	public long getMissCount() {
+		return missCount.sum();
+	}
+
+	@Override
+	public long getEvictionCount() {
+		return evictionCount.sum();
+	}
+
+	@Override
+	public double getHitRatio() {
+		long hits = getHitCount();
+		long total = hits + getMissCount();
+		return total == 0 ? 0 : (double) hits / total;
+	}
+
+	/**
+	 * Formats these stats as a short, human-readable summary.
+	 * @return The summary.
+	 */
+	public String format() {
+		return String.format(
+				"%d hits, %d misses, %d evictions | hit ratio %.1f%%",
+				getHitCount(), getMissCount(), getEvictionCount(), getHitRatio() * PERCENT
+		);
+	}
+}
@@ -0,0 +1,14 @@
+package net.javadiscord.javabot2.metrics;
+
+/**
+ * JMX interface for {@link CacheStats}.
+ */
+public interface CacheStatsMXBean {
+	long getHitCount();
+
+	long getMissCount();
+
+	long getEvictionCount();
+
+	double getHitRatio();
+}
@@ -0,0 +1,20 @@
+package net.javadiscord.javabot2.metrics;
+
+/**
+ * JMX interface for {@link net.javadiscord.javabot2.util.MonitoredExecutor}.
+ */
+public interface ExecutorStatsMXBean {
+	int getQueueDepth();
+
+	int getActiveThreads();
+
+	long getExecutedCount();
+
+	long getRejectedCount();
+
+	double getAverageWaitMillis();
+
+	double getMaxWaitMillis();
+
+	double getAverageExecutionMillis();
+}
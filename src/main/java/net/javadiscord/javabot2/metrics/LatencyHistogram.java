@@ -0,0 +1,86 @@
+package net.javadiscord.javabot2.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+
+/**
+ * A lock-free histogram of latencies, with microsecond resolution. Values are
+ * counted in log-linear buckets: each power of two is split into a fixed
+ * number of sub-buckets, so that percentiles are accurate to within about 12%,
+ * while recording a value is just a couple of atomic increments.
+ */
+public class LatencyHistogram {
+	private static final int SUB_BUCKET_BITS = 3;
+	private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+	private static final int BUCKETS = (Long.SIZE - SUB_BUCKET_BITS) * SUB_BUCKETS;
+	private static final long NANOS_PER_MICRO = 1000;
+
+	private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+	private final LongAccumulator maxMicros = new LongAccumulator(Long::max, 0);
+
+	/**
+	 * Records a latency.
+	 * @param nanos The latency, in nanoseconds.
+	 */
+	public void record(long nanos) {
+		long micros = Math.max(0, nanos / NANOS_PER_MICRO);
+		counts.incrementAndGet(indexOf(micros));
+		maxMicros.accumulate(micros);
+	}
+
+	/**
+	 * Takes a snapshot of this histogram's current state. Since values may be
+	 * recorded while the snapshot is taken, it's only approximately consistent.
+	 * @return The snapshot.
+	 */
+	public Snapshot snapshot() {
+		long[] snapshotCounts = new long[BUCKETS];
+		long total = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			snapshotCounts[i] = counts.get(i);
+			total += snapshotCounts[i];
+		}
+		long max = maxMicros.get();
+		// A percentile is the highest value of its bucket, which may be higher than any value that was recorded.
+		return new Snapshot(
+				total,
+				Math.min(max, percentile(snapshotCounts, total, 0.5)),
+				Math.min(max, percentile(snapshotCounts, total, 0.99)),
+				max
+		);
+	}
+
+	private static long percentile(long[] counts, long total, double percentile) {
+		if (total == 0) return 0;
+		long target = (long) Math.ceil(total * percentile);
+		long seen = 0;
+		for (int i = 0; i < counts.length; i++) {
+			seen += counts[i];
+			if (seen >= target) return highestValueOf(i);
+		}
+		return highestValueOf(counts.length - 1);
+	}
+
+	private static int indexOf(long value) {
+		if (value < SUB_BUCKETS) return (int) value;
+		int shift = (Long.SIZE - 1 - Long.numberOfLeadingZeros(value)) - SUB_BUCKET_BITS;
+		int subBucket = (int) (value >>> shift) & (SUB_BUCKETS - 1);
+		return (shift + 1) * SUB_BUCKETS + subBucket;
+	}
+
+	private static long highestValueOf(int index) {
+		if (index < SUB_BUCKETS) return index;
+		int shift = index / SUB_BUCKETS - 1;
+		int subBucket = index % SUB_BUCKETS;
+		return ((long) (SUB_BUCKETS + subBucket) << shift) + (1L << shift) - 1;
+	}
+
+	/**
+	 * A snapshot of a histogram.
+	 * @param count The number of recorded values.
+	 * @param p50Micros The median value, in microseconds.
+	 * @param p99Micros The 99th percentile value, in microseconds.
+	 * @param maxMicros The largest recorded value, in microseconds.
+	 */
+	public record Snapshot(long count, long p50Micros, long p99Micros, long maxMicros) {}
+}
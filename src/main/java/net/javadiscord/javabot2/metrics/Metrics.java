@@ -0,0 +1,106 @@
+package net.javadiscord.javabot2.metrics;
+
+import lombok.extern.slf4j.Slf4j;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Central registry of the bot's runtime metrics. All metrics are also
+ * registered as MBeans, so they can be inspected with any JMX client.
+ */
+@Slf4j
+public class Metrics {
+	private static final String DOMAIN = "net.javadiscord.javabot2";
+
+	private static final Map<String, OperationStats> commands = new ConcurrentHashMap<>();
+	private static final Map<Long, OperationStats> servers = new ConcurrentHashMap<>();
+	private static final Map<String, CacheStats> caches = new ConcurrentHashMap<>();
+	private static final Map<Long, PublisherStats> logPublishers = new ConcurrentHashMap<>();
+	private static final OperationStats database = register(new OperationStats(), "Database", "actions");
+
+	private Metrics() {}
+
+	/**
+	 * Gets the stats for a slash command.
+	 * @param name The name of the command.
+	 * @return The command's stats.
+	 */
+	public static OperationStats command(String name) {
+		return commands.computeIfAbsent(name, n -> register(new OperationStats(), "Commands", n));
+	}
+
+	/**
+	 * Gets the stats for all slash commands used in a server.
+	 * @param serverId The id of the server.
+	 * @return The server's stats.
+	 */
+	public static OperationStats server(long serverId) {
+		return servers.computeIfAbsent(serverId, id -> register(new OperationStats(), "Servers", Long.toString(id)));
+	}
+
+	/**
+	 * Gets the stats for all database actions.
+	 * @return The database stats.
+	 */
+	public static OperationStats database() {
+		return database;
+	}
+
+	/**
+	 * Gets the stats for an in-memory cache.
+	 * @param name The name of the cache.
+	 * @return The cache's stats.
+	 */
+	public static CacheStats cache(String name) {
+		return caches.computeIfAbsent(name, n -> register(new CacheStats(), "Caches", n));
+	}
+
+	/**
+	 * Gets the stats for the moderation log publisher of a server.
+	 * @param serverId The id of the server.
+	 * @return The publisher's stats.
+	 */
+	public static PublisherStats logPublisher(long serverId) {
+		return logPublishers.computeIfAbsent(serverId, id -> register(new PublisherStats(), "LogPublishers", Long.toString(id)));
+	}
+
+	/**
+	 * Gets the stats of all slash commands that have been used so far.
+	 * @return An unmodifiable view of the command stats, mapped by name.
+	 */
+	public static Map<String, OperationStats> getCommands() {
+		return Collections.unmodifiableMap(commands);
+	}
+
+	/**
+	 * Gets the stats of all caches that have been used so far.
+	 * @return An unmodifiable view of the cache stats, mapped by name.
+	 */
+	public static Map<String, CacheStats> getCaches() {
+		return Collections.unmodifiableMap(caches);
+	}
+
+	/**
+	 * Registers an MBean with the platform MBean server. Failures are logged
+	 * but otherwise ignored, since metrics are not essential.
+	 * @param bean The bean to register.
+	 * @param type The type of the bean.
+	 * @param name The name of the bean.
+	 * @param <T> The bean's type.
+	 * @return The bean.
+	 */
+	public static <T> T register(T bean, String type, String name) {
+		try {
+			var objectName = new ObjectName(DOMAIN + ":type=" + type + ",name=" + ObjectName.quote(name));
+			ManagementFactory.getPlatformMBeanServer().registerMBean(bean, objectName);
+		} catch (JMException e) {
+			log.warn("Could not register MBean for " + type + " " + name + ".", e);
+		}
+		return bean;
+	}
+}
@@ -0,0 +1,99 @@
+package net.javadiscord.javabot2.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latency and outcome statistics for some kind of operation, like handling a
+ * certain slash command, or running database actions.
+ */
+public class OperationStats implements OperationStatsMXBean {
+	private static final double MICROS_PER_MILLI = 1000.0;
+
+	private final LatencyHistogram latency = new LatencyHistogram();
+	private final LongAdder successCount = new LongAdder();
+	private final LongAdder errorCount = new LongAdder();
+	private final LongAdder responseExceptionCount = new LongAdder();
+
+	/**
+	 * Records a completed operation.
+	 * @param startNanos The {@link System#nanoTime()} at which the operation started.
+	 * @param outcome The outcome of the operation.
+	 */
+	public void record(long startNanos, Outcome outcome) {
+		latency.record(System.nanoTime() - startNanos);
+		switch (outcome) {
+			case SUCCESS -> successCount.increment();
+			case ERROR -> errorCount.increment();
+			case RESPONSE_EXCEPTION -> responseExceptionCount.increment();
+			default -> throw new IllegalArgumentException("Unknown outcome " + outcome);
+		}
+	}
+
+	public LatencyHistogram.Snapshot getLatency() {
+		return latency.snapshot();
+	}
+
+	@Override
+	public long getSuccessCount() {
+		return successCount.sum();
+	}
+
+	@Override
+	public long getErrorCount() {
+		return errorCount.sum();
+	}
+
+	@Override
+	public long getResponseExceptionCount() {
+		return responseExceptionCount.sum();
+	}
+
+	@Override
+	public double getP50Millis() {
+		return latency.snapshot().p50Micros() / MICROS_PER_MILLI;
+	}
+
+	@Override
+	public double getP99Millis() {
+		return latency.snapshot().p99Micros() / MICROS_PER_MILLI;
+	}
+
+	@Override
+	public double getMaxMillis() {
+		return latency.snapshot().maxMicros() / MICROS_PER_MILLI;
+	}
+
+	/**
+	 * Formats these stats as a short, human-readable summary.
+	 * @return The summary.
+	 */
+	public String format() {
+		var snapshot = latency.snapshot();
+		return String.format(
+				"%d ok, %d errors, %d rejected | p50 %.1f ms, p99 %.1f ms, max %.1f ms",
+				getSuccessCount(), getErrorCount(), getResponseExceptionCount(),
+				snapshot.p50Micros() / MICROS_PER_MILLI, snapshot.p99Micros() / MICROS_PER_MILLI, snapshot.maxMicros() / MICROS_PER_MILLI
+		);
+	}
+
+	/**
+	 * The possible outcomes of an operation.
+	 */
+	public enum Outcome {
+		/**
+		 * The operation completed successfully.
+		 */
+		SUCCESS,
+
+		/**
+		 * The operation failed with an unexpected error.
+		 */
+		ERROR,
+
+		/**
+		 * The operation was stopped by a {@link net.javadiscord.javabot2.command.ResponseException},
+		 * which usually means the user gave some invalid input.
+		 */
+		RESPONSE_EXCEPTION
+	}
+}
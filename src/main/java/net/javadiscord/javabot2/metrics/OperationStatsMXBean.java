@@ -0,0 +1,18 @@
+package net.javadiscord.javabot2.metrics;
+
+/**
+ * JMX interface for {@link OperationStats}.
+ */
+public interface OperationStatsMXBean {
+	long getSuccessCount();
+
+	long getErrorCount();
+
+	long getResponseExceptionCount();
+
+	double getP50Millis();
+
+	double getP99Millis();
+
+	double getMaxMillis();
+}
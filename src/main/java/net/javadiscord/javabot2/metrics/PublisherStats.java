@@ -0,0 +1,98 @@
+package net.javadiscord.javabot2.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Backlog and throughput statistics for a publisher that packs many embeds
+ * into each message it sends.
+ */
+public class PublisherStats implements PublisherStatsMXBean {
+	private final AtomicLong backlog = new AtomicLong();
+	private final AtomicLong peakBacklog = new AtomicLong();
+	private final LongAdder messagesSent = new LongAdder();
+	private final LongAdder embedsSent = new LongAdder();
+	private final LongAdder failedMessages = new LongAdder();
+	private final LongAdder rejectedEmbeds = new LongAdder();
+
+	/**
+	 * Records an embed that's waiting to be sent.
+	 */
+	public void recordQueued() {
+		peakBacklog.accumulateAndGet(backlog.incrementAndGet(), Math::max);
+	}
+
+	/**
+	 * Records a message that was sent.
+	 * @param embeds The number of embeds in the message.
+	 */
+	public void recordSent(int embeds) {
+		backlog.addAndGet(-embeds);
+		messagesSent.increment();
+		embedsSent.add(embeds);
+	}
+
+	/**
+	 * Records a message that couldn't be sent.
+	 * @param embeds The number of embeds in the message.
+	 */
+	public void recordFailed(int embeds) {
+		backlog.addAndGet(-embeds);
+		failedMessages.increment();
+	}
+
+	/**
+	 * Records an embed that was rejected because the backlog was full.
+	 */
+	public void recordRejected() {
+		rejectedEmbeds.increment();
+	}
+
+	@Override
+	public long getBacklog() {
+		return backlog.get();
+	}
+
+	@Override
+	public long getPeakBacklog() {
+		return peakBacklog.get();
+	}
+
+	@Override
+	public long getMessagesSent() {
+		return messagesSent.sum();
+	}
+
+	@Override
+	public long getEmbedsSent() {
+		return embedsSent.sum();
+	}
+
+	@Override
+	public long getFailedMessages() {
+		return failedMessages.sum();
+	}
+
+	@Override
+	public long getRejectedEmbeds() {
+		return rejectedEmbeds.sum();
+	}
+
+	@Override
+	public double getAverageEmbedsPerMessage() {
+		long messages = getMessagesSent();
+		return messages == 0 ? 0 : (double) getEmbedsSent() / messages;
+	}
+
+	/**
+	 * Formats these stats as a short, human-readable summary.
+	 * @return The summary.
+	 */
+	public String format() {
+		return String.format(
+				"%d queued (peak %d), %d rejected | %d messages, %d embeds (%.1f per message), %d failed",
+				getBacklog(), getPeakBacklog(), getRejectedEmbeds(),
+				getMessagesSent(), getEmbedsSent(), getAverageEmbedsPerMessage(), getFailedMessages()
+		);
+	}
+}
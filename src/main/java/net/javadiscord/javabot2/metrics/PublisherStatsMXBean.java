@@ -0,0 +1,20 @@
+package net.javadiscord.javabot2.metrics;
+
+/**
+ * JMX interface for {@link PublisherStats}.
+ */
+public interface PublisherStatsMXBean {
+	long getBacklog();
+
+	long getPeakBacklog();
+
+	long getMessagesSent();
+
+	long getEmbedsSent();
+
+	long getFailedMessages();
+
+	long getRejectedEmbeds();
+
+	double getAverageEmbedsPerMessage();
+}
@@ -0,0 +1,47 @@
+package net.javadiscord.javabot2.systems.admin;
+
+import net.javadiscord.javabot2.Bot;
+import net.javadiscord.javabot2.command.CommandOptions;
+import net.javadiscord.javabot2.command.Responses;
+import net.javadiscord.javabot2.command.SlashCommandHandler;
+import net.javadiscord.javabot2.metrics.Metrics;
+import net.javadiscord.javabot2.util.MonitoredExecutor;
+import org.javacord.api.interaction.SlashCommandInteraction;
+import org.javacord.api.interaction.callback.InteractionImmediateResponseBuilder;
+
+import java.util.TreeMap;
+
+/**
+ * Command which shows staff some runtime statistics about the bot, like how
+ * long it takes to handle each command.
+ */
+public class BotStatsCommand implements SlashCommandHandler {
+	private static final double NANOS_PER_MILLI = 1_000_000.0;
+
+	@Override
+	public InteractionImmediateResponseBuilder handle(SlashCommandInteraction interaction, CommandOptions options) {
+		StringBuilder sb = new StringBuilder("**Commands**\n");
+		var commands = new TreeMap<>(Metrics.getCommands());
+		if (commands.isEmpty()) sb.append("No commands have been used yet.\n");
+		commands.forEach((name, stats) -> sb.append('`').append(name).append("` ").append(stats.format()).append('\n'));
+		interaction.getServer().ifPresent(server -> sb.append("\n**This Server**\n")
+				.append(Metrics.server(server.getId()).format()).append('\n')
+				.append("`Log channel` ").append(Metrics.logPublisher(server.getId()).format()).append('\n'));
+		sb.append("\n**Database**\n").append(Metrics.database().format()).append('\n');
+		sb.append("\n**Command Dispatch**\n").append(formatExecutorStats(Bot.commandDispatchPool.getStats())).append('\n');
+		sb.append("\n**Database Executor**\n").append(formatExecutorStats(Bot.databasePool.getStats())).append('\n');
+		var caches = new TreeMap<>(Metrics.getCaches());
+		if (!caches.isEmpty()) sb.append("\n**Caches**\n");
+		caches.forEach((name, stats) -> sb.append('`').append(name).append("` ").append(stats.format()).append('\n'));
+		return Responses.info(interaction, "Bot Stats", sb.toString());
+	}
+
+	private String formatExecutorStats(MonitoredExecutor.Stats stats) {
+		return String.format(
+				"%d queued, %d active, %d rejected | avg wait %.1f ms, max wait %.1f ms, avg run %.1f ms",
+				stats.queueDepth(), stats.activeThreads(), stats.rejectedCount(),
+				stats.averageWaitNanos() / NANOS_PER_MILLI, stats.maxWaitNanos() / NANOS_PER_MILLI,
+				stats.averageExecutionNanos() / NANOS_PER_MILLI
+		);
+	}
+}
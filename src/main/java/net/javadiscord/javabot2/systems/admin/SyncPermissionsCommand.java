@@ -0,0 +1,37 @@
+package net.javadiscord.javabot2.systems.admin;
+
+import net.javadiscord.javabot2.command.AsyncSlashCommandHandler;
+import net.javadiscord.javabot2.command.CommandOptions;
+import net.javadiscord.javabot2.command.CommandPermissionSync;
+import net.javadiscord.javabot2.command.ResponseException;
+import net.javadiscord.javabot2.command.Responses;
+import net.javadiscord.javabot2.command.data.CommandRegistrationState;
+import net.javadiscord.javabot2.command.data.CommandRegistry;
+import org.javacord.api.interaction.SlashCommandInteraction;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Command which re-synchronizes slash command permissions in all servers,
+ * without needing to restart the bot.
+ */
+public class SyncPermissionsCommand implements AsyncSlashCommandHandler {
+	@Override
+	public CompletableFuture<Responses.ResponseBuilder> handleAsync(SlashCommandInteraction interaction, CommandOptions options) throws ResponseException {
+		var stateFile = CommandRegistrationState.getFile();
+		var state = CommandRegistrationState.load(stateFile);
+		if (state.getCommands().isEmpty()) {
+			throw ResponseException.warning("No slash commands have been registered yet. Restart the bot with `--register-commands` first.").get();
+		}
+		return CommandPermissionSync.run(interaction.getApi(), CommandRegistry.getCommands(), state)
+				.thenApply(result -> {
+					state.save(stateFile);
+					return Responses.successBuilder(interaction)
+							.title("Permissions Synchronized")
+							.messageFormat(
+									"Updated %d servers, %d were unchanged and %d failed, in %d ms.",
+									result.updated(), result.unchanged(), result.failed(), result.duration().toMillis()
+							);
+				});
+	}
+}
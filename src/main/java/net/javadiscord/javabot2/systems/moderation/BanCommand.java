@@ -1,5 +1,6 @@
 package net.javadiscord.javabot2.systems.moderation;
 
+import net.javadiscord.javabot2.command.CommandOptions;
 import net.javadiscord.javabot2.command.ResponseException;
 import net.javadiscord.javabot2.command.Responses;
 import net.javadiscord.javabot2.command.SlashCommandHandler;
@@ -12,16 +13,14 @@ import org.javacord.api.interaction.callback.InteractionImmediateResponseBuilder
  */
 public class BanCommand implements SlashCommandHandler {
 	@Override
-	public InteractionImmediateResponseBuilder handle(SlashCommandInteraction interaction) throws ResponseException {
-		User user = interaction.getOptionUserValueByName("user")
-				.orElseThrow(ResponseException.warning("User is required."));
-		String reason = interaction.getOptionStringValueByName("reason")
-				.orElseThrow(ResponseException.warning("Reason is required."));
+	public InteractionImmediateResponseBuilder handle(SlashCommandInteraction interaction, CommandOptions options) throws ResponseException {
+		User user = options.getUser("user");
+		String reason = options.getString("reason");
 		var channel = interaction.getChannel()
 				.orElseThrow(ResponseException.warning("This command can only be performed in a channel."))
 				.asServerTextChannel()
 				.orElseThrow(ResponseException.warning("This command can only be performed in a server text channel."));
-		var quiet = interaction.getOptionBooleanValueByName("quiet").orElse(false);
+		var quiet = options.getBoolean("quiet", false);
 		var moderationService = new ModerationService(interaction);
 		moderationService.ban(user, reason, interaction.getUser(), channel, quiet);
 		return Responses.successBuilder(interaction)
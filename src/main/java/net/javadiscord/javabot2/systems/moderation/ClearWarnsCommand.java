@@ -1,5 +1,6 @@
 package net.javadiscord.javabot2.systems.moderation;
 
+import net.javadiscord.javabot2.command.CommandOptions;
 import net.javadiscord.javabot2.command.ResponseException;
 import net.javadiscord.javabot2.command.Responses;
 import net.javadiscord.javabot2.command.SlashCommandHandler;
@@ -11,9 +12,8 @@ import org.javacord.api.interaction.callback.InteractionImmediateResponseBuilder
  */
 public class ClearWarnsCommand implements SlashCommandHandler {
 	@Override
-	public InteractionImmediateResponseBuilder handle(SlashCommandInteraction interaction) throws ResponseException {
-		var user = interaction.getOptionUserValueByName("user")
-				.orElseThrow(ResponseException.warning("Missing user."));
+	public InteractionImmediateResponseBuilder handle(SlashCommandInteraction interaction, CommandOptions options) throws ResponseException {
+		var user = options.getUser("user");
 		var moderationService = new ModerationService(interaction);
 		moderationService.clearWarns(user, interaction.getUser());
 		return Responses.successBuilder(interaction)
@@ -0,0 +1,142 @@
+package net.javadiscord.javabot2.systems.moderation;
+
+import net.javadiscord.javabot2.command.AsyncSlashCommandHandler;
+import net.javadiscord.javabot2.command.CommandOptions;
+import net.javadiscord.javabot2.command.ResponseException;
+import net.javadiscord.javabot2.command.Responses;
+import net.javadiscord.javabot2.db.DbHelper;
+import net.javadiscord.javabot2.systems.moderation.dao.HistoryCursor;
+import net.javadiscord.javabot2.systems.moderation.dao.MuteRepository;
+import net.javadiscord.javabot2.systems.moderation.dao.WarnRepository;
+import net.javadiscord.javabot2.systems.moderation.model.Mute;
+import net.javadiscord.javabot2.systems.moderation.model.Warn;
+import org.javacord.api.interaction.SlashCommandInteraction;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Command that shows staff a page of a user's warn or mute history in the
+ * current server, from newest to oldest. Each page ends with a cursor that can be given to the
+ * command to show the next page.
+ */
+public class HistoryCommand implements AsyncSlashCommandHandler {
+	private static final int PAGE_SIZE = 10;
+	private static final int MAX_REASON_LENGTH = 200;
+
+	@Override
+	public CompletableFuture<Responses.ResponseBuilder> handleAsync(SlashCommandInteraction interaction, CommandOptions options) throws ResponseException {
+		long guildId = interaction.getServer()
+				.orElseThrow(ResponseException.warning("History can only be shown in servers."))
+				.getId();
+		var user = options.getUser("user");
+		var type = options.getEnum("type", Type.class);
+		var before = HistoryCursor.START;
+		var cursor = options.getOptionalString("before");
+		if (cursor.isPresent()) {
+			before = HistoryCursor.parse(cursor.get().trim())
+					.orElseThrow(ResponseException.warning("Invalid cursor. Use the one shown at the end of the previous page."));
+		}
+		var start = before;
+		return DbHelper.queryReadOnly(con -> switch (type) {
+			case WARNS -> {
+				var page = new Page<Warn>(HistoryCommand::formatWarn, warn -> new HistoryCursor(warn.getCreatedAt(), warn.getId()));
+				new WarnRepository(con).streamHistory(guildId, user.getId(), start, PAGE_SIZE + 1, page);
+				yield page;
+			}
+			case MUTES -> {
+				var page = new Page<Mute>(HistoryCommand::formatMute, mute -> new HistoryCursor(mute.getCreatedAt(), mute.getId()));
+				new MuteRepository(con).streamHistory(guildId, user.getId(), start, PAGE_SIZE + 1, page);
+				yield page;
+			}
+		}).thenApply(page -> Responses.infoBuilder(interaction)
+				.title(type.getTitle() + " for " + user.getDiscriminatedName())
+				.message(page.format(start == HistoryCursor.START)));
+	}
+
+	private static String formatWarn(Warn warn) {
+		return String.format(
+				"`#%d` %s **%s** by <@%d>%s\n> %s",
+				warn.getId(), formatTime(warn.getCreatedAt()), warn.getSeverity(), warn.getWarnedBy(),
+				warn.isDiscarded() ? " *(cleared)*" : "", truncate(warn.getReason())
+		);
+	}
+
+	private static String formatMute(Mute mute) {
+		return String.format(
+				"`#%d` %s until %s by <@%d>%s\n> %s",
+				mute.getId(), formatTime(mute.getCreatedAt()), formatTime(mute.getEndsAt()), mute.getMutedBy(),
+				mute.isDiscarded() ? " *(ended)*" : "", truncate(mute.getReason())
+		);
+	}
+
+	private static String formatTime(LocalDateTime time) {
+		return "<t:" + time.toEpochSecond(ZoneOffset.UTC) + ":f>";
+	}
+
+	private static String truncate(String reason) {
+		return reason.length() <= MAX_REASON_LENGTH ? reason : reason.substring(0, MAX_REASON_LENGTH - 3) + "...";
+	}
+
+	/**
+	 * The kinds of history that can be shown.
+	 */
+	private enum Type {
+		WARNS("Warns"),
+		MUTES("Mutes");
+
+		private final String title;
+
+		Type(String title) {
+			this.title = title;
+		}
+
+		String getTitle() {
+			return title;
+		}
+	}
+
+	/**
+	 * A page of history that's built as records are streamed from the
+	 * database. One more record than fits on the page is requested, so that
+	 * the page knows whether there's another page after it.
+	 * @param <T> The type of the records.
+	 */
+	private static final class Page<T> implements Consumer<T> {
+		private final StringBuilder sb = new StringBuilder();
+		private final Function<T, String> formatter;
+		private final Function<T, HistoryCursor> cursorFunction;
+		private int count;
+		private HistoryCursor last;
+		private boolean hasMore;
+
+		private Page(Function<T, String> formatter, Function<T, HistoryCursor> cursorFunction) {
+			this.formatter = formatter;
+			this.cursorFunction = cursorFunction;
+		}
+
+		@Override
+		public void accept(T record) {
+			if (count == PAGE_SIZE) {
+				hasMore = true;
+				return;
+			}
+			sb.append(formatter.apply(record)).append('\n');
+			last = cursorFunction.apply(record);
+			count++;
+		}
+
+		private String format(boolean firstPage) {
+			if (count == 0) {
+				return firstPage ? "There's nothing in this user's history." : "There are no more records in this user's history.";
+			}
+			if (hasMore) {
+				sb.append("\nFor the next page, use the same user and type with `before:").append(last).append('`');
+			}
+			return sb.toString();
+		}
+	}
+}
@@ -0,0 +1,174 @@
+package net.javadiscord.javabot2.systems.moderation;
+
+import lombok.extern.slf4j.Slf4j;
+import net.javadiscord.javabot2.Bot;
+import net.javadiscord.javabot2.config.SystemsConfig;
+import net.javadiscord.javabot2.metrics.Metrics;
+import net.javadiscord.javabot2.metrics.PublisherStats;
+import org.javacord.api.entity.channel.ServerTextChannel;
+import org.javacord.api.entity.message.embed.EmbedBuilder;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sends moderation embeds to a guild's log channel, packing as many as
+ * Discord allows into each message, so that a burst of actions, like during
+ * a raid, doesn't use up the channel's rate limit one embed at a time.
+ * <p>
+ *     The first embed waits for the configured linger time before it's sent,
+ *     to give others a chance to join it, and only one message is sent at a
+ *     time, so embeds that arrive while one is being sent are packed into the
+ *     next. Bans and mutes are sent before any other embeds that are waiting.
+ *     The backlog of each guild's publisher is published through
+ *     {@link Metrics#logPublisher(long)}.
+ * </p>
+ */
+@Slf4j
+public final class LogChannelPublisher {
+	/**
+	 * The maximum number of embeds that Discord allows in a single message.
+	 */
+	private static final int MAX_EMBEDS_PER_MESSAGE = 10;
+
+	/**
+	 * The maximum total number of characters that Discord allows in all of a
+	 * single message's embeds.
+	 */
+	private static final int MAX_CHARACTERS_PER_MESSAGE = 6000;
+
+	private static final Set<ModerationEmbeds.Action> PRIORITY_ACTIONS = EnumSet.of(
+			ModerationEmbeds.Action.BAN,
+			ModerationEmbeds.Action.MUTE
+	);
+
+	private static final Map<Long, LogChannelPublisher> GUILD_PUBLISHERS = new ConcurrentHashMap<>();
+
+	private final PublisherStats stats;
+	private final Deque<Entry> priorityEntries = new ArrayDeque<>();
+	private final Deque<Entry> entries = new ArrayDeque<>();
+	private boolean flushScheduled;
+	private boolean sending;
+
+	private LogChannelPublisher(long guildId) {
+		this.stats = Metrics.logPublisher(guildId);
+	}
+
+	/**
+	 * Gets the publisher for a guild, which is created when it's first used.
+	 * @param guildId The id of the guild.
+	 * @return The publisher.
+	 */
+	public static LogChannelPublisher forGuild(long guildId) {
+		return GUILD_PUBLISHERS.computeIfAbsent(guildId, LogChannelPublisher::new);
+	}
+
+	/**
+	 * Queues an embed to be sent to the log channel.
+	 * @param channel The log channel.
+	 * @param embed The embed.
+	 * @param length The number of characters in the embed, as counted by
+	 *               {@link ModerationEmbeds#render}.
+	 * @param action The action that the embed is for.
+	 * @return A future that completes once the message containing the embed
+	 * has been sent. It completes exceptionally with a
+	 * {@link RejectedExecutionException} if the backlog is full.
+	 */
+	public CompletableFuture<Void> publish(ServerTextChannel channel, EmbedBuilder embed, int length, ModerationEmbeds.Action action) {
+		var config = config();
+		var entry = new Entry(channel, embed, length, new CompletableFuture<>());
+		synchronized (this) {
+			if (priorityEntries.size() + entries.size() >= config.getMaxBacklog()) {
+				stats.recordRejected();
+				return CompletableFuture.failedFuture(new RejectedExecutionException("The log channel backlog is full."));
+			}
+			(PRIORITY_ACTIONS.contains(action) ? priorityEntries : entries).add(entry);
+			stats.recordQueued();
+			if (!sending && !flushScheduled) {
+				flushScheduled = true;
+				Bot.timerPool.schedule(this::flush, config.getLingerMillis(), TimeUnit.MILLISECONDS);
+			}
+		}
+		return entry.result();
+	}
+
+	/**
+	 * Sends one message containing as many of the waiting embeds as will fit.
+	 * Once it's been sent, any embeds that are still waiting are sent right
+	 * away, since they've already waited for at least as long as the message.
+	 */
+	private void flush() {
+		List<Entry> batch;
+		synchronized (this) {
+			flushScheduled = false;
+			batch = takeBatch();
+			if (batch.isEmpty()) return;
+			sending = true;
+		}
+		var embeds = batch.stream().map(Entry::embed).toList();
+		batch.get(0).channel().sendMessage(embeds).whenComplete((message, throwable) -> {
+			if (throwable != null) {
+				log.warn("Could not send {} embeds to log channel {}.", batch.size(), batch.get(0).channel().getId(), throwable);
+				stats.recordFailed(batch.size());
+				batch.forEach(entry -> entry.result().completeExceptionally(throwable));
+			} else {
+				stats.recordSent(batch.size());
+				batch.forEach(entry -> entry.result().complete(null));
+			}
+			synchronized (this) {
+				sending = false;
+				if (!flushScheduled && !(priorityEntries.isEmpty() && entries.isEmpty())) {
+					flushScheduled = true;
+					Bot.asyncPool.execute(this::flush);
+				}
+			}
+		});
+	}
+
+	/**
+	 * Takes the embeds for the next message, with priority embeds first. Only
+	 * embeds for the same channel are sent together, and an embed that won't
+	 * fit is left for the next message, unless it's the first one.
+	 * @return The embeds, which is empty if none are waiting.
+	 */
+	private List<Entry> takeBatch() {
+		List<Entry> batch = new ArrayList<>(MAX_EMBEDS_PER_MESSAGE);
+		int length = 0;
+		for (var queue : List.of(priorityEntries, entries)) {
+			while (batch.size() < MAX_EMBEDS_PER_MESSAGE && !queue.isEmpty()) {
+				var next = queue.peek();
+				if (!batch.isEmpty() && (
+						next.channel().getId() != batch.get(0).channel().getId()
+						|| length + next.length() > MAX_CHARACTERS_PER_MESSAGE
+				)) {
+					return batch;
+				}
+				batch.add(queue.poll());
+				length += next.length();
+			}
+		}
+		return batch;
+	}
+
+	private static SystemsConfig.LogPublisherConfig config() {
+		return Bot.config.getSystems().getLogPublisherConfig();
+	}
+
+	/**
+	 * An embed that's waiting to be sent.
+	 * @param channel The channel to send the embed to.
+	 * @param embed The embed.
+	 * @param length The number of characters in the embed.
+	 * @param result The future that's completed once the embed is sent.
+	 */
+	private record Entry(ServerTextChannel channel, EmbedBuilder embed, int length, CompletableFuture<Void> result) {}
+}
@@ -0,0 +1,160 @@
+package net.javadiscord.javabot2.systems.moderation;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import net.javadiscord.javabot2.config.guild.EmbedTemplateConfig;
+import net.javadiscord.javabot2.config.guild.ModerationConfig;
+import net.javadiscord.javabot2.util.EmbedTemplate;
+import org.javacord.api.entity.user.User;
+
+import java.time.Instant;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The compiled embed templates that are used to notify users and staff of
+ * moderation actions in a guild. Templates are compiled once for each guild,
+ * from the defaults defined in {@link Action}, and any overrides from the
+ * guild's {@link ModerationConfig#getEmbedTemplates()}.
+ * <p>
+ *     Besides any action-specific values, every template may use the
+ *     {@code {user}}, {@code {actor}} and {@code {maxSeverity}} placeholders.
+ * </p>
+ */
+@Slf4j
+public final class ModerationEmbeds {
+	private static final Map<Long, ModerationEmbeds> GUILD_EMBEDS = new ConcurrentHashMap<>();
+
+	private final ModerationConfig config;
+	private final Map<Action, EmbedTemplate> templates;
+
+	private ModerationEmbeds(ModerationConfig config) {
+		this.config = config;
+		this.templates = new EnumMap<>(Action.class);
+		for (var action : Action.values()) {
+			var override = config.getEmbedTemplates() == null ? null : config.getEmbedTemplates().get(action.getKey());
+			EmbedTemplate template;
+			try {
+				template = new EmbedTemplate(action.getDefaultTemplate().withOverride(override));
+			} catch (IllegalArgumentException e) {
+				log.error("Invalid {} embed template for guild {}, using the default instead.", action.getKey(), config.getGuild().getId(), e);
+				template = new EmbedTemplate(action.getDefaultTemplate());
+			}
+			this.templates.put(action, template);
+		}
+	}
+
+	/**
+	 * Gets the embed templates for the guild that the given config belongs to.
+	 * @param config The guild's moderation config.
+	 * @return The guild's embed templates.
+	 */
+	public static ModerationEmbeds forGuild(ModerationConfig config) {
+		long guildId = config.getGuild().getId();
+		var embeds = GUILD_EMBEDS.get(guildId);
+		if (embeds == null || embeds.config != config) {
+			embeds = new ModerationEmbeds(config);
+			GUILD_EMBEDS.put(guildId, embeds);
+		}
+		return embeds;
+	}
+
+	/**
+	 * Renders the embed for a moderation action. The resulting embed should
+	 * be shared by all the places it's sent to.
+	 * @param action The action that was taken.
+	 * @param user The user that the action was taken against.
+	 * @param actor The user who took the action.
+	 * @param timestamp The time at which the action was taken.
+	 * @param values Any action-specific placeholder values.
+	 * @return The rendered embed, along with its number of characters, as
+	 * counted by Discord when it limits the total size of a message's embeds.
+	 */
+	public EmbedTemplate.Rendered render(Action action, User user, User actor, Instant timestamp, Map<String, String> values) {
+		var rendered = templates.get(action).render(allValues(user, actor, values));
+		var footer = actor.getDiscriminatedName();
+		rendered.embed().setTimestamp(timestamp).setFooter(footer, actor.getAvatar());
+		return new EmbedTemplate.Rendered(rendered.embed(), rendered.length() + footer.length());
+	}
+
+	private Map<String, String> allValues(User user, User actor, Map<String, String> values) {
+		Map<String, String> allValues = new HashMap<>(values);
+		allValues.put("user", user.getDiscriminatedName());
+		allValues.put("actor", actor.getDiscriminatedName());
+		allValues.put("maxSeverity", String.valueOf(config.getMaxWarnSeverity()));
+		return allValues;
+	}
+
+	/**
+	 * The moderation actions which have an embed template, along with their
+	 * default template.
+	 */
+	@Getter
+	public enum Action {
+		/**
+		 * A user was warned. Placeholders: {@code reason}, {@code severity},
+		 * {@code totalSeverity}.
+		 */
+		WARN("warn", new EmbedTemplateConfig(
+				"{user} | Warn ({totalSeverity}/{maxSeverity})", null, "#FFC800",
+				fields("Reason", "{reason}", "Severity", "{severity}")
+		)),
+
+		/**
+		 * All of a user's warns were cleared.
+		 */
+		CLEAR_WARNS("clear-warns", new EmbedTemplateConfig(
+				"{user} | Warns Cleared", "All warns have been cleared from {user}'s record.", "#FFC800", null
+		)),
+
+		/**
+		 * A user was banned. Placeholders: {@code reason}.
+		 */
+		BAN("ban", new EmbedTemplateConfig(
+				"{user} | Ban", null, "#FF0000",
+				fields("Reason", "{reason}")
+		)),
+
+		/**
+		 * A user was muted. Placeholders: {@code reason}, {@code duration}.
+		 */
+		MUTE("mute", new EmbedTemplateConfig(
+				"{user} | Mute", null, "#404040",
+				fields("Reason", "{reason}", "Duration", "{duration}")
+		)),
+
+		/**
+		 * A user was unmuted.
+		 */
+		UNMUTE("unmute", new EmbedTemplateConfig(
+				"{user} | Unmute", null, "#404040", null
+		));
+
+		/**
+		 * The name of the action, which is used as the key for any override
+		 * in the guild's config.
+		 */
+		private final String key;
+
+		/**
+		 * The template that's used if a guild doesn't override it.
+		 */
+		private final EmbedTemplateConfig defaultTemplate;
+
+		Action(String key, EmbedTemplateConfig defaultTemplate) {
+			this.key = key;
+			this.defaultTemplate = defaultTemplate;
+		}
+
+		private static Map<String, String> fields(String... namesAndValues) {
+			Map<String, String> fields = new LinkedHashMap<>();
+			for (int i = 0; i < namesAndValues.length; i += 2) {
+				fields.put(namesAndValues[i], namesAndValues[i + 1]);
+			}
+			return fields;
+		}
+	}
+}
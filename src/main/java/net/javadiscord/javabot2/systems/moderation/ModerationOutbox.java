@@ -0,0 +1,305 @@
+package net.javadiscord.javabot2.systems.moderation;
+
+import lombok.extern.slf4j.Slf4j;
+import net.javadiscord.javabot2.Bot;
+import net.javadiscord.javabot2.config.SystemsConfig;
+import net.javadiscord.javabot2.config.guild.ModerationConfig;
+import net.javadiscord.javabot2.db.DbHelper;
+import net.javadiscord.javabot2.systems.moderation.dao.OutboxRepository;
+import net.javadiscord.javabot2.systems.moderation.model.GuildUser;
+import net.javadiscord.javabot2.systems.moderation.model.OutboxEffect;
+import net.javadiscord.javabot2.systems.moderation.model.OutboxMessage;
+import net.javadiscord.javabot2.util.AsyncUtils;
+import net.javadiscord.javabot2.util.EmbedTemplate;
+import org.javacord.api.DiscordApi;
+import org.javacord.api.entity.user.User;
+import org.javacord.api.exception.DiscordException;
+import org.javacord.api.exception.RatelimitException;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Delivers the Discord side effects of moderation actions, like notifying
+ * the user or giving them the mute role. These are written to the outbox in
+ * the same transaction as the action, so that the transaction only waits on
+ * the database, and no side effect is lost if the bot restarts or a request
+ * to Discord fails.
+ * <p>
+ *     The outbox is drained whenever an action is committed, and also
+ *     periodically, to pick up retries. Messages that fail with a temporary
+ *     error, like a rate limit, are retried with exponential backoff, while
+ *     those that fail permanently, or too many times, are marked as failed
+ *     and kept for inspection. Each user's messages are delivered in order,
+ *     so a mute role that was removed is never given back by a retry of an
+ *     earlier mute.
+ * </p>
+ * <p>
+ *     Log channel embeds are the exception: they're handed to the
+ *     {@link LogChannelPublisher} without waiting for them to be sent, so
+ *     that the embeds of a whole batch can be packed into as few messages as
+ *     possible. Their outcome is recorded once they've been sent.
+ * </p>
+ */
+@Slf4j
+public final class ModerationOutbox {
+	private static final ModerationOutbox INSTANCE = new ModerationOutbox();
+	private static final int MAX_ERROR_LENGTH = 1024;
+	private static final int MAX_BACKOFF_SHIFT = 30;
+	private static final int HTTP_CLIENT_ERROR = 400;
+	private static final int HTTP_TOO_MANY_REQUESTS = 429;
+	private static final int HTTP_SERVER_ERROR = 500;
+
+	private final AtomicBoolean draining = new AtomicBoolean(false);
+	private final AtomicBoolean drainRequested = new AtomicBoolean(false);
+	private volatile DiscordApi api;
+
+	private ModerationOutbox() {}
+
+	/**
+	 * Gets the shared instance.
+	 * @return The instance.
+	 */
+	public static ModerationOutbox getInstance() {
+		return INSTANCE;
+	}
+
+	/**
+	 * Starts delivering messages, including any that were left in the outbox
+	 * when the bot last stopped. This should be called once the bot has
+	 * logged in.
+	 * @param api The Discord API, which is used to deliver messages.
+	 */
+	public void start(DiscordApi api) {
+		this.api = api;
+		long pollSeconds = Math.max(1, outboxConfig().getPollSeconds());
+		Bot.timerPool.scheduleWithFixedDelay(this::wake, 0, pollSeconds, TimeUnit.SECONDS);
+	}
+
+	/**
+	 * Delivers any messages that are due. This should be called once a
+	 * transaction that wrote to the outbox has been committed. If the outbox
+	 * is already being drained, it's drained again once that's done.
+	 */
+	public void wake() {
+		if (api == null) return;
+		drainRequested.set(true);
+		if (draining.compareAndSet(false, true)) {
+			drain();
+		}
+	}
+
+	private void drain() {
+		drainRequested.set(false);
+		var config = outboxConfig();
+		int batchSize = Math.max(1, config.getBatchSize());
+		DbHelper.queryReadOnly(con -> new OutboxRepository(con).findDue(LocalDateTime.now(), batchSize))
+				.thenCompose(messages -> deliverAll(messages, config).thenApply(unused -> messages.size() == batchSize))
+				.whenComplete((full, throwable) -> {
+					if (throwable != null) {
+						log.error("Could not drain the moderation outbox.", throwable);
+					} else if (full) {
+						// There may be more messages that are due.
+						drainRequested.set(true);
+					}
+					draining.set(false);
+					if (drainRequested.get()) wake();
+				});
+	}
+
+	/**
+	 * Delivers a batch of messages, with a bounded number of users' messages
+	 * being delivered at once, and then records the outcome of every message
+	 * in a single transaction.
+	 * @param messages The messages, oldest first.
+	 * @param config The outbox config to use.
+	 * @return A future that completes once the outcomes have been recorded.
+	 */
+	private CompletableFuture<Void> deliverAll(List<OutboxMessage> messages, SystemsConfig.OutboxConfig config) {
+		if (messages.isEmpty()) return CompletableFuture.completedFuture(null);
+		Map<GuildUser, List<OutboxMessage>> messagesByUser = new LinkedHashMap<>();
+		for (var message : messages) {
+			messagesByUser.computeIfAbsent(new GuildUser(message.getGuildId(), message.getUserId()), key -> new ArrayList<>()).add(message);
+		}
+		var results = new Results(new ConcurrentLinkedQueue<>(), new ConcurrentLinkedQueue<>(), new ConcurrentLinkedQueue<>(), new ConcurrentHashMap<>());
+		return AsyncUtils.forEachBounded(messagesByUser.values(), config.getConcurrency(), userMessages ->
+						deliverInOrder(userMessages.iterator(), results, config))
+				.thenCompose(unused -> CompletableFuture.allOf(results.published().toArray(CompletableFuture[]::new)))
+				.thenCompose(unused -> DbHelper.<Void>transaction(con -> {
+					var repo = new OutboxRepository(con);
+					repo.deleteAll(results.delivered());
+					repo.updateAttempts(results.undelivered());
+					return null;
+				}));
+	}
+
+	/**
+	 * Delivers one user's messages one after another. If a message fails with
+	 * an error that will be retried, the rest are left for a later drain. Log
+	 * channel messages are only handed to the publisher here, and don't hold
+	 * up the user's later messages.
+	 * @param messages The user's messages, oldest first.
+	 * @param results The results to add each message's outcome to.
+	 * @param config The outbox config to use.
+	 * @return A future that completes once the messages have been handled.
+	 */
+	private CompletableFuture<Void> deliverInOrder(Iterator<OutboxMessage> messages, Results results, SystemsConfig.OutboxConfig config) {
+		if (!messages.hasNext()) return CompletableFuture.completedFuture(null);
+		var message = messages.next();
+		// Starting from a completed future turns any exception thrown while delivering into a failed future.
+		var outcome = CompletableFuture.completedFuture(message)
+				.thenCompose(m -> deliver(m, results))
+				.handle((unused, throwable) -> recordOutcome(message, throwable, results, config));
+		if (message.getEffect() == OutboxEffect.LOG) {
+			results.published().add(outcome);
+			return deliverInOrder(messages, results, config);
+		}
+		return outcome.thenCompose(next -> next ? deliverInOrder(messages, results, config) : CompletableFuture.completedFuture(null));
+	}
+
+	/**
+	 * Adds the outcome of delivering a message to the results.
+	 * @param message The message.
+	 * @param throwable The error that delivering it failed with, or null if
+	 *                  it was delivered.
+	 * @param results The results to add the outcome to.
+	 * @param config The outbox config to use.
+	 * @return True if the user's later messages may be delivered.
+	 */
+	private boolean recordOutcome(OutboxMessage message, Throwable throwable, Results results, SystemsConfig.OutboxConfig config) {
+		if (throwable == null) {
+			results.delivered().add(message.getId());
+			return true;
+		}
+		recordFailure(message, throwable, config);
+		results.undelivered().add(message);
+		return message.isFailed();
+	}
+
+	private CompletableFuture<Void> deliver(OutboxMessage message, Results results) {
+		var server = api.getServerById(message.getGuildId()).orElseThrow();
+		var config = Bot.config.get(server).getModeration();
+		return api.getUserById(message.getUserId()).thenCompose(user -> switch (message.getEffect()) {
+			case ADD_MUTE_ROLE -> user.addRole(config.getMuteRole(), message.getValues().get("reason"));
+			case REMOVE_MUTE_ROLE -> user.removeRole(config.getMuteRole());
+			case DIRECT_MESSAGE -> render(message, config, user, results)
+					.thenCompose(rendered -> user.sendMessage(rendered.embed()))
+					.thenApply(msg -> null);
+			case LOG -> render(message, config, user, results)
+					.thenCompose(rendered -> LogChannelPublisher.forGuild(message.getGuildId()).publish(
+							config.getLogChannel(), rendered.embed(), rendered.length(), ModerationEmbeds.Action.valueOf(message.getAction())
+					));
+			case CHANNEL -> {
+				var channel = server.getTextChannelById(message.getChannelId()).orElseThrow();
+				yield render(message, config, user, results)
+						.thenCompose(rendered -> channel.sendMessage(rendered.embed()))
+						.thenApply(msg -> null);
+			}
+		});
+	}
+
+	/**
+	 * Renders the embed for a message. All of an action's messages have the
+	 * same embed, so it's only rendered for the first of them in a drain, and
+	 * shared by the rest.
+	 * @param message The message.
+	 * @param config The moderation config of the message's guild.
+	 * @param user The user that the action was taken against.
+	 * @param results The results of the drain, which hold its rendered embeds.
+	 * @return A future that completes with the embed.
+	 */
+	private CompletableFuture<EmbedTemplate.Rendered> render(OutboxMessage message, ModerationConfig config, User user, Results results) {
+		var key = new RenderKey(message.getGuildId(), message.getUserId(), message.getActorId(), message.getAction(), message.getCreatedAt(), message.getValues());
+		return results.rendered().computeIfAbsent(key, k -> {
+			var action = ModerationEmbeds.Action.valueOf(message.getAction());
+			var timestamp = message.getCreatedAt().toInstant(ZoneOffset.UTC);
+			var embeds = ModerationEmbeds.forGuild(config);
+			return api.getUserById(message.getActorId())
+					.thenApply(actor -> embeds.render(action, user, actor, timestamp, message.getValues()));
+		});
+	}
+
+	private void recordFailure(OutboxMessage message, Throwable throwable, SystemsConfig.OutboxConfig config) {
+		Throwable cause = throwable instanceof CompletionException && throwable.getCause() != null ? throwable.getCause() : throwable;
+		message.setAttempts(message.getAttempts() + 1);
+		String error = String.valueOf(cause);
+		message.setLastError(error.length() <= MAX_ERROR_LENGTH ? error : error.substring(0, MAX_ERROR_LENGTH));
+		if (isPermanent(cause) || message.getAttempts() >= config.getMaxAttempts()) {
+			message.setFailed(true);
+			log.warn("Giving up on outbox message {} ({} for user {} in guild {}) after {} attempts.",
+					message.getId(), message.getEffect(), message.getUserId(), message.getGuildId(), message.getAttempts(), cause);
+			return;
+		}
+		long backoff = Math.min(
+				config.getMaxBackoffMillis(),
+				config.getInitialBackoffMillis() << Math.min(message.getAttempts() - 1, MAX_BACKOFF_SHIFT)
+		);
+		message.setNextAttemptAt(LocalDateTime.now().plus(backoff, ChronoUnit.MILLIS));
+		log.info("Could not deliver outbox message {} ({} for user {} in guild {}), retrying in {} ms: {}",
+				message.getId(), message.getEffect(), message.getUserId(), message.getGuildId(), backoff, error);
+	}
+
+	/**
+	 * Determines if an error means that a message can never be delivered, like
+	 * when the guild, user or channel no longer exists, or the bot isn't
+	 * allowed to message the user. Rate limits, server errors and a full log
+	 * channel backlog are retried.
+	 * @param cause The error.
+	 * @return True if the message shouldn't be retried.
+	 */
+	private static boolean isPermanent(Throwable cause) {
+		if (cause instanceof NoSuchElementException) return true;
+		if (cause instanceof RatelimitException) return false;
+		return cause instanceof DiscordException discordException && discordException.getResponse()
+				.map(response -> response.getCode() >= HTTP_CLIENT_ERROR && response.getCode() < HTTP_SERVER_ERROR
+						&& response.getCode() != HTTP_TOO_MANY_REQUESTS)
+				.orElse(false);
+	}
+
+	private static SystemsConfig.OutboxConfig outboxConfig() {
+		return Bot.config.getSystems().getOutboxConfig();
+	}
+
+	/**
+	 * The outcome of delivering a batch of messages.
+	 * @param delivered The ids of the messages that were delivered.
+	 * @param undelivered The messages that weren't delivered, with their
+	 *                    attempt count and next attempt time updated.
+	 * @param published The outcomes of the log channel messages that were
+	 *                  handed to the publisher, which complete once they've
+	 *                  been added to the other results.
+	 * @param rendered The embeds that have been rendered during the drain.
+	 */
+	private record Results(
+			Queue<Long> delivered,
+			Queue<OutboxMessage> undelivered,
+			Queue<CompletableFuture<Boolean>> published,
+			Map<RenderKey, CompletableFuture<EmbedTemplate.Rendered>> rendered
+	) {}
+
+	/**
+	 * Everything that a message's embed is rendered from, which is the same
+	 * for all of an action's messages.
+	 * @param guildId The id of the guild.
+	 * @param userId The id of the user that the action was taken against.
+	 * @param actorId The id of the user who took the action.
+	 * @param action The name of the action.
+	 * @param createdAt The time at which the action was taken.
+	 * @param values The embed's placeholder values.
+	 */
+	private record RenderKey(long guildId, long userId, long actorId, String action, LocalDateTime createdAt, Map<String, String> values) {}
+}
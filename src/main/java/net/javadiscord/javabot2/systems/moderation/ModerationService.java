@@ -5,37 +5,63 @@ import lombok.extern.slf4j.Slf4j;
 import net.javadiscord.javabot2.Bot;
 import net.javadiscord.javabot2.command.ResponseException;
 import net.javadiscord.javabot2.config.guild.ModerationConfig;
+import net.javadiscord.javabot2.db.BatchWriter;
 import net.javadiscord.javabot2.db.DbHelper;
 import net.javadiscord.javabot2.systems.moderation.dao.MuteRepository;
+import net.javadiscord.javabot2.systems.moderation.dao.OutboxRepository;
 import net.javadiscord.javabot2.systems.moderation.dao.WarnRepository;
+import net.javadiscord.javabot2.systems.moderation.model.GuildUser;
 import net.javadiscord.javabot2.systems.moderation.model.Mute;
+import net.javadiscord.javabot2.systems.moderation.model.OutboxEffect;
+import net.javadiscord.javabot2.systems.moderation.model.OutboxMessage;
 import net.javadiscord.javabot2.systems.moderation.model.Warn;
 import net.javadiscord.javabot2.systems.moderation.model.WarnSeverity;
 import net.javadiscord.javabot2.util.TimeUtils;
 import org.javacord.api.DiscordApi;
 import org.javacord.api.entity.channel.ServerTextChannel;
 import org.javacord.api.entity.message.embed.EmbedBuilder;
-import org.javacord.api.entity.server.ServerUpdater;
 import org.javacord.api.entity.user.User;
 import org.javacord.api.interaction.SlashCommandInteraction;
 
-import java.awt.*;
+import java.sql.Connection;
+import java.sql.SQLException;
 import java.time.Duration;
 import java.time.Instant;
 import java.time.LocalDateTime;
-import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
 
 /**
  * This service provides methods for performing moderation actions, like banning
  * or warning users.
+ * <p>
+ *     The Discord side effects of warns, mutes, unmutes, expired mutes and
+ *     clearing warns, like notifying the user, are written to the
+ *     {@link ModerationOutbox} in the same transaction as the action, and
+ *     delivered once it's committed.
+ * </p>
  */
 @Slf4j
 public class ModerationService {
+	/**
+	 * The maximum length of the reason for a warn or mute, which is the size
+	 * of the column that it's stored in.
+	 */
+	public static final int MAX_REASON_LENGTH = 1024;
+
 	private static final int BAN_DELETE_DAYS = 7;
+	private static final String REASON = "reason";
+	private static final String TOTAL_SEVERITY = "totalSeverity";
 
 	private final DiscordApi api;
 	private final ModerationConfig config;
+	private final ModerationEmbeds embeds;
+	private final long guildId;
 
 	/**
 	 * Constructs the service.
@@ -45,6 +71,8 @@ public class ModerationService {
 	public ModerationService(DiscordApi api, ModerationConfig config) {
 		this.api = api;
 		this.config = config;
+		this.embeds = ModerationEmbeds.forGuild(config);
+		this.guildId = config.getGuild().getId();
 	}
 
 	/**
@@ -70,24 +98,28 @@ public class ModerationService {
 	 * @param warnedBy The user who issued the warning.
 	 * @param channel The channel in which the warning was issued.
 	 * @param quiet If true, don't send a message in the channel.
-	 * @return A future that completes when all warn operations are complete.
+	 * @return A future that completes with the user's new total warn severity
+	 * when all warn operations are complete.
 	 */
-	public CompletableFuture<Void> warn(User user, WarnSeverity severity, String reason, User warnedBy, ServerTextChannel channel, boolean quiet) {
-		return DbHelper.doDbAction(con -> {
-			var repo = new WarnRepository(con);
-			var warn = repo.insert(new Warn(user.getId(), warnedBy.getId(), severity, reason));
-			LocalDateTime cutoff = LocalDateTime.now().minusDays(config.getWarnTimeoutDays());
-			int totalWeight = repo.getTotalSeverityWeight(user.getId(), cutoff);
-			var warnEmbed = buildWarnEmbed(user, severity, reason, warnedBy, warn.getCreatedAt().toInstant(ZoneOffset.UTC), totalWeight);
-			user.openPrivateChannel().thenAcceptAsync(pc -> pc.sendMessage(warnEmbed));
-			config.getLogChannel().sendMessage(warnEmbed);
-			if (!quiet && channel.getId() != config.getLogChannelId()) {
-				channel.sendMessage(warnEmbed);
-			}
-			if (totalWeight > config.getMaxWarnSeverity()) {
-				ban(user, "Too many warnings.", warnedBy, channel, quiet);
-			}
-		});
+	public CompletableFuture<Integer> warn(User user, WarnSeverity severity, String reason, User warnedBy, ServerTextChannel channel, boolean quiet) {
+		var messages = notifications(user, warnedBy, ModerationEmbeds.Action.WARN, Map.of(
+				REASON, reason,
+				"severity", severity.name()
+		), quiet ? null : channel);
+		LocalDateTime cutoff = LocalDateTime.now().minusDays(config.getWarnTimeoutDays());
+		return Writers.WARNS.submit(new WarnRequest(new Warn(guildId, user.getId(), warnedBy.getId(), severity, reason), cutoff, messages))
+				.thenApply(written -> {
+					WarnSeverityTotals.getInstance().recordWarn(written.warn());
+					ModerationOutbox.getInstance().wake();
+					int totalWeight = written.totalSeverity();
+					if (totalWeight > config.getMaxWarnSeverity()) {
+						ban(user, "Too many warnings.", warnedBy, channel, quiet).exceptionally(e -> {
+							log.error("Could not ban user {} for having too many warnings.", user.getDiscriminatedName(), e);
+							return null;
+						});
+					}
+					return totalWeight;
+				});
 	}
 
 	/**
@@ -97,16 +129,21 @@ public class ModerationService {
 	 * @return A future that completes when the warns have been cleared.
 	 */
 	public CompletableFuture<Void> clearWarns(User user, User clearedBy) {
-		return DbHelper.doDaoAction(WarnRepository::new, dao -> {
-			dao.discardAll(user.getId());
-			var embed = buildClearWarnsEmbed(user, clearedBy);
-			user.openPrivateChannel().thenAcceptAsync(pc -> pc.sendMessage(embed));
-			config.getLogChannel().sendMessage(embed);
+		var messages = notifications(user, clearedBy, ModerationEmbeds.Action.CLEAR_WARNS, Map.of(), null);
+		return DbHelper.transaction(con -> {
+			new WarnRepository(con).discardAll(guildId, user.getId());
+			new OutboxRepository(con).insertAll(messages);
+			return null;
+		}).thenRun(() -> {
+			WarnSeverityTotals.getInstance().recordDiscardAll(guildId, user.getId());
+			ModerationOutbox.getInstance().wake();
 		});
 	}
 
 	/**
-	 * Bans a user.
+	 * Bans a user. Once the user is banned, the ban is logged through the
+	 * {@link ModerationOutbox}, whose log channel embeds are sent by the
+	 * {@link LogChannelPublisher} ahead of any waiting warns.
 	 * @param user The user to ban.
 	 * @param reason The reason for banning the user.
 	 * @param bannedBy The user who is responsible for banning this user.
@@ -117,7 +154,13 @@ public class ModerationService {
 	public CompletableFuture<Void> ban(User user, String reason, User bannedBy, ServerTextChannel channel, boolean quiet) {
 		var banEmbed = buildBanEmbed(user, reason, bannedBy);
 		if (channel.getServer().canBanUser(bannedBy, user)) {
+			var logMessage = new OutboxMessage(guildId, user.getId(), bannedBy.getId(), OutboxEffect.LOG, ModerationEmbeds.Action.BAN.name(), null, Map.of(REASON, reason));
 			var future = channel.getServer().banUser(user, BAN_DELETE_DAYS, reason)
+					.thenCompose(unused -> DbHelper.transaction(con -> {
+						new OutboxRepository(con).insertAll(List.of(logMessage));
+						return null;
+					}))
+					.thenRun(() -> ModerationOutbox.getInstance().wake())
 					.thenComposeAsync(unused -> user.openPrivateChannel())
 					.thenComposeAsync(privateChannel -> privateChannel.sendMessage(banEmbed));
 			if (!quiet) {
@@ -139,141 +182,290 @@ public class ModerationService {
 	 * @param duration The duration to be muted for.
 	 * @param channel The channel in which the mute was issued.
 	 * @param quiet If true, don't send a message in the channel.
-	 * @return A future that completes when muting is done.
+	 * @return A future that completes with the mute that now applies to the
+	 * user when muting is done.
 	 */
-	public CompletableFuture<Void> mute(User user, String reason, User mutedBy, Duration duration, ServerTextChannel channel, boolean quiet) {
-		return DbHelper.doDbAction(con -> {
-			con.setAutoCommit(false);
-			var repo = new MuteRepository(con);
-			var embed = buildMuteEmbed(user, reason, duration, mutedBy);
-			// If the user doesn't currently have the mute role, give it to them and issue a new mute.
-			if (!user.getRoles(channel.getServer()).contains(config.getMuteRole())) {
-				// Discard any (erroneous) active mute for this user, if they exist.
-				for (var activeMute : repo.getActiveMutes(user.getId())) {
-					repo.discard(activeMute);
-				}
-				user.addRole(config.getMuteRole(), reason);
-				repo.insert(new Mute(user.getId(), mutedBy.getId(), reason, LocalDateTime.now().plus(duration)));
-			} else {
-				// The user already has the mute role, so we should add a mute to extend the duration of any current mute.
-				var activeMutes = repo.getActiveMutes(user.getId());
-				Mute lastActiveMute = null;
-				for (var activeMute : activeMutes) {
-					if (lastActiveMute == null || activeMute.getEndsAt().isAfter(lastActiveMute.getEndsAt())) {
-						lastActiveMute = activeMute;
-					}
-				}
-				if (lastActiveMute == null) {
-					// If the user is already muted, there should generally always be an active mute, except in edge cases near the ending time of a mute.
-					// If there's no mute, just make a new one.
-					repo.insert(new Mute(user.getId(), mutedBy.getId(), reason, LocalDateTime.now().plus(duration)));
-				} else {
-					// If there is a last active mute, add a new one that extends beyond its end time.
-					repo.insert(new Mute(user.getId(), mutedBy.getId(), reason, lastActiveMute.getEndsAt().plus(duration)));
-					// Discard all other active mutes, since they'll have no effect anymore.
-					activeMutes.remove(lastActiveMute);
-					for (var mute : activeMutes) {
-						repo.discard(mute);
-					}
-				}
-			}
-			con.commit();
-			user.openPrivateChannel().thenAcceptAsync(pc -> pc.sendMessage(embed));
-			config.getLogChannel().sendMessage(embed);
-			if (!quiet && channel.getId() != config.getLogChannelId()) {
-				channel.sendMessage(embed);
-			}
-		});
+	public CompletableFuture<Mute> mute(User user, String reason, User mutedBy, Duration duration, ServerTextChannel channel, boolean quiet) {
+		// The role is added even if the user should already have it, since adding it again does nothing, and an earlier
+		// add may still be waiting in the outbox. Whether the user is already muted is decided from their active mutes.
+		List<OutboxMessage> messages = new ArrayList<>();
+		messages.add(new OutboxMessage(guildId, user.getId(), mutedBy.getId(), OutboxEffect.ADD_MUTE_ROLE, null, null, Map.of(REASON, reason)));
+		messages.addAll(notifications(user, mutedBy, ModerationEmbeds.Action.MUTE, Map.of(
+				REASON, reason,
+				"duration", TimeUtils.formatDuration(duration)
+		), quiet ? null : channel));
+		return Writers.MUTES.submit(new MuteRequest(guildId, user.getId(), mutedBy.getId(), reason, duration, messages))
+				.thenApply(mute -> {
+					MuteRepository.invalidateActiveMutes(guildId, mute.getUserId());
+					MuteExpiryScheduler.getInstance().schedule(guildId, mute.getUserId(), mute.getEndsAt());
+					ModerationOutbox.getInstance().wake();
+					return mute;
+				});
 	}
 
 	/**
 	 * Unmutes the given user.
 	 * @param user The user to unmute.
 	 * @param unmutedBy The user who unmuted the user.
-	 * @return A future that completes when the user is unmuted.
+	 * @return A future that completes when the user's mutes have been
+	 * discarded. The user is unmuted and notified shortly after.
 	 */
 	public CompletableFuture<Void> unmute(User user, User unmutedBy) {
-		return DbHelper.doDbAction(con -> {
-			var repo = new MuteRepository(con);
-			repo.discardAllActive(user.getId());
-			user.removeRole(config.getMuteRole());
-			var embed = buildUnmuteEmbed(user, unmutedBy);
-			config.getLogChannel().sendMessage(embed);
-			user.openPrivateChannel().thenAcceptAsync(pc -> pc.sendMessage(embed));
+		List<OutboxMessage> messages = new ArrayList<>();
+		messages.add(new OutboxMessage(guildId, user.getId(), unmutedBy.getId(), OutboxEffect.REMOVE_MUTE_ROLE, null, null, Map.of()));
+		messages.addAll(notifications(user, unmutedBy, ModerationEmbeds.Action.UNMUTE, Map.of(), null));
+		return DbHelper.transaction(con -> {
+			new MuteRepository(con).discardAllActive(guildId, user.getId());
+			new OutboxRepository(con).insertAll(messages);
+			return null;
+		}).thenRun(() -> {
+			MuteRepository.invalidateActiveMutes(guildId, user.getId());
+			MuteExpiryScheduler.getInstance().cancel(guildId, user.getId());
+			ModerationOutbox.getInstance().wake();
 		});
 	}
 
 	/**
-	 * Unmutes all users whose mutes have expired, and discards those mutes.
+	 * Unmutes all users whose mutes in any guild have all expired, and
+	 * discards those mutes. This is a single pass over every guild: the mutes
+	 * are discarded in one transaction, along with writing the outbox messages
+	 * that remove each user's mute role and notify them and staff, which are
+	 * then delivered by the {@link ModerationOutbox}.
+	 * @param api The Discord API to use.
 	 * @return A future that completes when all expired mutes have been processed.
 	 */
-	public CompletableFuture<Void> unmuteExpired() {
-		return DbHelper.doDbAction(con -> {
-			con.setAutoCommit(false);
-			var repo = new MuteRepository(con);
-			ServerUpdater updater = new ServerUpdater(config.getGuild());
-			for (var mute : repo.getExpiredMutes()) {
-				// Check that for this expired mute, that there are no other active mutes which still apply to the user.
-				if (!repo.hasActiveMutes(mute.getUserId())) {
-					var user = api.getUserById(mute.getUserId()).join();
-					if (user.getRoles(config.getGuild()).contains(config.getMuteRole())) {
-						log.info("Unmuting user {} because their mute has expired.", user.getDiscriminatedName());
-						updater.removeRoleFromUser(user, config.getMuteRole());
-						var embed = buildUnmuteEmbed(user, api.getYourself());
-						user.openPrivateChannel().thenAcceptAsync(pc -> pc.sendMessage(embed));
-						config.getLogChannel().sendMessage(embed);
-					}
-					repo.discard(mute);
+	public static CompletableFuture<Void> unmuteExpired(DiscordApi api) {
+		long botId = api.getYourself().getId();
+		return DbHelper.transaction(con -> {
+			var userIdsByGuild = new MuteRepository(con).discardAllExpired();
+			List<OutboxMessage> messages = new ArrayList<>();
+			userIdsByGuild.forEach((guildId, userIds) -> {
+				for (long userId : userIds) {
+					messages.addAll(expiryMessages(guildId, userId, botId));
 				}
+			});
+			new OutboxRepository(con).insertAll(messages);
+			return userIdsByGuild;
+		}).thenAccept(userIdsByGuild -> {
+			userIdsByGuild.forEach((guildId, userIds) -> {
+				for (long userId : userIds) {
+					MuteRepository.invalidateActiveMutes(guildId, userId);
+					MuteExpiryScheduler.getInstance().cancel(guildId, userId);
+				}
+			});
+			ModerationOutbox.getInstance().wake();
+		});
+	}
+
+	/**
+	 * Assigns the warns and mutes whose guild isn't known, because they were
+	 * issued before they were kept separately for each guild, to the guild
+	 * that the bot is in. This is only done if the bot is in exactly one
+	 * guild, since otherwise there's no way to tell which guild they belong
+	 * to, and it should be done when the bot starts, before any warns or
+	 * mutes are read.
+	 * @param api The Discord API to use.
+	 * @return A future that completes once the warns and mutes have been
+	 * assigned.
+	 */
+	public static CompletableFuture<Void> assignUnknownGuild(DiscordApi api) {
+		var servers = api.getServers();
+		if (servers.size() != 1) {
+			log.info("Not assigning warns and mutes without a known guild, since the bot is in {} guilds.", servers.size());
+			return CompletableFuture.completedFuture(null);
+		}
+		long guildId = servers.iterator().next().getId();
+		return DbHelper.transaction(con -> {
+			int warns = new WarnRepository(con).moveToGuild(GuildUser.UNKNOWN_GUILD_ID, guildId);
+			int mutes = new MuteRepository(con).moveToGuild(GuildUser.UNKNOWN_GUILD_ID, guildId);
+			if (warns > 0 || mutes > 0) {
+				log.info("Assigned {} warns and {} mutes without a known guild to guild {}.", warns, mutes, guildId);
 			}
-			updater.update();
-			con.commit();
+			return null;
 		});
 	}
 
-	private EmbedBuilder buildWarnEmbed(User user, WarnSeverity severity, String reason, User warnedBy, Instant timestamp, int totalSeverity) {
-		return new EmbedBuilder()
-				.setColor(Color.ORANGE)
-				.setTitle(String.format("%s | Warn (%d/%d)", user.getDiscriminatedName(), totalSeverity, config.getMaxWarnSeverity()))
-				.addField("Reason", reason)
-				.setTimestamp(timestamp)
-				.addField("Severity", severity.name())
-				.setFooter(warnedBy.getDiscriminatedName(), warnedBy.getAvatar());
+	/**
+	 * Builds the outbox messages that unmute a user whose mutes in a guild
+	 * have all expired, and notify them and staff. These go through the
+	 * outbox like the mute itself, so that they're always delivered after it,
+	 * even if giving the user the mute role is still being retried. Mutes
+	 * whose guild isn't known can't be lifted anywhere, so there are no
+	 * messages for them.
+	 * @param guildId The id of the guild.
+	 * @param userId The id of the user.
+	 * @param botId The id of the bot, which is the actor of the unmute.
+	 * @return The messages.
+	 */
+	static List<OutboxMessage> expiryMessages(long guildId, long userId, long botId) {
+		if (guildId == GuildUser.UNKNOWN_GUILD_ID) {
+			log.warn("Not unmuting user {}, since the guild of their expired mute isn't known.", userId);
+			return List.of();
+		}
+		String action = ModerationEmbeds.Action.UNMUTE.name();
+		return List.of(
+				new OutboxMessage(guildId, userId, botId, OutboxEffect.REMOVE_MUTE_ROLE, null, null, Map.of()),
+				new OutboxMessage(guildId, userId, botId, OutboxEffect.DIRECT_MESSAGE, action, null, Map.of()),
+				new OutboxMessage(guildId, userId, botId, OutboxEffect.LOG, action, null, Map.of())
+		);
 	}
 
-	private EmbedBuilder buildClearWarnsEmbed(User user, User clearedBy) {
-		return new EmbedBuilder()
-				.setColor(Color.ORANGE)
-				.setTitle(String.format("%s | Warns Cleared", user.getDiscriminatedName()))
-				.setDescription("All warns have been cleared from " + user.getDiscriminatedName() + "'s record.")
-				.setTimestampToNow()
-				.setFooter(clearedBy.getDiscriminatedName(), clearedBy.getAvatar());
+	/**
+	 * Builds the outbox messages that notify a user and staff of a moderation
+	 * action, by sending its embed to the user, the log channel, and the
+	 * channel in which it was taken, if that's not the log channel.
+	 * @param user The user that the action was taken against.
+	 * @param actor The user who took the action.
+	 * @param action The action.
+	 * @param values Any action-specific placeholder values for the embed.
+	 * @param channel The channel in which the action was taken, or null if
+	 *                no message should be sent there.
+	 * @return The messages.
+	 */
+	private List<OutboxMessage> notifications(User user, User actor, ModerationEmbeds.Action action, Map<String, String> values, ServerTextChannel channel) {
+		List<OutboxMessage> messages = new ArrayList<>();
+		messages.add(new OutboxMessage(guildId, user.getId(), actor.getId(), OutboxEffect.DIRECT_MESSAGE, action.name(), null, values));
+		messages.add(new OutboxMessage(guildId, user.getId(), actor.getId(), OutboxEffect.LOG, action.name(), null, values));
+		if (channel != null && channel.getId() != config.getLogChannelId()) {
+			messages.add(new OutboxMessage(guildId, user.getId(), actor.getId(), OutboxEffect.CHANNEL, action.name(), channel.getId(), values));
+		}
+		return messages;
 	}
 
-	private EmbedBuilder buildBanEmbed(User user, String reason, User bannedBy) {
-		return new EmbedBuilder()
-				.setColor(Color.RED)
-				.setTitle(String.format("%s | Ban", user.getDiscriminatedName()))
-				.addField("Reason", reason)
-				.setTimestampToNow()
-				.setFooter(bannedBy.getDiscriminatedName(), bannedBy.getAvatar());
+	/**
+	 * Writes a batch of warns, along with their outbox messages. The total
+	 * severity of each user's warns, including those earlier in the same
+	 * batch, is added to the values of each warn's messages, so that it's
+	 * rendered as it was when the warn was issued.
+	 * @param con The connection to use.
+	 * @param requests The warns to write.
+	 * @return The warns that were written, in the same order.
+	 * @throws SQLException If an error occurs.
+	 */
+	private static List<WrittenWarn> writeWarns(Connection con, List<WarnRequest> requests) throws SQLException {
+		var warns = new WarnRepository(con).insertAll(requests.stream().map(WarnRequest::warn).toList());
+		Set<Long> warnIds = warns.stream().map(Warn::getId).collect(Collectors.toSet());
+		Map<GuildUser, Integer> totals = new HashMap<>();
+		List<WrittenWarn> written = new ArrayList<>(warns.size());
+		for (int i = 0; i < warns.size(); i++) {
+			var warn = warns.get(i);
+			var request = requests.get(i);
+			var key = new GuildUser(warn.getGuildId(), warn.getUserId());
+			Integer previousTotal = totals.get(key);
+			if (previousTotal == null) {
+				previousTotal = WarnSeverityTotals.getInstance().getCommittedTotal(con, key.guildId(), key.userId(), request.cutoff(), warnIds);
+			}
+			int total = previousTotal + warn.getSeverityWeight();
+			totals.put(key, total);
+			for (var message : request.messages()) {
+				Map<String, String> values = new HashMap<>(message.getValues());
+				values.put(TOTAL_SEVERITY, String.valueOf(total));
+				message.setValues(values);
+			}
+			written.add(new WrittenWarn(warn, total));
+		}
+		new OutboxRepository(con).insertAll(requests.stream().flatMap(request -> request.messages().stream()).toList());
+		return written;
+	}
+
+	/**
+	 * Writes a batch of mutes, along with their outbox messages. Each mute is
+	 * prepared in order, so that if a user is muted more than once in the
+	 * same batch, the later mutes extend the earlier ones.
+	 * @param con The connection to use.
+	 * @param requests The mutes to write.
+	 * @return The mutes that were written, in the same order.
+	 * @throws SQLException If an error occurs.
+	 */
+	private static List<Mute> writeMutes(Connection con, List<MuteRequest> requests) throws SQLException {
+		var repo = new MuteRepository(con);
+		Map<GuildUser, Mute> pendingMutes = new HashMap<>();
+		List<Mute> mutes = new ArrayList<>(requests.size());
+		for (var request : requests) {
+			var key = new GuildUser(request.guildId(), request.userId());
+			var mute = prepareMute(repo, request, pendingMutes.get(key));
+			pendingMutes.put(key, mute);
+			mutes.add(mute);
+		}
+		repo.insertAll(mutes);
+		new OutboxRepository(con).insertAll(requests.stream().flatMap(request -> request.messages().stream()).toList());
+		return mutes;
 	}
 
-	private EmbedBuilder buildMuteEmbed(User user, String reason, Duration duration, User mutedBy) {
-		return new EmbedBuilder()
-				.setColor(Color.DARK_GRAY)
-				.setTitle(String.format("%s | Mute", user.getDiscriminatedName()))
-				.addField("Reason", reason)
-				.addField("Duration", TimeUtils.formatDuration(duration))
-				.setTimestampToNow()
-				.setFooter(mutedBy.getDiscriminatedName(), mutedBy.getAvatar());
+	/**
+	 * Prepares a new mute for a user, and discards any of the user's active
+	 * mutes that it makes redundant. If the user is already muted, the new
+	 * mute starts when their latest active mute ends.
+	 * @param repo The repository to use.
+	 * @param request The mute request.
+	 * @param pendingMute A mute for the same user in the same guild that's
+	 *                    earlier in the same batch, or null if there is none.
+	 * @return The mute to insert.
+	 * @throws SQLException If an error occurs.
+	 */
+	private static Mute prepareMute(MuteRepository repo, MuteRequest request, Mute pendingMute) throws SQLException {
+		var activeMutes = repo.getActiveMutes(request.guildId(), request.userId());
+		Mute lastActiveMute = pendingMute;
+		for (var activeMute : activeMutes) {
+			if (lastActiveMute == null || activeMute.getEndsAt().isAfter(lastActiveMute.getEndsAt())) {
+				lastActiveMute = activeMute;
+			}
+		}
+		LocalDateTime start = lastActiveMute == null ? LocalDateTime.now() : lastActiveMute.getEndsAt();
+		// Discard all other active mutes, since they'll have no effect anymore.
+		for (var activeMute : activeMutes) {
+			if (activeMute != lastActiveMute) repo.discard(activeMute);
+		}
+		return new Mute(request.guildId(), request.userId(), request.mutedBy(), request.reason(), start.plus(request.duration()));
 	}
 
-	private EmbedBuilder buildUnmuteEmbed(User user, User unmutedBy) {
-		return new EmbedBuilder()
-				.setColor(Color.DARK_GRAY)
-				.setTitle(String.format("%s | Unmute", user.getDiscriminatedName()))
-				.setTimestampToNow()
-				.setFooter(unmutedBy.getDiscriminatedName(), unmutedBy.getAvatar());
+	private EmbedBuilder buildBanEmbed(User user, String reason, User bannedBy) {
+		return embeds.render(ModerationEmbeds.Action.BAN, user, bannedBy, Instant.now(), Map.of(REASON, reason)).embed();
+	}
+
+	/**
+	 * A request to mute a user, which is written in a batch.
+	 * @param guildId The id of the guild to mute the user in.
+	 * @param userId The id of the user to mute.
+	 * @param mutedBy The id of the user who is responsible for the mute.
+	 * @param reason The reason for the mute.
+	 * @param duration The duration of the mute.
+	 * @param messages The outbox messages to write along with the mute.
+	 */
+	private record MuteRequest(long guildId, long userId, long mutedBy, String reason, Duration duration, List<OutboxMessage> messages) {}
+
+	/**
+	 * A request to warn a user, which is written in a batch.
+	 * @param warn The warn to write.
+	 * @param cutoff The time after which the user's warns count towards their
+	 *               total severity.
+	 * @param messages The outbox messages to write along with the warn.
+	 */
+	private record WarnRequest(Warn warn, LocalDateTime cutoff, List<OutboxMessage> messages) {}
+
+	/**
+	 * A warn that has been written.
+	 * @param warn The warn, with its id.
+	 * @param totalSeverity The user's total warn severity, including this warn.
+	 */
+	private record WrittenWarn(Warn warn, int totalSeverity) {}
+
+	/**
+	 * Holds the batch writers for warns and mutes, which are shared by all
+	 * instances of the service, and created when they're first used.
+	 */
+	private static final class Writers {
+		static final BatchWriter<WarnRequest, WrittenWarn> WARNS = new BatchWriter<>(
+				"warn",
+				Bot.config.getSystems().getBatchWriteConfig(),
+				ModerationService::writeWarns
+		);
+		static final BatchWriter<MuteRequest, Mute> MUTES = new BatchWriter<>(
+				"mute",
+				Bot.config.getSystems().getBatchWriteConfig(),
+				ModerationService::writeMutes
+		);
+
+		private Writers() {}
 	}
 }
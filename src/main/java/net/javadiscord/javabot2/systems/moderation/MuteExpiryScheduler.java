@@ -0,0 +1,218 @@
+package net.javadiscord.javabot2.systems.moderation;
+
+import lombok.extern.slf4j.Slf4j;
+import net.javadiscord.javabot2.Bot;
+import net.javadiscord.javabot2.db.DbHelper;
+import net.javadiscord.javabot2.systems.moderation.dao.MuteRepository;
+import net.javadiscord.javabot2.systems.moderation.dao.OutboxRepository;
+import net.javadiscord.javabot2.systems.moderation.model.GuildUser;
+import net.javadiscord.javabot2.systems.moderation.model.Mute;
+import net.javadiscord.javabot2.util.AsyncUtils;
+import org.javacord.api.DiscordApi;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Unmutes users at the exact time that their last mute in a guild ends. Each
+ * muted user has a single deadline in each guild, which is scheduled on the {@link Bot#timerPool}, and
+ * which is moved whenever the user's mute is extended or lifted.
+ * <p>
+ *     Deadlines are only kept in memory, so when the bot starts, they're
+ *     rehydrated from all mutes that haven't been discarded yet. The
+ *     {@link net.javadiscord.javabot2.tasks.jobs.UnmuteExpiredJob} still runs
+ *     occasionally, as a safety net for any deadline that was missed.
+ * </p>
+ * <p>
+ *     Expired mutes are discarded in the same transaction as writing the
+ *     outbox messages that remove the user's mute role and notify them, which
+ *     are then delivered by the {@link ModerationOutbox}. When many deadlines
+ *     pass at once, only a bounded number of users are processed at a time,
+ *     and a user whose mutes couldn't be discarded is retried a few times
+ *     with backoff.
+ * </p>
+ */
+@Slf4j
+public final class MuteExpiryScheduler {
+	private static final MuteExpiryScheduler INSTANCE = new MuteExpiryScheduler();
+	private static final int MAX_ATTEMPTS = 5;
+
+	private final Map<GuildUser, Deadline> deadlines = new ConcurrentHashMap<>();
+	private final Queue<Expiry> expiring = new ConcurrentLinkedQueue<>();
+	private final AtomicBoolean draining = new AtomicBoolean(false);
+	private volatile DiscordApi api;
+
+	private MuteExpiryScheduler() {}
+
+	/**
+	 * Gets the shared instance.
+	 * @return The instance.
+	 */
+	public static MuteExpiryScheduler getInstance() {
+		return INSTANCE;
+	}
+
+	/**
+	 * Starts the scheduler, by scheduling a deadline for every user whose
+	 * mutes in a guild haven't all been discarded yet. Any that have already ended are
+	 * processed right away. This should be called once the bot has logged in,
+	 * and before it handles any commands.
+	 * @param api The Discord API, which is used to get the bot's own id.
+	 */
+	public void start(DiscordApi api) {
+		this.api = api;
+		DbHelper.queryReadOnly(con -> new MuteRepository(con).getLatestMuteEnds())
+				.thenAccept(ends -> {
+					ends.forEach((key, endsAt) -> schedule(key.guildId(), key.userId(), endsAt));
+					log.info("Scheduled the expiry of {} mutes.", ends.size());
+				})
+				.exceptionally(e -> {
+					log.error("Could not schedule the expiry of existing mutes.", e);
+					return null;
+				});
+	}
+
+	/**
+	 * Schedules a user to be unmuted in a guild once their mute ends. If the
+	 * user already has a later deadline in the guild, it's kept instead.
+	 * @param guildId The id of the guild.
+	 * @param userId The id of the user.
+	 * @param endsAt The time at which the user's mute ends.
+	 */
+	public void schedule(long guildId, long userId, LocalDateTime endsAt) {
+		var key = new GuildUser(guildId, userId);
+		deadlines.compute(key, (k, existing) -> {
+			if (existing != null) {
+				if (!endsAt.isAfter(existing.endsAt())) return existing;
+				existing.future().cancel(false);
+			}
+			long delayMillis = Math.max(0, Duration.between(LocalDateTime.now(), endsAt).toMillis());
+			return new Deadline(endsAt, Bot.timerPool.schedule(() -> expire(key, endsAt), delayMillis, TimeUnit.MILLISECONDS));
+		});
+	}
+
+	/**
+	 * Cancels a user's deadline in a guild, because they were unmuted early.
+	 * @param guildId The id of the guild.
+	 * @param userId The id of the user.
+	 */
+	public void cancel(long guildId, long userId) {
+		var deadline = deadlines.remove(new GuildUser(guildId, userId));
+		if (deadline != null) deadline.future().cancel(false);
+	}
+
+	private void expire(GuildUser key, LocalDateTime endsAt) {
+		deadlines.computeIfPresent(key, (k, deadline) -> deadline.endsAt().equals(endsAt) ? null : deadline);
+		expiring.add(new Expiry(key, 1));
+		drain();
+	}
+
+	/**
+	 * Unmutes all users whose deadlines have passed, with a bounded number of
+	 * users being unmuted at once. Deadlines that pass while this is running
+	 * are handled once it's done.
+	 */
+	private void drain() {
+		if (!draining.compareAndSet(false, true)) return;
+		List<Expiry> batch = new ArrayList<>();
+		for (var expiry = expiring.poll(); expiry != null; expiry = expiring.poll()) {
+			batch.add(expiry);
+		}
+		int concurrency = Bot.config.getSystems().getMuteExpiryConcurrency();
+		AsyncUtils.forEachBounded(batch, concurrency, this::unmute).whenComplete((unused, throwable) -> {
+			draining.set(false);
+			if (!expiring.isEmpty()) drain();
+		});
+	}
+
+	private CompletableFuture<Void> unmute(Expiry expiry) {
+		var key = expiry.key();
+		long botId = api.getYourself().getId();
+		return DbHelper.transaction(con -> discardIfExpired(con, key, botId))
+				.thenAccept(laterEnd -> {
+					MuteRepository.invalidateActiveMutes(key.guildId(), key.userId());
+					if (laterEnd.isPresent()) {
+						// The mute was extended by a write that this deadline didn't see.
+						schedule(key.guildId(), key.userId(), laterEnd.get());
+					} else {
+						ModerationOutbox.getInstance().wake();
+					}
+				})
+				.exceptionally(e -> {
+					retry(expiry, e);
+					return null;
+				});
+	}
+
+	/**
+	 * Tries to unmute a user again after a delay that doubles with each
+	 * attempt, unless they've already been tried too many times.
+	 * @param expiry The expiry that failed.
+	 * @param e The error that it failed with.
+	 */
+	private void retry(Expiry expiry, Throwable e) {
+		var key = expiry.key();
+		if (expiry.attempt() >= MAX_ATTEMPTS) {
+			log.error("Giving up on unmuting user {} in guild {} after {} attempts.", key.userId(), key.guildId(), expiry.attempt(), e);
+			return;
+		}
+		long delayMillis = Bot.config.getSystems().getMuteExpiryRetryMillis() << (expiry.attempt() - 1);
+		log.warn("Could not unmute user {} in guild {} after their mute expired, retrying in {} ms.", key.userId(), key.guildId(), delayMillis, e);
+		Bot.timerPool.schedule(() -> {
+			expiring.add(new Expiry(key, expiry.attempt() + 1));
+			drain();
+		}, delayMillis, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Discards a user's mutes in a guild that have ended, unless they still
+	 * have one that hasn't. If any were discarded, the outbox messages that
+	 * unmute the user are written in the same transaction, so that they're
+	 * delivered after any earlier messages for the user, like giving them the
+	 * mute role.
+	 * @param con The connection to use.
+	 * @param key The guild and user.
+	 * @param botId The id of the bot, which is the actor of the unmute.
+	 * @return The ending time of the user's latest active mute, if they still
+	 * have one, in which case nothing was discarded.
+	 * @throws SQLException If an error occurs.
+	 */
+	private static Optional<LocalDateTime> discardIfExpired(Connection con, GuildUser key, long botId) throws SQLException {
+		var repo = new MuteRepository(con);
+		var latestEnd = repo.getActiveMutes(key.guildId(), key.userId()).stream()
+				.map(Mute::getEndsAt)
+				.max(LocalDateTime::compareTo);
+		if (latestEnd.isEmpty() && repo.discardExpired(key.guildId(), key.userId()) > 0) {
+			new OutboxRepository(con).insertAll(ModerationService.expiryMessages(key.guildId(), key.userId(), botId));
+		}
+		return latestEnd;
+	}
+
+	/**
+	 * A scheduled unmute.
+	 * @param endsAt The time at which the user's mute ends.
+	 * @param future The scheduled task that unmutes the user.
+	 */
+	private record Deadline(LocalDateTime endsAt, ScheduledFuture<?> future) {}
+
+	/**
+	 * A user whose mute has ended, and who is waiting to be unmuted.
+	 * @param key The guild and user.
+	 * @param attempt The number of the attempt to unmute the user, starting
+	 *                at 1.
+	 */
+	private record Expiry(GuildUser key, int attempt) {}
+}
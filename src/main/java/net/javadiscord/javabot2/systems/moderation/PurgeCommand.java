@@ -1,44 +1,80 @@
 package net.javadiscord.javabot2.systems.moderation;
 
 import lombok.extern.slf4j.Slf4j;
-import net.javadiscord.javabot2.Bot;
+import net.javadiscord.javabot2.command.CommandOptions;
 import net.javadiscord.javabot2.command.ResponseException;
 import net.javadiscord.javabot2.command.Responses;
 import net.javadiscord.javabot2.command.SlashCommandHandler;
+import org.javacord.api.entity.channel.TextChannel;
 import org.javacord.api.entity.message.Message;
 import org.javacord.api.entity.user.User;
 import org.javacord.api.interaction.SlashCommandInteraction;
 import org.javacord.api.interaction.callback.InteractionImmediateResponseBuilder;
 
+import java.util.concurrent.CompletableFuture;
+
 /**
  * This command allows staff to purge many messages from a text channel.
  */
 @Slf4j
 public class PurgeCommand implements SlashCommandHandler {
+	/**
+	 * The maximum number of messages that Discord returns in a single request.
+	 */
+	private static final int PAGE_SIZE = 100;
+
 	@Override
-	public InteractionImmediateResponseBuilder handle(SlashCommandInteraction interaction) throws ResponseException {
-		var until = interaction.getOptionStringValueByName("until")
-				.orElseThrow(ResponseException.warning("Missing required parameter."));
-		var userOption = interaction.getOptionUserValueByName("user");
+	public InteractionImmediateResponseBuilder handle(SlashCommandInteraction interaction, CommandOptions options) throws ResponseException {
+		var until = options.getString("until");
+		var userOption = options.getOptionalUser("user");
 		var channel = interaction.getChannel()
 				.orElseThrow(ResponseException.warning("This command can only be used in text channels."));
-		channel.getMessageById(until).thenAcceptAsync(message -> Bot.asyncPool.submit(() -> purge(message, userOption.orElse(null))));
+		channel.getMessageById(until)
+				.thenCompose(message -> purge(message, userOption.orElse(null)))
+				.exceptionally(e -> {
+					log.error("Could not purge messages.", e);
+					return null;
+				});
 		return Responses.info(interaction, "Purge Started", "Messages will be deleted!");
 	}
 
 	/**
-	 * Purges messages from a channel.
+	 * Purges messages from a channel. Messages are deleted one after another,
+	 * with each request only being sent once the previous one has completed,
+	 * so that no thread is blocked while waiting for Discord.
 	 * @param until The message after which all should be removed.
 	 * @param user The user to remove messages for. This may be null.
+	 * @return A future that completes once all messages have been deleted.
 	 */
-	private void purge(Message until, User user) {
+	private CompletableFuture<Void> purge(Message until, User user) {
 		log.info("Purging all messages in {} until {}.", until.getServerTextChannel().orElseThrow().getName(), until.getId());
-		until.getMessagesAfterAsStream()
-				.filter(message -> user == null || message.getAuthor().getId() == user.getId())
-				.forEach(message -> message.delete().join());
-		if (user == null || until.getAuthor().getId() == user.getId()) {
-			until.delete().join();
-		}
-		log.info("Purge completed.");
+		return purgeAfter(until.getChannel(), until.getId(), user)
+				.thenCompose(unused -> isPurged(until, user) ? until.delete() : CompletableFuture.completedFuture(null))
+				.thenRun(() -> log.info("Purge completed."));
+	}
+
+	/**
+	 * Deletes the messages after a given message, one page at a time.
+	 * @param channel The channel to purge.
+	 * @param afterId The id of the message after which to delete messages.
+	 * @param user The user to remove messages for. This may be null.
+	 * @return A future that completes once all messages have been deleted.
+	 */
+	private CompletableFuture<Void> purgeAfter(TextChannel channel, long afterId, User user) {
+		return channel.getMessagesAfter(PAGE_SIZE, afterId).thenCompose(page -> {
+			if (page.isEmpty()) return CompletableFuture.completedFuture(null);
+			CompletableFuture<Void> deleted = CompletableFuture.completedFuture(null);
+			for (var message : page) {
+				if (isPurged(message, user)) {
+					deleted = deleted.thenCompose(unused -> message.delete());
+				}
+			}
+			long newestId = page.getNewestMessage().orElseThrow().getId();
+			return deleted.thenCompose(unused -> purgeAfter(channel, newestId, user));
+		});
+	}
+
+	private static boolean isPurged(Message message, User user) {
+		return user == null || message.getAuthor().getId() == user.getId();
 	}
 }
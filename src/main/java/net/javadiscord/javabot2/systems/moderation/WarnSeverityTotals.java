@@ -0,0 +1,284 @@
+package net.javadiscord.javabot2.systems.moderation;
+
+import net.javadiscord.javabot2.Bot;
+import net.javadiscord.javabot2.config.SystemsConfig;
+import net.javadiscord.javabot2.db.DbHelper;
+import net.javadiscord.javabot2.metrics.CacheStats;
+import net.javadiscord.javabot2.metrics.Metrics;
+import net.javadiscord.javabot2.systems.moderation.dao.WarnRepository;
+import net.javadiscord.javabot2.systems.moderation.model.GuildUser;
+import net.javadiscord.javabot2.systems.moderation.model.Warn;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Maintains each user's total warn severity weight in each guild in memory,
+ * so that checking a user's total doesn't need to sum their warns in the
+ * database. A user's total is loaded from the database the first time it's needed, and
+ * is then kept up to date as warns are issued and cleared.
+ * <p>
+ *     Each user's warns are summed into time buckets, and whole buckets are
+ *     expired lazily once they fall before the cutoff of a lookup, so that a
+ *     lookup only ever touches the buckets that have expired since the last
+ *     one. Because of this, a warn may count towards a user's total for up to
+ *     one bucket longer than the configured warn timeout.
+ * </p>
+ * <p>
+ *     Users are spread over a number of stripes, each with its own lock and
+ *     its own bounded, least-recently-used map of totals. The cache's hits,
+ *     misses and evictions are published as the {@code warn-totals} cache.
+ * </p>
+ */
+public final class WarnSeverityTotals {
+	private final Stripe[] stripes;
+	private final long bucketSeconds;
+	private final CacheStats stats = Metrics.cache("warn-totals");
+
+	WarnSeverityTotals(SystemsConfig.WarnTotalsConfig config) {
+		this.stripes = new Stripe[Math.max(1, config.getStripes())];
+		for (int i = 0; i < stripes.length; i++) {
+			stripes[i] = new Stripe(Math.max(1, config.getMaxUsersPerStripe()), stats);
+		}
+		this.bucketSeconds = TimeUnit.MINUTES.toSeconds(Math.max(1, config.getBucketMinutes()));
+	}
+
+	/**
+	 * Gets the shared instance, which is created when it's first used.
+	 * @return The instance.
+	 */
+	public static WarnSeverityTotals getInstance() {
+		return Holder.INSTANCE;
+	}
+
+	/**
+	 * Gets the total severity weight of the user's warns in a guild which were
+	 * created after the given cutoff, and haven't been discarded. If the
+	 * user's total is cached, the returned future is already complete.
+	 * @param guildId The id of the guild.
+	 * @param userId The id of the user.
+	 * @param cutoff The time after which warns are counted.
+	 * @return A future that completes with the user's total.
+	 */
+	public CompletableFuture<Integer> getTotal(long guildId, long userId, LocalDateTime cutoff) {
+		long cutoffBucket = bucketOf(cutoff);
+		var key = new GuildUser(guildId, userId);
+		var cached = getCached(key, cutoffBucket);
+		if (cached.total() != null) return CompletableFuture.completedFuture(cached.total());
+		return DbHelper.queryReadOnly(con -> new WarnRepository(con).findActiveSince(guildId, userId, startOf(cutoffBucket)))
+				.thenApply(warns -> load(key, cutoffBucket, cached.version(), warns));
+	}
+
+	/**
+	 * Gets a user's total in the same way as {@link #getTotal}, but from
+	 * within a transaction that's writing new warns. If the total isn't
+	 * cached, it's loaded with the transaction's connection, leaving out the
+	 * new warns, since they aren't committed yet.
+	 * @param con The connection of the transaction.
+	 * @param guildId The id of the guild.
+	 * @param userId The id of the user.
+	 * @param cutoff The time after which warns are counted.
+	 * @param uncommittedWarnIds The ids of the warns that the transaction has
+	 *                           written.
+	 * @return The user's total, without any of the uncommitted warns.
+	 * @throws SQLException If an error occurs.
+	 */
+	public int getCommittedTotal(Connection con, long guildId, long userId, LocalDateTime cutoff, Set<Long> uncommittedWarnIds) throws SQLException {
+		long cutoffBucket = bucketOf(cutoff);
+		var key = new GuildUser(guildId, userId);
+		var cached = getCached(key, cutoffBucket);
+		if (cached.total() != null) return cached.total();
+		var warns = new WarnRepository(con).findActiveSince(guildId, userId, startOf(cutoffBucket)).stream()
+				.filter(warn -> !uncommittedWarnIds.contains(warn.getId()))
+				.toList();
+		return load(key, cutoffBucket, cached.version(), warns);
+	}
+
+	/**
+	 * Gets a user's total from the cache, if it has all buckets since the
+	 * cutoff.
+	 * @param key The guild and user.
+	 * @param cutoffBucket The bucket of the cutoff.
+	 * @return The cached total, or the stripe's version if it isn't cached.
+	 */
+	private Cached getCached(GuildUser key, long cutoffBucket) {
+		var stripe = stripeFor(key);
+		synchronized (stripe) {
+			var total = stripe.totals.get(key);
+			if (total != null && total.fromBucket <= cutoffBucket) {
+				stats.recordHit();
+				return new Cached(total.expireBefore(cutoffBucket), stripe.version);
+			}
+			stats.recordMiss();
+			return new Cached(null, stripe.version);
+		}
+	}
+
+	/**
+	 * Sums a user's warns that were loaded from the database, and caches the
+	 * total.
+	 * @param key The guild and user.
+	 * @param cutoffBucket The bucket of the cutoff that the warns were loaded for.
+	 * @param version The stripe's version from before the warns were loaded.
+	 * @param warns The warns.
+	 * @return The total.
+	 */
+	private int load(GuildUser key, long cutoffBucket, long version, List<Warn> warns) {
+		var total = new UserTotal(cutoffBucket);
+		for (var warn : warns) {
+			total.add(bucketOf(warn.getCreatedAt()), warn.getId(), warn.getSeverityWeight());
+		}
+		var stripe = stripeFor(key);
+		synchronized (stripe) {
+			// If the stripe was updated while loading, the loaded warns may
+			// already be out of date, so they're only used for this lookup.
+			if (stripe.version == version) {
+				stripe.totals.put(key, total);
+			}
+		}
+		return total.sum;
+	}
+
+	/**
+	 * Records a warn that has been committed to the database. If the user's
+	 * total isn't cached, this does nothing, since the warn will be included
+	 * when the total is next loaded.
+	 * @param warn The warn.
+	 */
+	public void recordWarn(Warn warn) {
+		var key = new GuildUser(warn.getGuildId(), warn.getUserId());
+		var stripe = stripeFor(key);
+		synchronized (stripe) {
+			stripe.version++;
+			var total = stripe.totals.get(key);
+			if (total != null) {
+				total.add(bucketOf(warn.getCreatedAt()), warn.getId(), warn.getSeverityWeight());
+			}
+		}
+	}
+
+	/**
+	 * Records that all of a user's warns in a guild have been discarded.
+	 * @param guildId The id of the guild.
+	 * @param userId The id of the user.
+	 */
+	public void recordDiscardAll(long guildId, long userId) {
+		var key = new GuildUser(guildId, userId);
+		var stripe = stripeFor(key);
+		synchronized (stripe) {
+			stripe.version++;
+			stripe.totals.remove(key);
+		}
+	}
+
+	private Stripe stripeFor(GuildUser key) {
+		int hash = key.hashCode();
+		return stripes[Math.floorMod(hash ^ (hash >>> 16), stripes.length)];
+	}
+
+	private long bucketOf(LocalDateTime time) {
+		return Math.floorDiv(time.toEpochSecond(ZoneOffset.UTC), bucketSeconds);
+	}
+
+	private LocalDateTime startOf(long bucket) {
+		return LocalDateTime.ofEpochSecond(bucket * bucketSeconds, 0, ZoneOffset.UTC);
+	}
+
+	/**
+	 * The result of looking up a user's total in the cache.
+	 * @param total The total, or null if it isn't cached.
+	 * @param version The version of the user's stripe at the time of the lookup.
+	 */
+	private record Cached(Integer total, long version) {}
+
+	/**
+	 * A group of users' totals which share a lock.
+	 */
+	private static final class Stripe {
+		private final Map<GuildUser, UserTotal> totals;
+
+		/**
+		 * Incremented whenever any total in this stripe is changed, so that a
+		 * load which raced with a change isn't cached.
+		 */
+		private long version;
+
+		private Stripe(int maxUsers, CacheStats stats) {
+			this.totals = new LinkedHashMap<>(16, 0.75f, true) {
+				@Override
+				protected boolean removeEldestEntry(Map.Entry<GuildUser, UserTotal> eldest) {
+					if (size() > maxUsers) {
+						stats.recordEviction();
+						return true;
+					}
+					return false;
+				}
+			};
+		}
+	}
+
+	/**
+	 * A single user's warns, summed into time buckets.
+	 */
+	private static final class UserTotal {
+		private final NavigableMap<Long, Bucket> buckets = new TreeMap<>();
+
+		/**
+		 * The earliest bucket that this total includes all warns for.
+		 */
+		private long fromBucket;
+		private int sum;
+
+		private UserTotal(long fromBucket) {
+			this.fromBucket = fromBucket;
+		}
+
+		private void add(long bucketIndex, long warnId, int weight) {
+			if (bucketIndex < fromBucket) return;
+			var bucket = buckets.computeIfAbsent(bucketIndex, i -> new Bucket());
+			// A warn may be recorded after it was already loaded from the database.
+			if (bucket.warnIds.add(warnId)) {
+				bucket.weight += weight;
+				sum += weight;
+			}
+		}
+
+		private int expireBefore(long cutoffBucket) {
+			var expired = buckets.headMap(cutoffBucket, false);
+			for (var bucket : expired.values()) {
+				sum -= bucket.weight;
+			}
+			expired.clear();
+			fromBucket = Math.max(fromBucket, cutoffBucket);
+			return sum;
+		}
+	}
+
+	/**
+	 * The warns that were created within a single bucket of time.
+	 */
+	private static final class Bucket {
+		private final Set<Long> warnIds = new HashSet<>();
+		private int weight;
+	}
+
+	/**
+	 * Holds the shared instance, so that it's only created once it's used.
+	 */
+	private static final class Holder {
+		private static final WarnSeverityTotals INSTANCE = new WarnSeverityTotals(Bot.config.getSystems().getWarnTotalsConfig());
+
+		private Holder() {}
+	}
+}
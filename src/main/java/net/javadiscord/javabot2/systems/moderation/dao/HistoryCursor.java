@@ -0,0 +1,48 @@
+package net.javadiscord.javabot2.systems.moderation.dao;
+
+import java.time.DateTimeException;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Optional;
+
+/**
+ * A position in a user's moderation history, which is ordered from newest to
+ * oldest by creation time, and then by id. Pages of history are fetched with
+ * keyset pagination, so fetching any page only reads the rows on that page,
+ * no matter how far into the history it is.
+ * @param createdAt The creation time of the last record that was seen.
+ * @param id The id of the last record that was seen.
+ */
+public record HistoryCursor(LocalDateTime createdAt, long id) {
+	/**
+	 * The cursor that's before every record, used to fetch the first page.
+	 */
+	public static final HistoryCursor START = new HistoryCursor(LocalDateTime.of(9999, 12, 31, 23, 59, 59), Long.MAX_VALUE);
+
+	/**
+	 * Parses a cursor from the format given by {@link HistoryCursor#toString()}.
+	 * @param text The text to parse.
+	 * @return The cursor, or an empty optional if the text isn't a valid cursor.
+	 */
+	public static Optional<HistoryCursor> parse(String text) {
+		int separator = text.indexOf('-');
+		if (separator < 1) return Optional.empty();
+		try {
+			long epochSecond = Long.parseLong(text.substring(0, separator));
+			long id = Long.parseLong(text.substring(separator + 1));
+			return Optional.of(new HistoryCursor(LocalDateTime.ofEpochSecond(epochSecond, 0, ZoneOffset.UTC), id));
+		} catch (NumberFormatException | DateTimeException e) {
+			return Optional.empty();
+		}
+	}
+
+	/**
+	 * Formats this cursor as a short token that staff can pass back to a
+	 * command to fetch the next page.
+	 * @return The token.
+	 */
+	@Override
+	public String toString() {
+		return createdAt.toEpochSecond(ZoneOffset.UTC) + "-" + id;
+	}
+}
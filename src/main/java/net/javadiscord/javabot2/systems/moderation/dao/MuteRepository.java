@@ -1,98 +1,186 @@
 package net.javadiscord.javabot2.systems.moderation.dao;
 
 import lombok.RequiredArgsConstructor;
+import net.javadiscord.javabot2.Bot;
+import net.javadiscord.javabot2.db.ReadThroughCache;
+import net.javadiscord.javabot2.systems.moderation.model.GuildUser;
 import net.javadiscord.javabot2.systems.moderation.model.Mute;
 
 import java.sql.*;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
 
 /**
  * DAO for interacting with the collection of stored {@link Mute} objects.
+ * Mutes are kept separately for each guild, so most methods take the id of
+ * the guild as well as the id of the user.
+ * <p>
+ *     Each user's active mutes in a guild are kept in a shared read-through cache, which
+ *     is invalidated by every write. A repository that's used in a
+ *     transaction reads the database directly for any user it has written
+ *     to, so that it sees its own uncommitted changes, and once such a
+ *     transaction is committed, {@link MuteRepository#invalidateActiveMutes(long, long)}
+ *     must be called for each user that it wrote to.
+ * </p>
  */
 @RequiredArgsConstructor
 public class MuteRepository {
+	/**
+	 * Matches the expired mutes of users who have no active mutes. The first
+	 * parameter is the current time, and the second is the same time again.
+	 */
+	private static final String EXPIRED_WITHOUT_ACTIVE = """
+			mute.discarded = FALSE AND mute.ends_at <= ?
+			AND NOT EXISTS (
+				SELECT 1 FROM mute active
+				WHERE active.guild_id = mute.guild_id AND active.user_id = mute.user_id
+				AND active.discarded = FALSE AND active.ends_at > ?
+			)""";
+
 	private final Connection con;
+	private final Set<GuildUser> writtenUsers = new HashSet<>();
+
+	/**
+	 * Removes a user's active mutes in a guild from the cache. This must be
+	 * called after committing a transaction that changed the user's mutes.
+	 * @param guildId The id of the guild.
+	 * @param userId The id of the user.
+	 */
+	public static void invalidateActiveMutes(long guildId, long userId) {
+		ActiveMutes.CACHE.invalidate(new GuildUser(guildId, userId));
+	}
 
 	/**
-	 * Inserts a new mute into the database. Note that this ignores the mute's
-	 * {@link Mute#isDiscarded()}, {@link Mute#getId()}, and {@link Mute#getCreatedAt()}.
-	 * @param mute The mute to save.
-	 * @return The mute that was saved.
+	 * Inserts many mutes into the database using a single JDBC batch. The
+	 * creation time of each mute is assigned here instead of by the database,
+	 * so that only the generated ids need to be read back.
+	 * @param mutes The mutes to save. Their ids and creation times are set.
+	 * @return The mutes that were saved, in the same order.
 	 * @throws SQLException If an error occurs.
 	 */
-	public Mute insert(Mute mute) throws SQLException {
+	public List<Mute> insertAll(List<Mute> mutes) throws SQLException {
+		var createdAt = LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS);
 		try (var s = con.prepareStatement(
-				"INSERT INTO mute (user_id, muted_by, reason, ends_at) VALUES (?, ?, ?, ?)",
+				"INSERT INTO mute (guild_id, user_id, muted_by, created_at, reason, ends_at) VALUES (?, ?, ?, ?, ?, ?)",
 				Statement.RETURN_GENERATED_KEYS
 		)) {
-			s.setLong(1, mute.getUserId());
-			s.setLong(2, mute.getMutedBy());
-			s.setString(3, mute.getReason());
-			s.setTimestamp(4, Timestamp.valueOf(mute.getEndsAt()));
-			s.executeUpdate();
+			for (var mute : mutes) {
+				mute.setCreatedAt(createdAt);
+				// Match the precision of the column, so the returned mute is the same as the stored one.
+				mute.setEndsAt(mute.getEndsAt().truncatedTo(ChronoUnit.SECONDS));
+				s.setLong(1, mute.getGuildId());
+				s.setLong(2, mute.getUserId());
+				s.setLong(3, mute.getMutedBy());
+				s.setTimestamp(4, Timestamp.valueOf(createdAt));
+				s.setString(5, mute.getReason());
+				s.setTimestamp(6, Timestamp.valueOf(mute.getEndsAt()));
+				s.addBatch();
+			}
+			s.executeBatch();
 			var rs = s.getGeneratedKeys();
-			if (!rs.next()) throw new SQLException("No generated keys returned.");
-			long id = rs.getLong(1);
-			return findById(id).orElseThrow();
+			for (var mute : mutes) {
+				if (!rs.next()) throw new SQLException("Not enough generated keys returned.");
+				mute.setId(rs.getLong(1));
+				markWritten(mute.getGuildId(), mute.getUserId());
+			}
 		}
+		return mutes;
 	}
 
 	/**
-	 * Gets the list of active mutes for a user, or those which are not
-	 * discarded, and whose ending date is some time in the future.
+	 * Gets the list of active mutes for a user in a guild, or those which are
+	 * not discarded, and whose ending date is some time in the future.
+	 * @param guildId The id of the guild.
 	 * @param userId The id of the user to get active mutes for.
-	 * @return A list of mutes.
+	 * @return An unmodifiable list of mutes.
 	 * @throws SQLException If an error occurs.
 	 */
-	public List<Mute> getActiveMutes(long userId) throws SQLException {
+	public List<Mute> getActiveMutes(long guildId, long userId) throws SQLException {
+		var key = new GuildUser(guildId, userId);
+		if (writtenUsers.contains(key)) return loadActiveMutes(key);
+		var mutes = ActiveMutes.CACHE.get(key, () -> loadActiveMutes(key));
+		// Cached mutes may have ended since they were loaded.
+		var now = LocalDateTime.now();
+		return mutes.stream().filter(mute -> mute.getEndsAt().isAfter(now)).toList();
+	}
+
+	private List<Mute> loadActiveMutes(GuildUser key) throws SQLException {
 		try (var s = con.prepareStatement("""
 			SELECT * FROM mute
-			WHERE user_id = ? AND discarded = FALSE AND ends_at > CURRENT_TIMESTAMP(0)""")) {
-			s.setLong(1, userId);
+			WHERE guild_id = ? AND user_id = ? AND discarded = FALSE AND ends_at > CURRENT_TIMESTAMP(0)""")) {
+			s.setLong(1, key.guildId());
+			s.setLong(2, key.userId());
 			var rs = s.executeQuery();
 			List<Mute> mutes = new ArrayList<>();
 			while (rs.next()) {
 				mutes.add(read(rs));
 			}
-			return mutes;
+			return List.copyOf(mutes);
 		}
 	}
 
 	/**
-	 * Determines if a user has at least one active mute.
-	 * @param userId The user to check.
-	 * @return True if there is at least one active mute for the user.
+	 * Discards the expired mutes of every user whose mutes in a guild have
+	 * all expired, across all guilds, using one anti-join query to find those
+	 * users, and one bulk update to discard their mutes. Users who still have
+	 * an active mute in a guild are left alone there, even if some of their
+	 * other mutes have expired.
+	 * @return The ids of the users whose mutes were discarded, grouped by the
+	 * id of the guild they were muted in.
 	 * @throws SQLException If an error occurs.
 	 */
-	public boolean hasActiveMutes(long userId) throws SQLException {
-		try (var s = con.prepareStatement("""
-			SELECT COUNT(id)
-			FROM mute
-			WHERE user_id = ? AND discarded = FALSE AND ends_at > CURRENT_TIMESTAMP(0)""")) {
-			s.setLong(1, userId);
+	public Map<Long, Set<Long>> discardAllExpired() throws SQLException {
+		// Both statements use the same time, so they match the same mutes.
+		var now = Timestamp.valueOf(LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS));
+		Map<Long, Set<Long>> userIdsByGuild = new HashMap<>();
+		try (var s = con.prepareStatement("SELECT DISTINCT mute.guild_id, mute.user_id FROM mute WHERE " + EXPIRED_WITHOUT_ACTIVE)) {
+			s.setTimestamp(1, now);
+			s.setTimestamp(2, now);
 			var rs = s.executeQuery();
-			return rs.next() && rs.getLong(1) > 0;
+			while (rs.next()) {
+				userIdsByGuild.computeIfAbsent(rs.getLong(1), id -> new HashSet<>()).add(rs.getLong(2));
+			}
+		}
+		if (userIdsByGuild.isEmpty()) return userIdsByGuild;
+		try (var s = con.prepareStatement("UPDATE mute SET discarded = TRUE WHERE " + EXPIRED_WITHOUT_ACTIVE)) {
+			s.setTimestamp(1, now);
+			s.setTimestamp(2, now);
+			s.executeUpdate();
 		}
+		userIdsByGuild.forEach((guildId, userIds) -> {
+			for (long userId : userIds) {
+				markWritten(guildId, userId);
+			}
+		});
+		return userIdsByGuild;
 	}
 
 	/**
-	 * Gets a list of expired mutes, which are those that are not yet discarded,
-	 * but whose ending time is in the past.
-	 * @return The list of mutes.
+	 * Gets the latest ending time of each user's mutes in each guild that
+	 * haven't been discarded yet, including those that have already ended.
+	 * @return The latest ending times, mapped by guild and user.
 	 * @throws SQLException If an error occurs.
 	 */
-	public List<Mute> getExpiredMutes() throws SQLException {
+	public Map<GuildUser, LocalDateTime> getLatestMuteEnds() throws SQLException {
 		try (var s = con.prepareStatement("""
-			SELECT * FROM mute
-			WHERE discarded = FALSE AND ends_at < CURRENT_TIMESTAMP(0)""")) {
+			SELECT guild_id, user_id, MAX(ends_at)
+			FROM mute
+			WHERE discarded = FALSE
+			GROUP BY guild_id, user_id""")) {
 			var rs = s.executeQuery();
-			List<Mute> mutes = new ArrayList<>();
+			Map<GuildUser, LocalDateTime> ends = new HashMap<>();
 			while (rs.next()) {
-				mutes.add(read(rs));
+				ends.put(new GuildUser(rs.getLong(1), rs.getLong(2)), rs.getTimestamp(3).toLocalDateTime());
 			}
-			return mutes;
+			return ends;
 		}
 	}
 
@@ -121,26 +209,106 @@ public class MuteRepository {
 			s.setLong(1, mute.getId());
 			s.executeUpdate();
 		}
+		markWritten(mute.getGuildId(), mute.getUserId());
 	}
 
 	/**
-	 * Discards all currently active mutes for a given user.
+	 * Discards all of a user's mutes in a guild which have ended, but haven't
+	 * been discarded yet.
+	 * @param guildId The id of the guild.
+	 * @param userId The id of the user.
+	 * @return The number of mutes that were discarded.
+	 * @throws SQLException If an error occurs.
+	 */
+	public int discardExpired(long guildId, long userId) throws SQLException {
+		int count;
+		try (var s = con.prepareStatement("""
+			UPDATE mute
+			SET discarded = TRUE
+			WHERE guild_id = ? AND user_id = ? AND discarded = FALSE AND ends_at <= CURRENT_TIMESTAMP(0)""")) {
+			s.setLong(1, guildId);
+			s.setLong(2, userId);
+			count = s.executeUpdate();
+		}
+		markWritten(guildId, userId);
+		return count;
+	}
+
+	/**
+	 * Discards all currently active mutes for a given user in a guild.
+	 * @param guildId The id of the guild.
 	 * @param userId The id of the user whose active mutes to discard.
 	 * @throws SQLException If an error occurs.
 	 */
-	public void discardAllActive(long userId) throws SQLException {
+	public void discardAllActive(long guildId, long userId) throws SQLException {
 		try (var s = con.prepareStatement("""
 			UPDATE mute
 			SET discarded = TRUE
-			WHERE user_id = ? AND discarded = FALSE AND ends_at > CURRENT_TIMESTAMP(0)""")) {
-			s.setLong(1, userId);
+			WHERE guild_id = ? AND user_id = ? AND discarded = FALSE AND ends_at > CURRENT_TIMESTAMP(0)""")) {
+			s.setLong(1, guildId);
+			s.setLong(2, userId);
 			s.executeUpdate();
 		}
+		markWritten(guildId, userId);
+	}
+
+	/**
+	 * Moves all mutes from one guild to another. This is used to assign the
+	 * mutes whose guild isn't known to the only guild that the bot is in. It
+	 * should be done before any mutes are cached.
+	 * @param fromGuildId The id of the guild to move mutes from.
+	 * @param toGuildId The id of the guild to move mutes to.
+	 * @return The number of mutes that were moved.
+	 * @throws SQLException If an error occurs.
+	 */
+	public int moveToGuild(long fromGuildId, long toGuildId) throws SQLException {
+		try (var s = con.prepareStatement("UPDATE mute SET guild_id = ? WHERE guild_id = ?")) {
+			s.setLong(1, toGuildId);
+			s.setLong(2, fromGuildId);
+			return s.executeUpdate();
+		}
+	}
+
+	/**
+	 * Streams a page of a user's mute history in a guild, including discarded
+	 * mutes, from newest to oldest. Rows are read one at a time and passed to
+	 * the consumer, so no list of mutes is built.
+	 * @param guildId The id of the guild.
+	 * @param userId The id of the user.
+	 * @param before The position after which to start, or {@link HistoryCursor#START}
+	 *               to start with the newest mute.
+	 * @param limit The maximum number of mutes to read.
+	 * @param consumer The consumer that's given each mute.
+	 * @throws SQLException If an error occurs.
+	 */
+	public void streamHistory(long guildId, long userId, HistoryCursor before, int limit, Consumer<Mute> consumer) throws SQLException {
+		try (var s = con.prepareStatement("""
+				SELECT * FROM mute
+				WHERE guild_id = ? AND user_id = ? AND created_at <= ? AND (created_at < ? OR id < ?)
+				ORDER BY guild_id, user_id, created_at DESC, id DESC
+				LIMIT ?""")) {
+			// The redundant conditions and ordering let H2 read the rows in
+			// index order, and stop once it has read enough of them.
+			var createdAt = Timestamp.valueOf(before.createdAt());
+			s.setLong(1, guildId);
+			s.setLong(2, userId);
+			s.setTimestamp(3, createdAt);
+			s.setTimestamp(4, createdAt);
+			s.setLong(5, before.id());
+			s.setInt(6, limit);
+			s.setFetchSize(limit);
+			try (var rs = s.executeQuery()) {
+				while (rs.next()) {
+					consumer.accept(read(rs));
+				}
+			}
+		}
 	}
 
 	private Mute read(ResultSet rs) throws SQLException {
 		Mute mute = new Mute();
 		mute.setId(rs.getLong("id"));
+		mute.setGuildId(rs.getLong("guild_id"));
 		mute.setUserId(rs.getLong("user_id"));
 		mute.setMutedBy(rs.getLong("muted_by"));
 		mute.setCreatedAt(rs.getTimestamp("created_at").toLocalDateTime());
@@ -149,4 +317,22 @@ public class MuteRepository {
 		mute.setDiscarded(rs.getBoolean("discarded"));
 		return mute;
 	}
+
+	private void markWritten(long guildId, long userId) {
+		var key = new GuildUser(guildId, userId);
+		writtenUsers.add(key);
+		ActiveMutes.CACHE.invalidate(key);
+	}
+
+	/**
+	 * Holds the cache of active mutes, so that it's only created once it's used.
+	 */
+	private static final class ActiveMutes {
+		private static final ReadThroughCache<GuildUser, List<Mute>> CACHE = new ReadThroughCache<>(
+				"active-mutes",
+				Bot.config.getSystems().getActiveMuteCacheSize()
+		);
+
+		private ActiveMutes() {}
+	}
 }
@@ -0,0 +1,160 @@
+package net.javadiscord.javabot2.systems.moderation.dao;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.reflect.TypeToken;
+import lombok.RequiredArgsConstructor;
+import net.javadiscord.javabot2.systems.moderation.model.OutboxEffect;
+import net.javadiscord.javabot2.systems.moderation.model.OutboxMessage;
+
+import java.lang.reflect.Type;
+import java.sql.*;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * DAO for interacting with the outbox of {@link OutboxMessage} objects, which
+ * hold the Discord side effects of moderation actions until they've been
+ * delivered.
+ */
+@RequiredArgsConstructor
+public class OutboxRepository {
+	/**
+	 * Values are only ever read back by this repository, so there's no need to
+	 * escape HTML characters, which are common in Discord mentions.
+	 */
+	private static final Gson GSON = new GsonBuilder().disableHtmlEscaping().create();
+	private static final Type VALUES_TYPE = new TypeToken<Map<String, String>>() {}.getType();
+
+	private final Connection con;
+
+	/**
+	 * Inserts many messages into the outbox using a single JDBC batch. This
+	 * should be done in the same transaction as the action that the messages
+	 * belong to, so that they're only delivered if the action is committed.
+	 * @param messages The messages to save.
+	 * @throws SQLException If an error occurs.
+	 */
+	public void insertAll(Collection<OutboxMessage> messages) throws SQLException {
+		if (messages.isEmpty()) return;
+		// The messages are due now, by the same clock that's used to find due
+		// messages. The database's clock may be slightly ahead, and rounds to
+		// the nearest millisecond, which would delay a drain that runs right
+		// after this is committed. All messages share their creation time, so
+		// that an action's messages can share its rendered embed.
+		var now = Timestamp.valueOf(LocalDateTime.now().truncatedTo(ChronoUnit.MILLIS));
+		try (var s = con.prepareStatement("""
+				INSERT INTO moderation_outbox (guild_id, user_id, actor_id, effect, action, channel_id, embed_values, created_at, next_attempt_at)
+				VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)""")) {
+			for (var message : messages) {
+				s.setLong(1, message.getGuildId());
+				s.setLong(2, message.getUserId());
+				s.setLong(3, message.getActorId());
+				s.setString(4, message.getEffect().name());
+				s.setString(5, message.getAction());
+				s.setObject(6, message.getChannelId(), Types.BIGINT);
+				s.setString(7, GSON.toJson(message.getValues() == null ? Map.of() : message.getValues()));
+				s.setTimestamp(8, now);
+				s.setTimestamp(9, now);
+				s.addBatch();
+			}
+			s.executeBatch();
+		}
+	}
+
+	/**
+	 * Finds the messages which are due to be delivered, oldest first. A
+	 * message is left out while an earlier message for the same user in the
+	 * same guild is waiting to be retried, so that each user's messages are
+	 * always delivered in order.
+	 * @param now The current time.
+	 * @param limit The maximum number of messages to find.
+	 * @return The messages.
+	 * @throws SQLException If an error occurs.
+	 */
+	public List<OutboxMessage> findDue(LocalDateTime now, int limit) throws SQLException {
+		try (var s = con.prepareStatement("""
+				SELECT * FROM moderation_outbox message
+				WHERE message.failed = FALSE AND message.next_attempt_at <= ?
+				AND NOT EXISTS (
+					SELECT 1 FROM moderation_outbox earlier
+					WHERE earlier.guild_id = message.guild_id AND earlier.user_id = message.user_id AND earlier.id < message.id
+					AND earlier.failed = FALSE AND earlier.next_attempt_at > ?
+				)
+				ORDER BY message.id
+				LIMIT ?""")) {
+			var timestamp = Timestamp.valueOf(now);
+			s.setTimestamp(1, timestamp);
+			s.setTimestamp(2, timestamp);
+			s.setInt(3, limit);
+			var rs = s.executeQuery();
+			List<OutboxMessage> messages = new ArrayList<>();
+			while (rs.next()) {
+				messages.add(read(rs));
+			}
+			return messages;
+		}
+	}
+
+	/**
+	 * Deletes messages which have been delivered.
+	 * @param ids The ids of the messages.
+	 * @throws SQLException If an error occurs.
+	 */
+	public void deleteAll(Collection<Long> ids) throws SQLException {
+		if (ids.isEmpty()) return;
+		try (var s = con.prepareStatement("DELETE FROM moderation_outbox WHERE id = ?")) {
+			for (long id : ids) {
+				s.setLong(1, id);
+				s.addBatch();
+			}
+			s.executeBatch();
+		}
+	}
+
+	/**
+	 * Saves the attempt count, next attempt time, last error and failed flag
+	 * of messages which couldn't be delivered.
+	 * @param messages The messages.
+	 * @throws SQLException If an error occurs.
+	 */
+	public void updateAttempts(Collection<OutboxMessage> messages) throws SQLException {
+		if (messages.isEmpty()) return;
+		try (var s = con.prepareStatement("""
+				UPDATE moderation_outbox
+				SET attempts = ?, next_attempt_at = ?, last_error = ?, failed = ?
+				WHERE id = ?""")) {
+			for (var message : messages) {
+				s.setInt(1, message.getAttempts());
+				s.setTimestamp(2, Timestamp.valueOf(message.getNextAttemptAt()));
+				s.setString(3, message.getLastError());
+				s.setBoolean(4, message.isFailed());
+				s.setLong(5, message.getId());
+				s.addBatch();
+			}
+			s.executeBatch();
+		}
+	}
+
+	private OutboxMessage read(ResultSet rs) throws SQLException {
+		OutboxMessage message = new OutboxMessage();
+		message.setId(rs.getLong("id"));
+		message.setGuildId(rs.getLong("guild_id"));
+		message.setUserId(rs.getLong("user_id"));
+		message.setActorId(rs.getLong("actor_id"));
+		message.setEffect(OutboxEffect.valueOf(rs.getString("effect")));
+		message.setAction(rs.getString("action"));
+		message.setChannelId(rs.getObject("channel_id", Long.class));
+		message.setValues(GSON.fromJson(rs.getString("embed_values"), VALUES_TYPE));
+		message.setCreatedAt(rs.getTimestamp("created_at").toLocalDateTime());
+		message.setAttempts(rs.getInt("attempts"));
+		message.setNextAttemptAt(rs.getTimestamp("next_attempt_at").toLocalDateTime());
+		message.setLastError(rs.getString("last_error"));
+		message.setFailed(rs.getBoolean("failed"));
+		return message;
+	}
+}
@@ -5,7 +5,11 @@ import net.javadiscord.javabot2.systems.moderation.model.Warn;
 
 import java.sql.*;
 import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 /**
  * DAO for interacting with the set of {@link Warn} objects.
@@ -15,27 +19,38 @@ public class WarnRepository {
 	private final Connection con;
 
 	/**
-	 * Inserts a new warn into the database.
-	 * @param warn The warn to save.
-	 * @return The warn that was saved.
+	 * Inserts many warns into the database using a single JDBC batch. The
+	 * creation time of each warn is assigned here instead of by the database,
+	 * so that only the generated ids need to be read back.
+	 * @param warns The warns to save. Their ids and creation times are set.
+	 * @return The warns that were saved, in the same order.
 	 * @throws SQLException If an error occurs.
 	 */
-	public Warn insert(Warn warn) throws SQLException {
+	public List<Warn> insertAll(List<Warn> warns) throws SQLException {
+		var createdAt = LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS);
 		try (var s = con.prepareStatement(
-				"INSERT INTO warn (user_id, warned_by, severity, severity_weight, reason) VALUES (?, ?, ?, ?, ?)",
+				"INSERT INTO warn (guild_id, user_id, warned_by, created_at, severity, severity_weight, reason) VALUES (?, ?, ?, ?, ?, ?, ?)",
 				Statement.RETURN_GENERATED_KEYS
 		)) {
-			s.setLong(1, warn.getUserId());
-			s.setLong(2, warn.getWarnedBy());
-			s.setString(3, warn.getSeverity());
-			s.setInt(4, warn.getSeverityWeight());
-			s.setString(5, warn.getReason());
-			s.executeUpdate();
+			for (var warn : warns) {
+				warn.setCreatedAt(createdAt);
+				s.setLong(1, warn.getGuildId());
+				s.setLong(2, warn.getUserId());
+				s.setLong(3, warn.getWarnedBy());
+				s.setTimestamp(4, Timestamp.valueOf(createdAt));
+				s.setString(5, warn.getSeverity());
+				s.setInt(6, warn.getSeverityWeight());
+				s.setString(7, warn.getReason());
+				s.addBatch();
+			}
+			s.executeBatch();
 			var rs = s.getGeneratedKeys();
-			if (!rs.next()) throw new SQLException("No generated keys returned.");
-			long id = rs.getLong(1);
-			return findById(id).orElseThrow();
+			for (var warn : warns) {
+				if (!rs.next()) throw new SQLException("Not enough generated keys returned.");
+				warn.setId(rs.getLong(1));
+			}
 		}
+		return warns;
 	}
 
 	/**
@@ -58,17 +73,20 @@ public class WarnRepository {
 	}
 
 	/**
-	 * Gets the total severity weight of all warns for the given user, which
-	 * were created after the given cutoff, and haven't been discarded.
+	 * Gets the total severity weight of all warns for the given user in a
+	 * guild, which were created after the given cutoff, and haven't been
+	 * discarded.
+	 * @param guildId The id of the guild.
 	 * @param userId The id of the user.
 	 * @param cutoff The time after which to look for warns.
 	 * @return The total weight of all warn severities.
 	 * @throws SQLException If an error occurs.
 	 */
-	public int getTotalSeverityWeight(long userId, LocalDateTime cutoff) throws SQLException {
-		try (var s = con.prepareStatement("SELECT SUM(severity_weight) FROM warn WHERE user_id = ? AND discarded = FALSE AND created_at > ?")) {
-			s.setLong(1, userId);
-			s.setTimestamp(2, Timestamp.valueOf(cutoff));
+	public int getTotalSeverityWeight(long guildId, long userId, LocalDateTime cutoff) throws SQLException {
+		try (var s = con.prepareStatement("SELECT SUM(severity_weight) FROM warn WHERE guild_id = ? AND user_id = ? AND discarded = FALSE AND created_at > ?")) {
+			s.setLong(1, guildId);
+			s.setLong(2, userId);
+			s.setTimestamp(3, Timestamp.valueOf(cutoff));
 			var rs = s.executeQuery();
 			int sum = 0;
 			if (rs.next()) {
@@ -80,22 +98,101 @@ public class WarnRepository {
 	}
 
 	/**
-	 * Discards all warnings that have been issued to a given user.
+	 * Finds all warns for the given user in a guild which were created at or
+	 * after the given time, and haven't been discarded.
+	 * @param guildId The id of the guild.
+	 * @param userId The id of the user.
+	 * @param since The earliest creation time of the warns to find.
+	 * @return The warns, ordered by their creation time.
+	 * @throws SQLException If an error occurs.
+	 */
+	public List<Warn> findActiveSince(long guildId, long userId, LocalDateTime since) throws SQLException {
+		List<Warn> warns = new ArrayList<>();
+		try (var s = con.prepareStatement("SELECT * FROM warn WHERE guild_id = ? AND user_id = ? AND discarded = FALSE AND created_at >= ? ORDER BY created_at")) {
+			s.setLong(1, guildId);
+			s.setLong(2, userId);
+			s.setTimestamp(3, Timestamp.valueOf(since));
+			var rs = s.executeQuery();
+			while (rs.next()) {
+				warns.add(read(rs));
+			}
+			rs.close();
+		}
+		return warns;
+	}
+
+	/**
+	 * Discards all warnings that have been issued to a given user in a guild.
+	 * @param guildId The id of the guild.
 	 * @param userId The id of the user to discard warnings for.
 	 * @throws SQLException If an error occurs.
 	 */
-	public void discardAll(long userId) throws SQLException {
+	public void discardAll(long guildId, long userId) throws SQLException {
 		try (var s = con.prepareStatement("""
 			UPDATE warn SET discarded = TRUE
-			WHERE user_id = ?""")) {
-			s.setLong(1, userId);
+			WHERE guild_id = ? AND user_id = ?""")) {
+			s.setLong(1, guildId);
+			s.setLong(2, userId);
 			s.executeUpdate();
 		}
 	}
 
+	/**
+	 * Moves all warns from one guild to another. This is used to assign the
+	 * warns whose guild isn't known to the only guild that the bot is in.
+	 * @param fromGuildId The id of the guild to move warns from.
+	 * @param toGuildId The id of the guild to move warns to.
+	 * @return The number of warns that were moved.
+	 * @throws SQLException If an error occurs.
+	 */
+	public int moveToGuild(long fromGuildId, long toGuildId) throws SQLException {
+		try (var s = con.prepareStatement("UPDATE warn SET guild_id = ? WHERE guild_id = ?")) {
+			s.setLong(1, toGuildId);
+			s.setLong(2, fromGuildId);
+			return s.executeUpdate();
+		}
+	}
+
+	/**
+	 * Streams a page of a user's warn history in a guild, including discarded
+	 * warns, from newest to oldest. Rows are read one at a time and passed to
+	 * the consumer, so no list of warns is built.
+	 * @param guildId The id of the guild.
+	 * @param userId The id of the user.
+	 * @param before The position after which to start, or {@link HistoryCursor#START}
+	 *               to start with the newest warn.
+	 * @param limit The maximum number of warns to read.
+	 * @param consumer The consumer that's given each warn.
+	 * @throws SQLException If an error occurs.
+	 */
+	public void streamHistory(long guildId, long userId, HistoryCursor before, int limit, Consumer<Warn> consumer) throws SQLException {
+		try (var s = con.prepareStatement("""
+				SELECT * FROM warn
+				WHERE guild_id = ? AND user_id = ? AND created_at <= ? AND (created_at < ? OR id < ?)
+				ORDER BY guild_id, user_id, created_at DESC, id DESC
+				LIMIT ?""")) {
+			// The redundant conditions and ordering let H2 read the rows in
+			// index order, and stop once it has read enough of them.
+			var createdAt = Timestamp.valueOf(before.createdAt());
+			s.setLong(1, guildId);
+			s.setLong(2, userId);
+			s.setTimestamp(3, createdAt);
+			s.setTimestamp(4, createdAt);
+			s.setLong(5, before.id());
+			s.setInt(6, limit);
+			s.setFetchSize(limit);
+			try (var rs = s.executeQuery()) {
+				while (rs.next()) {
+					consumer.accept(read(rs));
+				}
+			}
+		}
+	}
+
 	private Warn read(ResultSet rs) throws SQLException {
 		Warn warn = new Warn();
 		warn.setId(rs.getLong("id"));
+		warn.setGuildId(rs.getLong("guild_id"));
 		warn.setUserId(rs.getLong("user_id"));
 		warn.setWarnedBy(rs.getLong("warned_by"));
 		warn.setCreatedAt(rs.getTimestamp("created_at").toLocalDateTime());
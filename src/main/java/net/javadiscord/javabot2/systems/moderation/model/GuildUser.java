@@ -0,0 +1,16 @@
+package net.javadiscord.javabot2.systems.moderation.model;
+
+/**
+ * Identifies a user within a guild, since warns and mutes are kept separately
+ * for each guild.
+ * @param guildId The id of the guild.
+ * @param userId The id of the user.
+ */
+public record GuildUser(long guildId, long userId) {
+	/**
+	 * The guild id of warns and mutes that were issued before they were kept
+	 * separately for each guild, and whose guild isn't known. These are
+	 * assigned to the bot's guild when it starts, if it's only in one.
+	 */
+	public static final long UNKNOWN_GUILD_ID = 0;
+}
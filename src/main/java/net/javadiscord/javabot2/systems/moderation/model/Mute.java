@@ -12,6 +12,7 @@ import java.time.LocalDateTime;
 @NoArgsConstructor
 public class Mute {
 	private Long id;
+	private long guildId;
 	private long userId;
 	private long mutedBy;
 	private LocalDateTime createdAt;
@@ -21,12 +22,14 @@ public class Mute {
 
 	/**
 	 * Constructs a new mute.
+	 * @param guildId The id of the guild in which the user is muted.
 	 * @param userId The id of the user being muted.
 	 * @param mutedBy The id of the user who's muting them.
 	 * @param reason The reason for the mute.
 	 * @param endsAt The date and time at which the mute ends.
 	 */
-	public Mute(long userId, long mutedBy, String reason, LocalDateTime endsAt) {
+	public Mute(long guildId, long userId, long mutedBy, String reason, LocalDateTime endsAt) {
+		this.guildId = guildId;
 		this.userId = userId;
 		this.mutedBy = mutedBy;
 		this.reason = reason;
@@ -0,0 +1,32 @@
+package net.javadiscord.javabot2.systems.moderation.model;
+
+/**
+ * The Discord side effects of a moderation action, which are delivered from
+ * the outbox once the action has been committed.
+ */
+public enum OutboxEffect {
+	/**
+	 * Sends the action's embed to the user in a private message.
+	 */
+	DIRECT_MESSAGE,
+
+	/**
+	 * Sends the action's embed to the guild's moderation log channel.
+	 */
+	LOG,
+
+	/**
+	 * Sends the action's embed to the channel in which the action was taken.
+	 */
+	CHANNEL,
+
+	/**
+	 * Gives the user the guild's mute role.
+	 */
+	ADD_MUTE_ROLE,
+
+	/**
+	 * Removes the guild's mute role from the user.
+	 */
+	REMOVE_MUTE_ROLE
+}
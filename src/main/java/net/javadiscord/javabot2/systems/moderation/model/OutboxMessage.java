@@ -0,0 +1,52 @@
+package net.javadiscord.javabot2.systems.moderation.model;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+
+/**
+ * Entity representing a single Discord side effect of a moderation action,
+ * which is waiting in the outbox to be delivered.
+ */
+@Data
+@NoArgsConstructor
+public class OutboxMessage {
+	private Long id;
+	private long guildId;
+	private long userId;
+	private long actorId;
+	private OutboxEffect effect;
+	private String action;
+	private Long channelId;
+	private Map<String, String> values;
+	private LocalDateTime createdAt;
+	private int attempts;
+	private LocalDateTime nextAttemptAt;
+	private String lastError;
+	private boolean failed;
+
+	/**
+	 * Constructs a new message.
+	 * @param guildId The id of the guild in which the action was taken.
+	 * @param userId The id of the user that the action was taken against.
+	 * @param actorId The id of the user who took the action.
+	 * @param effect The side effect to deliver.
+	 * @param action The name of the action's embed template, or null if the
+	 *               effect doesn't send an embed.
+	 * @param channelId The id of the channel to send the embed to, for the
+	 *                  {@link OutboxEffect#CHANNEL} effect.
+	 * @param values The placeholder values for the embed, and the reason for
+	 *               any role change.
+	 */
+	public OutboxMessage(long guildId, long userId, long actorId, OutboxEffect effect, String action, Long channelId, Map<String, String> values) {
+		this.guildId = guildId;
+		this.userId = userId;
+		this.actorId = actorId;
+		this.effect = effect;
+		this.action = action;
+		this.channelId = channelId;
+		this.values = values;
+	}
+}
@@ -12,6 +12,7 @@ import java.time.LocalDateTime;
 @NoArgsConstructor
 public class Warn {
 	private Long id;
+	private long guildId;
 	private long userId;
 	private long warnedBy;
 	private LocalDateTime createdAt;
@@ -22,12 +23,14 @@ public class Warn {
 
 	/**
 	 * Constructs a new warning.
+	 * @param guildId The id of the guild in which the warning is issued.
 	 * @param userId The id of the user being warned.
 	 * @param warnedBy The id of the user who's warning them.
 	 * @param severity The severity of the warning.
 	 * @param reason The reason for the warning.
 	 */
-	public Warn(long userId, long warnedBy, WarnSeverity severity, String reason) {
+	public Warn(long guildId, long userId, long warnedBy, WarnSeverity severity, String reason) {
+		this.guildId = guildId;
 		this.userId = userId;
 		this.warnedBy = warnedBy;
 		this.severity = severity.name();
@@ -1,5 +1,6 @@
 package net.javadiscord.javabot2.tasks;
 
+import net.javadiscord.javabot2.Bot;
 import net.javadiscord.javabot2.tasks.jobs.DiscordApiJob;
 import net.javadiscord.javabot2.tasks.jobs.UnmuteExpiredJob;
 import org.javacord.api.DiscordApi;
@@ -44,7 +45,9 @@ public class ScheduledTasks {
 	 * @throws SchedulerException If an error occurs while adding a task.
 	 */
 	private static void scheduleAllTasks(Scheduler scheduler, DiscordApi api) throws SchedulerException {
-		scheduleApiJob(scheduler, api, UnmuteExpiredJob.class, SimpleScheduleBuilder.repeatMinutelyForever());
+		// Mutes normally expire on time through the MuteExpiryScheduler, so this only catches any that were missed.
+		int muteExpiryCheckMinutes = Math.max(1, Bot.config.getSystems().getMuteExpiryCheckMinutes());
+		scheduleApiJob(scheduler, api, UnmuteExpiredJob.class, SimpleScheduleBuilder.repeatMinutelyForever(muteExpiryCheckMinutes));
 	}
 
 	/**
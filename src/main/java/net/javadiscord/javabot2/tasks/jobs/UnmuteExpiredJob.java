@@ -1,18 +1,18 @@
 package net.javadiscord.javabot2.tasks.jobs;
 
-import net.javadiscord.javabot2.Bot;
 import net.javadiscord.javabot2.systems.moderation.ModerationService;
 import org.javacord.api.DiscordApi;
 import org.quartz.JobExecutionContext;
 
 /**
- * Job which unmutes users whose mutes have expired.
+ * Job which unmutes users whose mutes have expired. Users are normally
+ * unmuted on time by the {@link net.javadiscord.javabot2.systems.moderation.MuteExpiryScheduler},
+ * so this job only runs occasionally, to catch any expired mutes it missed.
+ * Each run is a single pass over the expired mutes of every guild.
  */
 public class UnmuteExpiredJob extends DiscordApiJob {
 	@Override
 	protected void execute(JobExecutionContext context, DiscordApi api) {
-		for (var server : api.getServers()) {
-			new ModerationService(api, Bot.config.get(server).getModeration()).unmuteExpired();
-		}
+		ModerationService.unmuteExpired(api);
 	}
 }
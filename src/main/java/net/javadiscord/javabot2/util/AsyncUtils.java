@@ -0,0 +1,73 @@
+package net.javadiscord.javabot2.util;
+
+import java.util.Collection;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Utility methods for working with asynchronous actions.
+ */
+public final class AsyncUtils {
+	private AsyncUtils() {}
+
+	/**
+	 * Runs an asynchronous action for each of the given items, with at most
+	 * the given number of actions running at once. Each action should handle
+	 * its own errors, since an action that fails is simply counted as done.
+	 * @param items The items to run the action for.
+	 * @param concurrency The maximum number of actions to run at once.
+	 * @param action The action to run for each item.
+	 * @param <T> The type of the items.
+	 * @return A future that completes once every action has completed.
+	 */
+	public static <T> CompletableFuture<Void> forEachBounded(Collection<T> items, int concurrency, Function<T, CompletableFuture<?>> action) {
+		if (items.isEmpty()) return CompletableFuture.completedFuture(null);
+		int workers = Math.min(Math.max(1, concurrency), items.size());
+		var worker = new BoundedWorker<>(new ConcurrentLinkedQueue<>(items), action, workers);
+		// Workers whose actions complete right away finish before this loop does, so the count can't be re-read.
+		for (int i = 0; i < workers; i++) {
+			worker.next();
+		}
+		return worker.done;
+	}
+
+	/**
+	 * Takes items from a shared queue, and runs the action for each of them.
+	 * @param <T> The type of the items.
+	 */
+	private static final class BoundedWorker<T> {
+		private final Queue<T> pending;
+		private final Function<T, CompletableFuture<?>> action;
+		private final AtomicInteger activeWorkers;
+		private final CompletableFuture<Void> done = new CompletableFuture<>();
+
+		private BoundedWorker(Queue<T> pending, Function<T, CompletableFuture<?>> action, int workers) {
+			this.pending = pending;
+			this.action = action;
+			this.activeWorkers = new AtomicInteger(workers);
+		}
+
+		/**
+		 * Runs actions until one of them doesn't complete right away, in
+		 * which case this is called again once it does. Actions that complete
+		 * right away are handled in a loop, to avoid deep recursion.
+		 */
+		private void next() {
+			while (true) {
+				T item = pending.poll();
+				if (item == null) {
+					if (activeWorkers.decrementAndGet() == 0) done.complete(null);
+					return;
+				}
+				var future = action.apply(item);
+				if (!future.isDone()) {
+					future.whenComplete((result, throwable) -> next());
+					return;
+				}
+			}
+		}
+	}
+}
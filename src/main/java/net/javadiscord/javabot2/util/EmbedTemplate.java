@@ -0,0 +1,127 @@
+package net.javadiscord.javabot2.util;
+
+import net.javadiscord.javabot2.config.guild.EmbedTemplateConfig;
+import org.javacord.api.entity.message.embed.EmbedBuilder;
+
+import java.awt.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An embed template that's been compiled from an {@link EmbedTemplateConfig},
+ * so that rendering it only needs to substitute placeholder values, without
+ * parsing any text or colors again.
+ */
+public final class EmbedTemplate {
+	private final Text title;
+	private final Text description;
+	private final Color color;
+	private final Text[] fieldNames;
+	private final Text[] fieldValues;
+
+	/**
+	 * Compiles a template.
+	 * @param config The template configuration.
+	 * @throws IllegalArgumentException If the template's color is invalid.
+	 */
+	public EmbedTemplate(EmbedTemplateConfig config) {
+		this.title = Text.compile(config.getTitle());
+		this.description = Text.compile(config.getDescription());
+		try {
+			this.color = config.getColor() == null ? null : Color.decode(config.getColor());
+		} catch (NumberFormatException e) {
+			throw new IllegalArgumentException("Invalid embed color: " + config.getColor(), e);
+		}
+		int fieldCount = config.getFields() == null ? 0 : config.getFields().size();
+		this.fieldNames = new Text[fieldCount];
+		this.fieldValues = new Text[fieldCount];
+		if (fieldCount > 0) {
+			int i = 0;
+			for (var entry : config.getFields().entrySet()) {
+				this.fieldNames[i] = Text.compile(entry.getKey());
+				this.fieldValues[i] = Text.compile(entry.getValue());
+				i++;
+			}
+		}
+	}
+
+	/**
+	 * Renders this template into a new embed, counting the characters of its
+	 * title, description and fields as they're rendered.
+	 * @param values The placeholder values, mapped by placeholder name.
+	 * @return The rendered embed.
+	 */
+	public Rendered render(Map<String, String> values) {
+		var embed = new EmbedBuilder();
+		int length = 0;
+		if (title != null) {
+			var text = title.render(values);
+			embed.setTitle(text);
+			length += text.length();
+		}
+		if (description != null) {
+			var text = description.render(values);
+			embed.setDescription(text);
+			length += text.length();
+		}
+		if (color != null) embed.setColor(color);
+		for (int i = 0; i < fieldNames.length; i++) {
+			var name = fieldNames[i].render(values);
+			var value = fieldValues[i].render(values);
+			embed.addField(name, value);
+			length += name.length() + value.length();
+		}
+		return new Rendered(embed, length);
+	}
+
+	/**
+	 * An embed that's been rendered from a template.
+	 * @param embed The embed builder, which may be further customized.
+	 * @param length The number of characters in the embed's title,
+	 *               description and fields, which Discord counts towards the
+	 *               limit on the total size of a message's embeds.
+	 */
+	public record Rendered(EmbedBuilder embed, int length) {}
+
+	/**
+	 * A piece of text that's been split into literal parts and placeholders.
+	 * @param literals The literal parts of the text. There is always exactly
+	 *                 one more literal than there are placeholders.
+	 * @param placeholders The names of the placeholders between each literal.
+	 */
+	private record Text(String[] literals, String[] placeholders) {
+		static Text compile(String text) {
+			if (text == null) return null;
+			List<String> literals = new ArrayList<>();
+			List<String> placeholders = new ArrayList<>();
+			int start = 0;
+			int open = text.indexOf('{');
+			while (open != -1) {
+				int close = text.indexOf('}', open);
+				if (close == -1) break;
+				literals.add(text.substring(start, open));
+				placeholders.add(text.substring(open + 1, close));
+				start = close + 1;
+				open = text.indexOf('{', start);
+			}
+			literals.add(text.substring(start));
+			return new Text(literals.toArray(new String[0]), placeholders.toArray(new String[0]));
+		}
+
+		String render(Map<String, String> values) {
+			if (placeholders.length == 0) return literals[0];
+			var sb = new StringBuilder(literals[0]);
+			for (int i = 0; i < placeholders.length; i++) {
+				var value = values.get(placeholders[i]);
+				if (value != null) {
+					sb.append(value);
+				} else {
+					sb.append('{').append(placeholders[i]).append('}');
+				}
+				sb.append(literals[i + 1]);
+			}
+			return sb.toString();
+		}
+	}
+}
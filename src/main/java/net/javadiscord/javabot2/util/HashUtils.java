@@ -0,0 +1,30 @@
+package net.javadiscord.javabot2.util;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Contains some utility methods for computing hashes.
+ */
+public class HashUtils {
+	private HashUtils() {}
+
+	/**
+	 * Computes the SHA-256 hash of a string.
+	 * @param data The string to hash.
+	 * @return The hex-encoded hash of the string's UTF-8 bytes.
+	 */
+	public static String sha256(String data) {
+		try {
+			byte[] hash = MessageDigest.getInstance("SHA-256").digest(data.getBytes(StandardCharsets.UTF_8));
+			StringBuilder sb = new StringBuilder(hash.length * 2);
+			for (byte b : hash) {
+				sb.append(String.format("%02x", b));
+			}
+			return sb.toString();
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException("SHA-256 is not supported.", e);
+		}
+	}
+}
@@ -0,0 +1,208 @@
+package net.javadiscord.javabot2.util;
+
+import net.javadiscord.javabot2.metrics.ExecutorStatsMXBean;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A fixed-size thread pool with a bounded queue, which keeps track of some
+ * basic metrics about the tasks it runs, like how long they waited in the
+ * queue before being executed. What happens to tasks that are submitted
+ * while the queue is full is determined by the executor's {@link RejectionPolicy}.
+ */
+public class MonitoredExecutor extends ThreadPoolExecutor implements ExecutorStatsMXBean {
+	private static final long KEEP_ALIVE_SECONDS = 60;
+	private static final double NANOS_PER_MILLI = 1_000_000.0;
+
+	private final String name;
+	private final LongAdder executedCount = new LongAdder();
+	private final LongAdder rejectedCount = new LongAdder();
+	private final LongAdder totalWaitNanos = new LongAdder();
+	private final LongAdder totalExecutionNanos = new LongAdder();
+	private final LongAccumulator maxWaitNanos = new LongAccumulator(Long::max, 0);
+
+	/**
+	 * Constructs the executor.
+	 * @param name The name of the executor, which is used to name its threads.
+	 * @param poolSize The number of threads to use.
+	 * @param queueCapacity The maximum number of tasks that may wait in the
+	 *                      queue before new tasks are rejected.
+	 */
+	public MonitoredExecutor(String name, int poolSize, int queueCapacity) {
+		this(name, poolSize, queueCapacity, RejectionPolicy.ABORT, 0);
+	}
+
+	/**
+	 * Constructs the executor.
+	 * @param name The name of the executor, which is used to name its threads.
+	 * @param poolSize The number of threads to use.
+	 * @param queueCapacity The maximum number of tasks that may wait in the
+	 *                      queue before the rejection policy applies.
+	 * @param rejectionPolicy What to do with tasks that are submitted while
+	 *                        the queue is full.
+	 * @param blockTimeoutMillis For the {@link RejectionPolicy#BLOCK} policy,
+	 *                           the maximum time to wait for space in the queue.
+	 */
+	public MonitoredExecutor(String name, int poolSize, int queueCapacity, RejectionPolicy rejectionPolicy, long blockTimeoutMillis) {
+		super(poolSize, poolSize, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS, new ArrayBlockingQueue<>(queueCapacity), threadFactory(name));
+		this.name = name;
+		this.allowCoreThreadTimeOut(true);
+		var handler = rejectionPolicy.toHandler(blockTimeoutMillis);
+		this.setRejectedExecutionHandler((runnable, executor) -> {
+			rejectedCount.increment();
+			handler.rejectedExecution(runnable, executor);
+		});
+	}
+
+	@Override
+	public void execute(Runnable command) {
+		long enqueuedAt = System.nanoTime();
+		super.execute(() -> {
+			long startedAt = System.nanoTime();
+			long waitNanos = startedAt - enqueuedAt;
+			totalWaitNanos.add(waitNanos);
+			maxWaitNanos.accumulate(waitNanos);
+			try {
+				command.run();
+			} finally {
+				totalExecutionNanos.add(System.nanoTime() - startedAt);
+				executedCount.increment();
+			}
+		});
+	}
+
+	/**
+	 * Gets a snapshot of this executor's current metrics.
+	 * @return The executor's metrics.
+	 */
+	public Stats getStats() {
+		long executed = executedCount.sum();
+		return new Stats(
+				name,
+				getQueue().size(),
+				getActiveCount(),
+				executed,
+				rejectedCount.sum(),
+				executed == 0 ? 0 : totalWaitNanos.sum() / executed,
+				maxWaitNanos.get(),
+				executed == 0 ? 0 : totalExecutionNanos.sum() / executed
+		);
+	}
+
+	@Override
+	public int getQueueDepth() {
+		return getQueue().size();
+	}
+
+	@Override
+	public int getActiveThreads() {
+		return getActiveCount();
+	}
+
+	@Override
+	public long getExecutedCount() {
+		return executedCount.sum();
+	}
+
+	@Override
+	public long getRejectedCount() {
+		return rejectedCount.sum();
+	}
+
+	@Override
+	public double getAverageWaitMillis() {
+		return getStats().averageWaitNanos() / NANOS_PER_MILLI;
+	}
+
+	@Override
+	public double getMaxWaitMillis() {
+		return maxWaitNanos.get() / NANOS_PER_MILLI;
+	}
+
+	@Override
+	public double getAverageExecutionMillis() {
+		return getStats().averageExecutionNanos() / NANOS_PER_MILLI;
+	}
+
+	private static ThreadFactory threadFactory(String name) {
+		AtomicInteger threadCount = new AtomicInteger();
+		return runnable -> {
+			Thread thread = new Thread(runnable, name + "-" + threadCount.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		};
+	}
+
+	/**
+	 * Policies for dealing with tasks that are submitted while an executor's
+	 * queue is full.
+	 */
+	public enum RejectionPolicy {
+		/**
+		 * The task is rejected with a {@link RejectedExecutionException}.
+		 */
+		ABORT,
+
+		/**
+		 * The task is run on the thread that submitted it, which slows down
+		 * the submitter until the executor catches up.
+		 */
+		CALLER_RUNS,
+
+		/**
+		 * The submitting thread waits for space in the queue, up to a timeout,
+		 * after which the task is rejected with a {@link RejectedExecutionException}.
+		 */
+		BLOCK;
+
+		RejectedExecutionHandler toHandler(long blockTimeoutMillis) {
+			return switch (this) {
+				case ABORT -> new AbortPolicy();
+				case CALLER_RUNS -> new CallerRunsPolicy();
+				case BLOCK -> (runnable, executor) -> {
+					if (executor.isShutdown()) throw new RejectedExecutionException("Executor is shut down.");
+					try {
+						if (!executor.getQueue().offer(runnable, blockTimeoutMillis, TimeUnit.MILLISECONDS)) {
+							throw new RejectedExecutionException("Timed out waiting for space in the queue.");
+						}
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+						throw new RejectedExecutionException("Interrupted while waiting for space in the queue.", e);
+					}
+				};
+			};
+		}
+	}
+
+	/**
+	 * A snapshot of an executor's metrics.
+	 * @param name The name of the executor.
+	 * @param queueDepth The number of tasks currently waiting in the queue.
+	 * @param activeThreads The approximate number of threads that are running tasks.
+	 * @param executedCount The number of tasks that have been executed.
+	 * @param rejectedCount The number of tasks that were submitted while the
+	 *                      queue was full, and so were handled by the
+	 *                      rejection policy.
+	 * @param averageWaitNanos The average time tasks spent in the queue.
+	 * @param maxWaitNanos The longest time any task spent in the queue.
+	 * @param averageExecutionNanos The average time it took to run a task.
+	 */
+	public record Stats(
+			String name,
+			int queueDepth,
+			int activeThreads,
+			long executedCount,
+			long rejectedCount,
+			long averageWaitNanos,
+			long maxWaitNanos,
+			long averageExecutionNanos
+	) {}
+}
@@ -0,0 +1,8 @@
+-- Sums of a user's recent warn severity.
+CREATE INDEX IF NOT EXISTS idx_warn_user_discarded_created ON warn (user_id, discarded, created_at);
+
+-- Finding a user's active mutes.
+CREATE INDEX IF NOT EXISTS idx_mute_user_discarded_ends ON mute (user_id, discarded, ends_at);
+
+-- Finding all expired mutes that haven't been discarded yet.
+CREATE INDEX IF NOT EXISTS idx_mute_discarded_ends ON mute (discarded, ends_at);
@@ -0,0 +1,6 @@
+-- Keyset pagination of a user's warn history, newest first. The descending
+-- columns let the history query read rows in index order and stop after one page.
+CREATE INDEX IF NOT EXISTS idx_warn_user_created_id ON warn (user_id, created_at DESC, id DESC);
+
+-- Keyset pagination of a user's mute history, newest first.
+CREATE INDEX IF NOT EXISTS idx_mute_user_created_id ON mute (user_id, created_at DESC, id DESC);
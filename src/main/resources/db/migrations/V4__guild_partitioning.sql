@@ -0,0 +1,26 @@
+-- Partition warns and mutes by the guild they were issued in. Rows that were
+-- created before this migration don't have a known guild, so they're given
+-- guild id 0. When the bot starts and is only in one guild, they're assigned
+-- to that guild. Otherwise, they don't belong to any guild, so they don't
+-- count towards any guild's warns or history, and expired mutes in guild 0
+-- are discarded without unmuting anyone.
+ALTER TABLE warn ADD COLUMN IF NOT EXISTS guild_id BIGINT NOT NULL DEFAULT 0 BEFORE user_id;
+ALTER TABLE mute ADD COLUMN IF NOT EXISTS guild_id BIGINT NOT NULL DEFAULT 0 BEFORE user_id;
+
+-- Replace the user-leading indexes with guild-leading ones.
+DROP INDEX IF EXISTS idx_warn_user_discarded_created;
+DROP INDEX IF EXISTS idx_warn_user_created_id;
+DROP INDEX IF EXISTS idx_mute_user_discarded_ends;
+DROP INDEX IF EXISTS idx_mute_user_created_id;
+
+-- Sums of a user's recent warn severity in a guild.
+CREATE INDEX IF NOT EXISTS idx_warn_guild_user_discarded_created ON warn (guild_id, user_id, discarded, created_at);
+
+-- Keyset pagination of a user's warn history in a guild, newest first.
+CREATE INDEX IF NOT EXISTS idx_warn_guild_user_created_id ON warn (guild_id, user_id, created_at DESC, id DESC);
+
+-- Finding a user's active mutes in a guild.
+CREATE INDEX IF NOT EXISTS idx_mute_guild_user_discarded_ends ON mute (guild_id, user_id, discarded, ends_at);
+
+-- Keyset pagination of a user's mute history in a guild, newest first.
+CREATE INDEX IF NOT EXISTS idx_mute_guild_user_created_id ON mute (guild_id, user_id, created_at DESC, id DESC);
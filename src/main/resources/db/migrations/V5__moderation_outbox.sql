@@ -0,0 +1,24 @@
+-- Discord side effects of moderation actions, like notifying the user or
+-- giving them the mute role. Each is written in the same transaction as the
+-- action itself, and deleted once it has been delivered.
+CREATE TABLE IF NOT EXISTS moderation_outbox (
+    id BIGINT PRIMARY KEY AUTO_INCREMENT,
+    guild_id BIGINT NOT NULL,
+    user_id BIGINT NOT NULL,
+    actor_id BIGINT NOT NULL,
+    effect VARCHAR(32) NOT NULL,
+    action VARCHAR(32),
+    channel_id BIGINT,
+    embed_values CLOB NOT NULL DEFAULT '{}',
+    created_at TIMESTAMP(0) NOT NULL DEFAULT CURRENT_TIMESTAMP(0),
+    attempts INT NOT NULL DEFAULT 0,
+    next_attempt_at TIMESTAMP(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3),
+    last_error VARCHAR(1024),
+    failed BOOL NOT NULL DEFAULT FALSE
+);
+
+-- Finding the messages that are due to be delivered.
+CREATE INDEX IF NOT EXISTS idx_moderation_outbox_failed_next_attempt ON moderation_outbox (failed, next_attempt_at);
+
+-- Keeping each user's messages in order while an earlier one is retried.
+CREATE INDEX IF NOT EXISTS idx_moderation_outbox_guild_user_id ON moderation_outbox (guild_id, user_id, id);
@@ -0,0 +1,94 @@
+package net.javadiscord.javabot2.command;
+
+import net.javadiscord.javabot2.command.data.CommandConfig;
+import net.javadiscord.javabot2.command.data.RateLimitConfig;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests for {@link CommandRateLimiter}, using a manual clock.
+ */
+class CommandRateLimiterTest {
+	private static final String COMMAND = "warn";
+	private static final long USER = 123456789012345678L;
+	private static final long OTHER_USER = 223456789012345678L;
+	private static final long SERVER = 323456789012345678L;
+	private static final long OTHER_SERVER = 423456789012345678L;
+
+	private final AtomicLong clock = new AtomicLong(1_000_000);
+	private CommandRateLimiter limiter;
+
+	@BeforeEach
+	void setUp() {
+		limiter = new CommandRateLimiter(new CommandConfig[]{command(COMMAND, 3, 5, 60), command("ping", 0, 0, 60)}, clock::get);
+	}
+
+	@Test
+	void userLimitIsEnforced() {
+		for (int i = 0; i < 3; i++) {
+			assertTrue(limiter.tryAcquire(COMMAND, USER, SERVER), "Acquire " + i);
+		}
+		assertFalse(limiter.tryAcquire(COMMAND, USER, SERVER));
+		assertTrue(limiter.tryAcquire(COMMAND, OTHER_USER, SERVER));
+	}
+
+	@Test
+	void serverLimitIsEnforcedAcrossUsers() {
+		for (int i = 0; i < 5; i++) {
+			assertTrue(limiter.tryAcquire(COMMAND, USER + i, SERVER), "Acquire " + i);
+		}
+		assertFalse(limiter.tryAcquire(COMMAND, OTHER_USER, SERVER));
+		assertTrue(limiter.tryAcquire(COMMAND, OTHER_USER, OTHER_SERVER));
+	}
+
+	@Test
+	void serverLimitIsSkippedOutsideServers() {
+		for (int i = 0; i < 10; i++) {
+			assertTrue(limiter.tryAcquire(COMMAND, USER + i, 0), "Acquire " + i);
+		}
+	}
+
+	@Test
+	void commandsWithoutLimitsAreNeverLimited() {
+		for (int i = 0; i < 100; i++) {
+			assertTrue(limiter.tryAcquire("ping", USER, SERVER));
+			assertTrue(limiter.tryAcquire("unknown", USER, SERVER));
+		}
+	}
+
+	@Test
+	void bucketRefillsOverThePeriod() {
+		for (int i = 0; i < 3; i++) {
+			assertTrue(limiter.tryAcquire(COMMAND, USER, 0));
+		}
+		assertFalse(limiter.tryAcquire(COMMAND, USER, 0));
+		// One token is refilled every 20 seconds.
+		clock.addAndGet(19_999);
+		assertFalse(limiter.tryAcquire(COMMAND, USER, 0));
+		clock.addAndGet(1);
+		assertTrue(limiter.tryAcquire(COMMAND, USER, 0));
+		assertFalse(limiter.tryAcquire(COMMAND, USER, 0));
+		// A bucket never holds more than the limit, however long it's idle.
+		clock.addAndGet(600_000);
+		for (int i = 0; i < 3; i++) {
+			assertTrue(limiter.tryAcquire(COMMAND, USER, 0));
+		}
+		assertFalse(limiter.tryAcquire(COMMAND, USER, 0));
+	}
+
+	private static CommandConfig command(String name, int userLimit, int serverLimit, int periodSeconds) {
+		var rateLimit = new RateLimitConfig();
+		rateLimit.setUserLimit(userLimit);
+		rateLimit.setServerLimit(serverLimit);
+		rateLimit.setPeriodSeconds(periodSeconds);
+		var config = new CommandConfig();
+		config.setName(name);
+		config.setRateLimit(rateLimit);
+		return config;
+	}
+}
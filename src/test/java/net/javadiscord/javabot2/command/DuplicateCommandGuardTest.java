@@ -0,0 +1,72 @@
+package net.javadiscord.javabot2.command;
+
+import net.javadiscord.javabot2.command.data.CommandConfig;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Tests for {@link DuplicateCommandGuard}, using a manual clock.
+ */
+class DuplicateCommandGuardTest {
+	private static final String KEY = "1:2:warn:[user=3, reason=spam]";
+	private static final int WINDOW_SECONDS = 10;
+
+	private final AtomicLong clock = new AtomicLong(1_000_000_000);
+	private DuplicateCommandGuard guard;
+
+	@BeforeEach
+	void setUp() {
+		var config = new CommandConfig();
+		config.setName("warn");
+		config.setDeduplicate(true);
+		guard = new DuplicateCommandGuard(new CommandConfig[]{config}, WINDOW_SECONDS, clock::get);
+	}
+
+	@Test
+	void duplicateWithinWindowGetsTheOriginal() {
+		assertNull(guard.register(KEY));
+		clock.addAndGet(TimeUnit.SECONDS.toNanos(WINDOW_SECONDS) - 1);
+		var original = guard.register(KEY);
+		assertNotNull(original);
+		assertEquals(1_000_000_000, original.nanos());
+	}
+
+	@Test
+	void differentKeysAreNotDuplicates() {
+		assertNull(guard.register(KEY));
+		assertNull(guard.register(KEY + "!"));
+	}
+
+	@Test
+	void submissionExpiresAfterWindow() {
+		assertNull(guard.register(KEY));
+		clock.addAndGet(TimeUnit.SECONDS.toNanos(WINDOW_SECONDS));
+		assertNull(guard.register(KEY));
+		// The new submission starts a new window.
+		assertNotNull(guard.register(KEY));
+	}
+
+	@Test
+	void forgottenSubmissionCanBeRetried() {
+		assertNull(guard.register(KEY));
+		guard.forget(KEY);
+		assertNull(guard.register(KEY));
+	}
+
+	@Test
+	void sweepKeepsSubmissionsWithinWindow() {
+		assertNull(guard.register(KEY));
+		// Enough registrations to trigger several sweeps.
+		for (int i = 0; i < 1000; i++) {
+			guard.register("other:" + i);
+		}
+		assertNotNull(guard.register(KEY));
+	}
+}
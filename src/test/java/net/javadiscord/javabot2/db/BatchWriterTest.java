@@ -0,0 +1,141 @@
+package net.javadiscord.javabot2.db;
+
+import net.javadiscord.javabot2.Bot;
+import net.javadiscord.javabot2.config.SystemsConfig;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Tests for {@link BatchWriter}, which write to a table with a unique column,
+ * so that a duplicate value fails its batch.
+ */
+class BatchWriterTest {
+	private static final int BATCH_SIZE = 4;
+	private static final long TIMEOUT_SECONDS = 5;
+
+	/**
+	 * The batches that the writer's function was called with.
+	 */
+	private final List<List<Integer>> batches = new CopyOnWriteArrayList<>();
+
+	@BeforeEach
+	void setUp() throws Exception {
+		TestDatabase.start();
+		try (var con = Bot.hikariDataSource.getConnection(); var stmt = con.createStatement()) {
+			stmt.execute("CREATE TABLE batch_test (value INT PRIMARY KEY)");
+		}
+	}
+
+	@AfterEach
+	void tearDown() throws Exception {
+		TestDatabase.stop();
+	}
+
+	@Test
+	void fullBatchIsWrittenInOneTransaction() throws Exception {
+		var writer = writer(BATCH_SIZE);
+		var results = submitAll(writer, 1, 2, 3, 4);
+		for (int i = 0; i < results.size(); i++) {
+			assertEquals(i + 1, get(results.get(i)));
+		}
+		assertEquals(List.of(List.of(1, 2, 3, 4)), batches);
+		assertEquals(List.of(1, 2, 3, 4), storedValues());
+	}
+
+	@Test
+	void batchThatFailsPartwayIsWrittenOneAtATime() throws Exception {
+		var writer = writer(BATCH_SIZE);
+		// The second 2 violates the primary key, which fails the whole batch.
+		var results = submitAll(writer, 1, 2, 2, 3);
+		assertEquals(1, get(results.get(0)));
+		assertEquals(2, get(results.get(1)));
+		var e = assertThrows(ExecutionException.class, () -> get(results.get(2)));
+		assertInstanceOf(SQLException.class, e.getCause());
+		assertEquals(3, get(results.get(3)));
+		assertEquals(List.of(List.of(1, 2, 2, 3), List.of(1), List.of(2), List.of(2), List.of(3)), batches);
+		// The failed batch was rolled back, so nothing was written twice.
+		assertEquals(List.of(1, 2, 3), storedValues());
+	}
+
+	@Test
+	void singleRequestFailureIsNotRetried() throws Exception {
+		var writer = writer(1);
+		assertEquals(1, get(writer.submit(1)));
+		var e = assertThrows(ExecutionException.class, () -> get(writer.submit(1)));
+		assertInstanceOf(SQLException.class, e.getCause());
+		assertEquals(List.of(List.of(1), List.of(1)), batches);
+	}
+
+	@Test
+	void wrongNumberOfResultsFailsTheBatch() {
+		var config = new SystemsConfig.BatchWriteConfig();
+		config.setMaxBatchSize(2);
+		config.setLingerMillis(TimeUnit.MINUTES.toMillis(1));
+		var writer = new BatchWriter<Integer, Integer>("test", config, (con, requests) -> List.of(0));
+		var first = writer.submit(1);
+		var second = writer.submit(2);
+		for (var result : List.of(first, second)) {
+			var e = assertThrows(ExecutionException.class, () -> get(result));
+			assertInstanceOf(IllegalStateException.class, e.getCause());
+		}
+	}
+
+	/**
+	 * Creates a writer which only writes full batches, so that the requests
+	 * that are submitted together always share a batch.
+	 * @param batchSize The size of each batch.
+	 * @return The writer.
+	 */
+	private BatchWriter<Integer, Integer> writer(int batchSize) {
+		var config = new SystemsConfig.BatchWriteConfig();
+		config.setMaxBatchSize(batchSize);
+		config.setLingerMillis(TimeUnit.MINUTES.toMillis(1));
+		return new BatchWriter<>("test", config, (con, requests) -> {
+			batches.add(List.copyOf(requests));
+			try (var stmt = con.prepareStatement("INSERT INTO batch_test (value) VALUES (?)")) {
+				for (int value : requests) {
+					stmt.setInt(1, value);
+					stmt.executeUpdate();
+				}
+			}
+			return requests;
+		});
+	}
+
+	private static List<CompletableFuture<Integer>> submitAll(BatchWriter<Integer, Integer> writer, int... values) {
+		List<CompletableFuture<Integer>> results = new ArrayList<>();
+		for (int value : values) {
+			results.add(writer.submit(value));
+		}
+		return results;
+	}
+
+	private static int get(CompletableFuture<Integer> result) throws ExecutionException, InterruptedException, TimeoutException {
+		return result.get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+	}
+
+	private static List<Integer> storedValues() throws SQLException {
+		List<Integer> values = new ArrayList<>();
+		try (var con = Bot.hikariDataSource.getConnection();
+			var rs = con.createStatement().executeQuery("SELECT value FROM batch_test ORDER BY value")) {
+			while (rs.next()) {
+				values.add(rs.getInt(1));
+			}
+		}
+		return values;
+	}
+}
@@ -0,0 +1,119 @@
+package net.javadiscord.javabot2.db;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import org.h2.tools.Server;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * Compares the latency of a single query when the database file is accessed
+ * in-process, and when it's accessed through an H2 TCP server on this
+ * machine, which is how the bot used to always access it. Each query gets a
+ * connection from the pool and looks up a row by its primary key, like the
+ * repositories do. Run it with {@code gradle benchmark}.
+ */
+public final class H2AccessBenchmark {
+	private static final int ROWS = 1000;
+	private static final int WARMUP_QUERIES = 5000;
+	private static final int QUERIES = 20000;
+	private static final double NANOS_PER_MICRO = 1000.0;
+
+	private H2AccessBenchmark() {}
+
+	/**
+	 * Runs the benchmark against a new database in a temporary directory.
+	 * @param args Unused.
+	 * @throws IOException If the temporary directory can't be created.
+	 * @throws SQLException If an error occurs.
+	 */
+	public static void main(String[] args) throws IOException, SQLException {
+		Path dir = Files.createTempDirectory("h2-benchmark");
+		String file = dir.resolve("benchmark").toString();
+		var server = Server.createTcpServer("-tcpPort", "0", "-ifNotExists").start();
+		try {
+			String inProcessUrl = "jdbc:h2:file:" + file;
+			createTable(inProcessUrl);
+			System.out.println("In-process: " + measure(inProcessUrl));
+			System.out.println("TCP server: " + measure("jdbc:h2:tcp://localhost:" + server.getPort() + "/" + file));
+		} finally {
+			server.stop();
+			try (var paths = Files.walk(dir)) {
+				paths.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+			}
+		}
+	}
+
+	private static void createTable(String jdbcUrl) throws SQLException {
+		try (var ds = dataSource(jdbcUrl); var con = ds.getConnection()) {
+			con.createStatement().execute("CREATE TABLE item (id BIGINT PRIMARY KEY, name VARCHAR(64) NOT NULL)");
+			try (var stmt = con.prepareStatement("INSERT INTO item (id, name) VALUES (?, ?)")) {
+				for (int i = 0; i < ROWS; i++) {
+					stmt.setLong(1, i);
+					stmt.setString(2, "item-" + i);
+					stmt.executeUpdate();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Times each lookup after the database has been warmed up.
+	 * @param jdbcUrl The URL to connect to.
+	 * @return The latency of the timed lookups.
+	 * @throws SQLException If an error occurs.
+	 */
+	private static Latency measure(String jdbcUrl) throws SQLException {
+		long[] nanos = new long[QUERIES];
+		try (var ds = dataSource(jdbcUrl)) {
+			for (int i = 0; i < WARMUP_QUERIES; i++) {
+				query(ds, i % ROWS);
+			}
+			for (int i = 0; i < QUERIES; i++) {
+				long start = System.nanoTime();
+				query(ds, i % ROWS);
+				nanos[i] = System.nanoTime() - start;
+			}
+		}
+		Arrays.sort(nanos);
+		return new Latency(
+				Arrays.stream(nanos).average().orElse(0) / NANOS_PER_MICRO,
+				nanos[QUERIES / 2] / NANOS_PER_MICRO,
+				nanos[QUERIES * 99 / 100] / NANOS_PER_MICRO
+		);
+	}
+
+	private static void query(HikariDataSource ds, long id) throws SQLException {
+		try (var con = ds.getConnection(); var stmt = con.prepareStatement("SELECT name FROM item WHERE id = ?")) {
+			stmt.setLong(1, id);
+			var rs = stmt.executeQuery();
+			if (!rs.next()) throw new IllegalStateException("Missing item " + id);
+		}
+	}
+
+	private static HikariDataSource dataSource(String jdbcUrl) {
+		var config = new HikariConfig();
+		config.setJdbcUrl(jdbcUrl);
+		config.setMaximumPoolSize(1);
+		return new HikariDataSource(config);
+	}
+
+	/**
+	 * The latency of the timed queries, in microseconds.
+	 * @param mean The mean latency.
+	 * @param p50 The median latency.
+	 * @param p99 The 99th percentile latency.
+	 */
+	private record Latency(double mean, double p50, double p99) {
+		@Override
+		public String toString() {
+			return String.format("mean %.1f us, p50 %.1f us, p99 %.1f us", mean, p50, p99);
+		}
+	}
+}
@@ -0,0 +1,103 @@
+package net.javadiscord.javabot2.db;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+/**
+ * Tests for {@link MigrationRunner}, on in-memory databases that are kept
+ * open by a connection until each test is done.
+ */
+class MigrationRunnerTest {
+	private static final AtomicInteger DATABASES = new AtomicInteger();
+
+	private final JdbcDataSource dataSource = new JdbcDataSource();
+	private Connection keepAlive;
+
+	@BeforeEach
+	void setUp() throws SQLException {
+		dataSource.setURL("jdbc:h2:mem:migration-" + DATABASES.incrementAndGet());
+		keepAlive = dataSource.getConnection();
+	}
+
+	@AfterEach
+	void tearDown() throws SQLException {
+		keepAlive.close();
+	}
+
+	@Test
+	void newDatabaseIsMigratedToTheLatestVersion() throws Exception {
+		MigrationRunner.migrate(dataSource);
+		assertEquals(allVersions(), appliedVersions());
+	}
+
+	@Test
+	void baselineDatabaseKeepsItsData() throws Exception {
+		// A database that was created from the schema.sql that came before migrations.
+		try (var s = keepAlive.createStatement()) {
+			for (var statement : readResource("/db/baseline_schema.sql").split(";")) {
+				if (!statement.isBlank()) s.executeUpdate(statement);
+			}
+			s.executeUpdate("INSERT INTO warn (user_id, warned_by, severity, severity_weight, reason) VALUES (1, 2, 'LOW', 10, 'test')");
+			s.executeUpdate("INSERT INTO mute (user_id, muted_by, reason, ends_at) VALUES (1, 2, 'test', CURRENT_TIMESTAMP(0))");
+		}
+		MigrationRunner.migrate(dataSource);
+		assertEquals(allVersions(), appliedVersions());
+		assertEquals(1, count("warn"));
+		assertEquals(1, count("mute"));
+	}
+
+	@Test
+	void migrationsAreOnlyAppliedOnce() throws Exception {
+		MigrationRunner.migrate(dataSource);
+		MigrationRunner.migrate(dataSource);
+		assertEquals(allVersions(), appliedVersions());
+	}
+
+	/**
+	 * Gets the versions of all migrations, which are numbered from 1.
+	 * @return The versions.
+	 * @throws IOException If the index can't be read.
+	 */
+	private static List<Integer> allVersions() throws IOException {
+		int count = (int) readResource("/db/migrations/index.txt").lines().filter(line -> !line.isBlank()).count();
+		return IntStream.rangeClosed(1, count).boxed().toList();
+	}
+
+	private List<Integer> appliedVersions() throws SQLException {
+		List<Integer> versions = new ArrayList<>();
+		try (var s = keepAlive.createStatement(); var rs = s.executeQuery("SELECT version FROM schema_version ORDER BY version")) {
+			while (rs.next()) {
+				versions.add(rs.getInt(1));
+			}
+		}
+		return versions;
+	}
+
+	private int count(String table) throws SQLException {
+		try (var s = keepAlive.createStatement(); var rs = s.executeQuery("SELECT COUNT(*) FROM " + table)) {
+			rs.next();
+			return rs.getInt(1);
+		}
+	}
+
+	private static String readResource(String resource) throws IOException {
+		try (var is = MigrationRunnerTest.class.getResourceAsStream(resource)) {
+			assertNotNull(is, resource);
+			return new String(is.readAllBytes(), StandardCharsets.UTF_8);
+		}
+	}
+}
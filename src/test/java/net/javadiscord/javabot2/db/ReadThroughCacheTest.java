@@ -0,0 +1,79 @@
+package net.javadiscord.javabot2.db;
+
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Tests for {@link ReadThroughCache}, whose loader gives the number of loads
+ * so far, so that each test can tell which load a value came from.
+ */
+class ReadThroughCacheTest {
+	private static final long A = 1;
+	private static final long B = 2;
+	private static final long C = 3;
+
+	private final AtomicInteger loads = new AtomicInteger();
+	private final ReadThroughCache<Long, Integer> cache = new ReadThroughCache<>("test", 2);
+
+	@Test
+	void valueIsLoadedOnce() throws SQLException {
+		assertEquals(1, get(A));
+		assertEquals(1, get(A));
+		assertEquals(1, loads.get());
+	}
+
+	@Test
+	void invalidatedValueIsReloaded() throws SQLException {
+		get(A);
+		cache.invalidate(A);
+		assertEquals(2, get(A));
+	}
+
+	@Test
+	void valueIsNotCachedIfInvalidatedWhileLoading() throws SQLException {
+		assertEquals(1, cache.get(A, () -> {
+			cache.invalidate(A);
+			return loads.incrementAndGet();
+		}));
+		assertEquals(2, get(A));
+		assertEquals(2, get(A));
+	}
+
+	@Test
+	void valueIsNotCachedIfAnotherKeyIsInvalidatedWhileLoading() throws SQLException {
+		assertEquals(1, cache.get(A, () -> {
+			cache.invalidate(B);
+			return loads.incrementAndGet();
+		}));
+		assertEquals(2, get(A));
+	}
+
+	@Test
+	void leastRecentlyUsedValueIsEvicted() throws SQLException {
+		get(A);
+		get(B);
+		get(A);
+		get(C);
+		assertEquals(3, loads.get());
+		assertEquals(1, get(A));
+		assertEquals(4, get(B));
+	}
+
+	@Test
+	void failedLoadIsNotCached() throws SQLException {
+		assertThrows(SQLException.class, () -> cache.get(A, () -> {
+			loads.incrementAndGet();
+			throw new SQLException("Load failed.");
+		}));
+		assertEquals(2, get(A));
+	}
+
+	private int get(long key) throws SQLException {
+		return cache.get(key, loads::incrementAndGet);
+	}
+}
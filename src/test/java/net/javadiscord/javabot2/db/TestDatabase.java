@@ -0,0 +1,55 @@
+package net.javadiscord.javabot2.db;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import net.javadiscord.javabot2.Bot;
+import net.javadiscord.javabot2.util.MonitoredExecutor;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Sets up the bot's data source and pools for tests, using a fresh in-memory
+ * database which is migrated to the latest schema.
+ */
+public final class TestDatabase {
+	private static final AtomicInteger DATABASES = new AtomicInteger();
+
+	private TestDatabase() {}
+
+	/**
+	 * Creates a new database, and the pools that database actions are run on.
+	 * @throws IOException If a migration can't be read.
+	 * @throws SQLException If a migration fails.
+	 */
+	public static void start() throws IOException, SQLException {
+		var hikariConfig = new HikariConfig();
+		hikariConfig.setJdbcUrl("jdbc:h2:mem:test-" + DATABASES.incrementAndGet());
+		hikariConfig.setMaximumPoolSize(2);
+		Bot.hikariDataSource = new HikariDataSource(hikariConfig);
+		MigrationRunner.migrate(Bot.hikariDataSource);
+		Bot.databasePool = new MonitoredExecutor("database", 2, 100);
+		Bot.asyncPool = Executors.newScheduledThreadPool(2);
+		Bot.timerPool = Executors.newSingleThreadScheduledExecutor();
+	}
+
+	/**
+	 * Shuts down the pools, cancelling any scheduled tasks, and closes the
+	 * data source, which drops the database once its last connection is
+	 * closed.
+	 * @throws InterruptedException If interrupted while waiting for the
+	 * pools to finish.
+	 */
+	public static void stop() throws InterruptedException {
+		Bot.timerPool.shutdownNow();
+		Bot.asyncPool.shutdownNow();
+		Bot.databasePool.shutdown();
+		Bot.timerPool.awaitTermination(1, TimeUnit.SECONDS);
+		Bot.asyncPool.awaitTermination(1, TimeUnit.SECONDS);
+		Bot.databasePool.awaitTermination(1, TimeUnit.SECONDS);
+		Bot.hikariDataSource.close();
+	}
+}
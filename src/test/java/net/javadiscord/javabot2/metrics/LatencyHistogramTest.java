@@ -0,0 +1,77 @@
+package net.javadiscord.javabot2.metrics;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests for {@link LatencyHistogram}.
+ */
+class LatencyHistogramTest {
+	private static final long NANOS_PER_MICRO = 1000;
+
+	/**
+	 * The most that a percentile may be above the true value, which is the
+	 * width of a sub-bucket relative to its lowest value.
+	 */
+	private static final double MAX_RELATIVE_ERROR = 0.125;
+
+	@Test
+	void emptySnapshotIsZero() {
+		assertEquals(new LatencyHistogram.Snapshot(0, 0, 0, 0), new LatencyHistogram().snapshot());
+	}
+
+	@Test
+	void smallValuesAreExact() {
+		var histogram = new LatencyHistogram();
+		for (long micros = 1; micros <= 7; micros++) {
+			histogram.record(micros * NANOS_PER_MICRO);
+		}
+		assertEquals(new LatencyHistogram.Snapshot(7, 4, 7, 7), histogram.snapshot());
+	}
+
+	@Test
+	void negativeAndSubMicrosecondValuesAreZero() {
+		var histogram = new LatencyHistogram();
+		histogram.record(-5);
+		histogram.record(999);
+		assertEquals(new LatencyHistogram.Snapshot(2, 0, 0, 0), histogram.snapshot());
+	}
+
+	@Test
+	void percentilesAreCappedAtTheMaximum() {
+		var histogram = new LatencyHistogram();
+		histogram.record(1000 * NANOS_PER_MICRO);
+		assertEquals(new LatencyHistogram.Snapshot(1, 1000, 1000, 1000), histogram.snapshot());
+	}
+
+	@Test
+	void singleValuesAreWithinTheRelativeError() {
+		for (long micros = 1; micros < 10_000_000; micros = micros * 3 / 2 + 1) {
+			var histogram = new LatencyHistogram();
+			histogram.record(micros * NANOS_PER_MICRO);
+			histogram.record(Long.MAX_VALUE);
+			// With two values, the median is the smaller one's bucket.
+			long p50 = histogram.snapshot().p50Micros();
+			assertTrue(p50 >= micros && p50 <= micros * (1 + MAX_RELATIVE_ERROR), micros + " gave " + p50);
+		}
+	}
+
+	@Test
+	void percentilesOfUniformValues() {
+		var histogram = new LatencyHistogram();
+		for (long millis = 1; millis <= 100; millis++) {
+			histogram.record(millis * NANOS_PER_MICRO * 1000);
+		}
+		var snapshot = histogram.snapshot();
+		assertEquals(100, snapshot.count());
+		assertEquals(100_000, snapshot.maxMicros());
+		assertBetween(50_000, (long) (50_000 * (1 + MAX_RELATIVE_ERROR)), snapshot.p50Micros());
+		assertBetween(99_000, 100_000, snapshot.p99Micros());
+	}
+
+	private static void assertBetween(long min, long max, long actual) {
+		assertTrue(actual >= min && actual <= max, actual + " is not between " + min + " and " + max);
+	}
+}
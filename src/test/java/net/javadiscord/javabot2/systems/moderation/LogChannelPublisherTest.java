@@ -0,0 +1,253 @@
+package net.javadiscord.javabot2.systems.moderation;
+
+import net.javadiscord.javabot2.Bot;
+import net.javadiscord.javabot2.config.BotConfig;
+import org.javacord.api.entity.channel.ServerTextChannel;
+import org.javacord.api.entity.message.Message;
+import org.javacord.api.entity.message.embed.EmbedBuilder;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.lang.reflect.Proxy;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Tests for {@link LogChannelPublisher}, which send to channels that record
+ * each message, and only finish sending it once the test says so.
+ * <p>
+ *     Each test first publishes one embed, and keeps its message from being
+ *     sent, so that the embeds which are published after it are all waiting
+ *     when the next message is packed.
+ * </p>
+ */
+class LogChannelPublisherTest {
+	private static final AtomicLong GUILDS = new AtomicLong();
+	private static final long TIMEOUT_SECONDS = 5;
+	private static final int SHORT_LENGTH = 100;
+
+	@TempDir
+	Path configDir;
+
+	private final BlockingQueue<SentMessage> sent = new LinkedBlockingQueue<>();
+	private final ServerTextChannel channel = channel(1);
+	private LogChannelPublisher publisher;
+
+	@BeforeEach
+	void setUp() {
+		Bot.config = new BotConfig(configDir);
+		Bot.config.getSystems().getLogPublisherConfig().setLingerMillis(0);
+		Bot.asyncPool = Executors.newScheduledThreadPool(1);
+		Bot.timerPool = Executors.newSingleThreadScheduledExecutor();
+		publisher = LogChannelPublisher.forGuild(GUILDS.incrementAndGet());
+	}
+
+	@AfterEach
+	void tearDown() {
+		Bot.timerPool.shutdownNow();
+		Bot.asyncPool.shutdownNow();
+	}
+
+	@Test
+	void atMostTenEmbedsAreSentPerMessage() throws Exception {
+		var held = hold();
+		List<EmbedBuilder> embeds = new ArrayList<>();
+		List<CompletableFuture<Void>> results = new ArrayList<>();
+		for (int i = 0; i < 12; i++) {
+			embeds.add(new EmbedBuilder());
+			results.add(publisher.publish(channel, embeds.get(i), SHORT_LENGTH, ModerationEmbeds.Action.WARN));
+		}
+		held.complete();
+		var first = nextMessage();
+		assertEquals(embeds.subList(0, 10), first.embeds());
+		assertFalse(results.get(0).isDone());
+		first.complete();
+		results.get(9).get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+		assertFalse(results.get(10).isDone());
+		var second = nextMessage();
+		assertEquals(embeds.subList(10, 12), second.embeds());
+		second.complete();
+		results.get(11).get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+		assertNoMessage();
+	}
+
+	@Test
+	void atMostSixThousandCharactersAreSentPerMessage() throws Exception {
+		var held = hold();
+		var first = publish(2500, ModerationEmbeds.Action.WARN);
+		var second = publish(3500, ModerationEmbeds.Action.WARN);
+		var third = publish(1, ModerationEmbeds.Action.WARN);
+		// An embed that's too long on its own is still sent, by itself.
+		var tooLong = publish(7000, ModerationEmbeds.Action.WARN);
+		var last = publish(SHORT_LENGTH, ModerationEmbeds.Action.WARN);
+		held.complete();
+		assertMessage(first, second);
+		assertMessage(third);
+		assertMessage(tooLong);
+		assertMessage(last);
+		assertNoMessage();
+	}
+
+	@Test
+	void bansAndMutesAreSentFirst() throws Exception {
+		var held = hold();
+		var warn = publish(SHORT_LENGTH, ModerationEmbeds.Action.WARN);
+		var mute = publish(SHORT_LENGTH, ModerationEmbeds.Action.MUTE);
+		var unmute = publish(SHORT_LENGTH, ModerationEmbeds.Action.UNMUTE);
+		var ban = publish(SHORT_LENGTH, ModerationEmbeds.Action.BAN);
+		held.complete();
+		assertMessage(mute, ban, warn, unmute);
+	}
+
+	@Test
+	void embedsForDifferentChannelsAreSentSeparately() throws Exception {
+		var otherChannel = channel(2);
+		var held = hold();
+		var first = new EmbedBuilder();
+		var second = new EmbedBuilder();
+		var third = new EmbedBuilder();
+		publisher.publish(channel, first, SHORT_LENGTH, ModerationEmbeds.Action.WARN);
+		publisher.publish(otherChannel, second, SHORT_LENGTH, ModerationEmbeds.Action.WARN);
+		publisher.publish(channel, third, SHORT_LENGTH, ModerationEmbeds.Action.WARN);
+		held.complete();
+		var firstMessage = nextMessage();
+		assertEquals(List.of(first), firstMessage.embeds());
+		firstMessage.complete();
+		var secondMessage = nextMessage();
+		assertEquals(otherChannel.getId(), secondMessage.channelId());
+		assertEquals(List.of(second), secondMessage.embeds());
+		secondMessage.complete();
+		assertMessage(third);
+	}
+
+	@Test
+	void failedMessageFailsOnlyItsEmbeds() throws Exception {
+		var failed = nextMessageAfter(publisher.publish(channel, new EmbedBuilder(), SHORT_LENGTH, ModerationEmbeds.Action.WARN));
+		var laterEmbed = new EmbedBuilder();
+		var later = publisher.publish(channel, laterEmbed, SHORT_LENGTH, ModerationEmbeds.Action.WARN);
+		failed.message().result().completeExceptionally(new IllegalStateException("Send failed."));
+		var e = assertThrows(ExecutionException.class, () -> failed.published().get(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+		assertInstanceOf(IllegalStateException.class, e.getCause());
+		var next = nextMessage();
+		assertEquals(List.of(laterEmbed), next.embeds());
+		next.complete();
+		later.get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+	}
+
+	@Test
+	void fullBacklogRejectsEmbeds() throws Exception {
+		Bot.config.getSystems().getLogPublisherConfig().setMaxBacklog(3);
+		var held = hold();
+		var first = publish(SHORT_LENGTH, ModerationEmbeds.Action.WARN);
+		var second = publish(SHORT_LENGTH, ModerationEmbeds.Action.WARN);
+		var third = publish(SHORT_LENGTH, ModerationEmbeds.Action.BAN);
+		var rejected = publisher.publish(channel, new EmbedBuilder(), SHORT_LENGTH, ModerationEmbeds.Action.BAN);
+		var e = assertThrows(ExecutionException.class, () -> rejected.get(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+		assertInstanceOf(RejectedExecutionException.class, e.getCause());
+		held.complete();
+		assertMessage(third, first, second);
+	}
+
+	/**
+	 * Publishes an embed, and waits for the message that it's sent in, which
+	 * isn't finished until the test completes it.
+	 * @return The message.
+	 * @throws InterruptedException If interrupted while waiting.
+	 */
+	private SentMessage hold() throws InterruptedException {
+		return nextMessageAfter(publisher.publish(channel, new EmbedBuilder(), SHORT_LENGTH, ModerationEmbeds.Action.WARN)).message();
+	}
+
+	private EmbedBuilder publish(int length, ModerationEmbeds.Action action) {
+		var embed = new EmbedBuilder();
+		publisher.publish(channel, embed, length, action);
+		return embed;
+	}
+
+	private Published nextMessageAfter(CompletableFuture<Void> published) throws InterruptedException {
+		var message = nextMessage();
+		assertNoMessage();
+		return new Published(published, message);
+	}
+
+	/**
+	 * Checks that the next message contains exactly the given embeds, and
+	 * then finishes sending it.
+	 * @param embeds The expected embeds.
+	 * @throws InterruptedException If interrupted while waiting.
+	 */
+	private void assertMessage(EmbedBuilder... embeds) throws InterruptedException {
+		var message = nextMessage();
+		assertEquals(List.of(embeds), message.embeds());
+		message.complete();
+	}
+
+	private SentMessage nextMessage() throws InterruptedException {
+		var message = sent.poll(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+		assertNotNull(message, "No message was sent.");
+		return message;
+	}
+
+	private void assertNoMessage() {
+		assertNull(sent.peek(), "Unexpected message.");
+	}
+
+	/**
+	 * Creates a channel which records each message that's sent to it.
+	 * @param id The id of the channel.
+	 * @return The channel.
+	 */
+	@SuppressWarnings("unchecked")
+	private ServerTextChannel channel(long id) {
+		return (ServerTextChannel) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{ServerTextChannel.class}, (proxy, method, args) ->
+			switch (method.getName()) {
+				case "getId" -> id;
+				case "sendMessage" -> {
+					var message = new SentMessage(id, (List<EmbedBuilder>) args[0], new CompletableFuture<>());
+					sent.add(message);
+					yield message.result();
+				}
+				case "hashCode" -> Long.hashCode(id);
+				case "equals" -> proxy == args[0];
+				default -> throw new UnsupportedOperationException(method.getName());
+			}
+		);
+	}
+
+	/**
+	 * A message that was sent to a channel.
+	 * @param channelId The id of the channel.
+	 * @param embeds The message's embeds.
+	 * @param result The future that's completed once the message is sent.
+	 */
+	private record SentMessage(long channelId, List<EmbedBuilder> embeds, CompletableFuture<Message> result) {
+		void complete() {
+			result.complete(null);
+		}
+	}
+
+	/**
+	 * An embed that was published, and the message that it's being sent in.
+	 * @param published The future returned when it was published.
+	 * @param message The message.
+	 */
+	private record Published(CompletableFuture<Void> published, SentMessage message) {}
+}
@@ -0,0 +1,314 @@
+package net.javadiscord.javabot2.systems.moderation;
+
+import net.javadiscord.javabot2.Bot;
+import net.javadiscord.javabot2.config.BotConfig;
+import net.javadiscord.javabot2.db.TestDatabase;
+import net.javadiscord.javabot2.systems.moderation.dao.OutboxRepository;
+import net.javadiscord.javabot2.systems.moderation.model.OutboxEffect;
+import net.javadiscord.javabot2.systems.moderation.model.OutboxMessage;
+import org.javacord.api.DiscordApi;
+import org.javacord.api.entity.channel.ServerTextChannel;
+import org.javacord.api.entity.message.embed.EmbedBuilder;
+import org.javacord.api.entity.permission.Role;
+import org.javacord.api.entity.server.Server;
+import org.javacord.api.entity.user.User;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.lang.reflect.Proxy;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests for {@link ModerationOutbox}, which deliver role changes to users
+ * that record each change, and embeds to users and a log channel that count
+ * them. A test can make a user's next changes fail.
+ */
+class ModerationOutboxTest {
+	private static final long GUILD = 1;
+	private static final long ACTOR = 2;
+	private static final long USER = 3;
+	private static final long OTHER_USER = 4;
+	private static final long LOG_CHANNEL = 5;
+	private static final long BACKOFF_MILLIS = 200;
+	private static final Duration TIMEOUT = Duration.ofSeconds(5);
+
+	@TempDir
+	Path configDir;
+
+	private final ModerationOutbox outbox = ModerationOutbox.getInstance();
+	private final Queue<Change> changes = new ConcurrentLinkedQueue<>();
+	private final Map<Long, Queue<Throwable>> failures = new ConcurrentHashMap<>();
+	private final AtomicInteger loggedEmbeds = new AtomicInteger();
+	private final AtomicInteger directMessages = new AtomicInteger();
+	private final AtomicInteger actorLookups = new AtomicInteger();
+	private ServerTextChannel logChannel;
+
+	@BeforeEach
+	void setUp() throws Exception {
+		Bot.config = new BotConfig(configDir);
+		var config = Bot.config.getSystems().getOutboxConfig();
+		config.setPollSeconds((int) TIMEOUT.toSeconds() * 2);
+		config.setInitialBackoffMillis(BACKOFF_MILLIS);
+		Bot.config.getSystems().getLogPublisherConfig().setLingerMillis(0);
+		TestDatabase.start();
+		outbox.start(api());
+	}
+
+	@AfterEach
+	void tearDown() throws Exception {
+		TestDatabase.stop();
+	}
+
+	@Test
+	void eachUsersMessagesAreDeliveredInOrder() throws Exception {
+		insert(
+				message(USER, OutboxEffect.ADD_MUTE_ROLE),
+				message(OTHER_USER, OutboxEffect.ADD_MUTE_ROLE),
+				message(USER, OutboxEffect.REMOVE_MUTE_ROLE),
+				message(USER, OutboxEffect.ADD_MUTE_ROLE),
+				message(OTHER_USER, OutboxEffect.REMOVE_MUTE_ROLE)
+		);
+		outbox.wake();
+		awaitOutbox(List::isEmpty);
+		assertEquals(List.of(OutboxEffect.ADD_MUTE_ROLE, OutboxEffect.REMOVE_MUTE_ROLE, OutboxEffect.ADD_MUTE_ROLE), changesFor(USER));
+		assertEquals(List.of(OutboxEffect.ADD_MUTE_ROLE, OutboxEffect.REMOVE_MUTE_ROLE), changesFor(OTHER_USER));
+	}
+
+	@Test
+	void failedMessageIsRetriedWithBackoffBeforeLaterMessages() throws Exception {
+		fail(USER, new IllegalStateException("Server error"), new IllegalStateException("Server error"));
+		insert(message(USER, OutboxEffect.ADD_MUTE_ROLE), message(USER, OutboxEffect.REMOVE_MUTE_ROLE), message(OTHER_USER, OutboxEffect.ADD_MUTE_ROLE));
+		var beforeFirst = LocalDateTime.now();
+		outbox.wake();
+		var retry = awaitOutbox(rows -> rows.size() == 2 && rows.get(0).attempts() == 1).get(0);
+		assertEquals(OutboxEffect.ADD_MUTE_ROLE, retry.effect());
+		assertFalse(retry.failed());
+		assertBackoff(beforeFirst, retry, BACKOFF_MILLIS);
+		assertEquals(List.of(OutboxEffect.ADD_MUTE_ROLE), changesFor(OTHER_USER));
+
+		// The second attempt waits twice as long.
+		var beforeSecond = LocalDateTime.now();
+		sleepUntil(retry.nextAttemptAt());
+		outbox.wake();
+		retry = awaitOutbox(rows -> rows.get(0).attempts() == 2).get(0);
+		assertBackoff(beforeSecond, retry, BACKOFF_MILLIS * 2);
+
+		sleepUntil(retry.nextAttemptAt());
+		outbox.wake();
+		awaitOutbox(List::isEmpty);
+		assertEquals(List.of(OutboxEffect.ADD_MUTE_ROLE, OutboxEffect.ADD_MUTE_ROLE, OutboxEffect.ADD_MUTE_ROLE, OutboxEffect.REMOVE_MUTE_ROLE), changesFor(USER));
+	}
+
+	@Test
+	void permanentlyFailedMessageIsKeptAndLaterMessagesAreDelivered() throws Exception {
+		fail(USER, new NoSuchElementException("Unknown role"));
+		insert(message(USER, OutboxEffect.ADD_MUTE_ROLE), message(USER, OutboxEffect.REMOVE_MUTE_ROLE));
+		outbox.wake();
+		var failed = awaitOutbox(rows -> rows.size() == 1).get(0);
+		assertTrue(failed.failed());
+		assertEquals(1, failed.attempts());
+		assertEquals(OutboxEffect.ADD_MUTE_ROLE, failed.effect());
+		assertEquals(List.of(OutboxEffect.ADD_MUTE_ROLE, OutboxEffect.REMOVE_MUTE_ROLE), changesFor(USER));
+	}
+
+	@Test
+	void usersWithOnlyLogMessagesAreAllDelivered() throws Exception {
+		insert(logMessage(USER), logMessage(OTHER_USER));
+		outbox.wake();
+		awaitOutbox(List::isEmpty);
+		assertEquals(2, loggedEmbeds.get());
+	}
+
+	@Test
+	void anActionsEmbedIsRenderedOnceForAllItsMessages() throws Exception {
+		var values = Map.of("reason", "test");
+		String action = ModerationEmbeds.Action.MUTE.name();
+		insert(
+				new OutboxMessage(GUILD, USER, ACTOR, OutboxEffect.DIRECT_MESSAGE, action, null, values),
+				new OutboxMessage(GUILD, USER, ACTOR, OutboxEffect.LOG, action, null, values)
+		);
+		outbox.wake();
+		awaitOutbox(List::isEmpty);
+		assertEquals(1, directMessages.get());
+		assertEquals(1, loggedEmbeds.get());
+		// The actor is only looked up to render the embed.
+		assertEquals(1, actorLookups.get());
+	}
+
+	private static void assertBackoff(LocalDateTime before, Row row, long backoffMillis) {
+		assertFalse(row.nextAttemptAt().isBefore(before.plus(backoffMillis, ChronoUnit.MILLIS)));
+		assertTrue(row.nextAttemptAt().isBefore(LocalDateTime.now().plus(backoffMillis, ChronoUnit.MILLIS)));
+	}
+
+	private static OutboxMessage message(long userId, OutboxEffect effect) {
+		return new OutboxMessage(GUILD, userId, ACTOR, effect, null, null, Map.of("reason", "test"));
+	}
+
+	private static OutboxMessage logMessage(long userId) {
+		return new OutboxMessage(GUILD, userId, ACTOR, OutboxEffect.LOG, ModerationEmbeds.Action.UNMUTE.name(), null, Map.of());
+	}
+
+	/**
+	 * Inserts messages in a single transaction, like a moderation action does,
+	 * so that a drain sees either all or none of them.
+	 * @param messages The messages to insert.
+	 * @throws SQLException If an error occurs.
+	 */
+	private static void insert(OutboxMessage... messages) throws SQLException {
+		try (var con = Bot.hikariDataSource.getConnection()) {
+			con.setAutoCommit(false);
+			new OutboxRepository(con).insertAll(List.of(messages));
+			con.commit();
+		}
+	}
+
+	/**
+	 * Waits until the messages in the outbox, including failed ones, match
+	 * a condition.
+	 * @param condition The condition.
+	 * @return The messages, oldest first.
+	 * @throws Exception If the condition isn't met in time.
+	 */
+	private static List<Row> awaitOutbox(Condition condition) throws Exception {
+		var deadline = LocalDateTime.now().plus(TIMEOUT);
+		while (true) {
+			List<Row> rows = new ArrayList<>();
+			try (var con = Bot.hikariDataSource.getConnection(); var s = con.createStatement();
+				var rs = s.executeQuery("SELECT effect, attempts, next_attempt_at, failed FROM moderation_outbox ORDER BY id")) {
+				while (rs.next()) {
+					rows.add(new Row(OutboxEffect.valueOf(rs.getString(1)), rs.getInt(2), rs.getTimestamp(3).toLocalDateTime(), rs.getBoolean(4)));
+				}
+			}
+			if (condition.test(rows)) return rows;
+			assertTrue(LocalDateTime.now().isBefore(deadline), "Outbox never matched: " + rows);
+			Thread.sleep(10);
+		}
+	}
+
+	private static void sleepUntil(LocalDateTime time) throws InterruptedException {
+		Thread.sleep(Math.max(0, Duration.between(LocalDateTime.now(), time).toMillis() + 1));
+	}
+
+	private void fail(long userId, Throwable... errors) {
+		failures.computeIfAbsent(userId, id -> new ConcurrentLinkedQueue<>()).addAll(List.of(errors));
+	}
+
+	private List<OutboxEffect> changesFor(long userId) {
+		return changes.stream().filter(change -> change.userId() == userId).map(Change::effect).toList();
+	}
+
+	/**
+	 * Creates an API for a bot that's only in {@link #GUILD}.
+	 * @return The API.
+	 */
+	private DiscordApi api() {
+		var role = proxy(Role.class, (method, args) -> {
+			throw new UnsupportedOperationException(method);
+		});
+		logChannel = proxy(ServerTextChannel.class, (method, args) -> switch (method) {
+			case "getId" -> LOG_CHANNEL;
+			case "asServerTextChannel" -> Optional.of(logChannel);
+			case "sendMessage" -> {
+				@SuppressWarnings("unchecked")
+				var embeds = (List<EmbedBuilder>) args[0];
+				loggedEmbeds.addAndGet(embeds.size());
+				yield CompletableFuture.runAsync(() -> {}).thenApply(v -> null);
+			}
+			default -> throw new UnsupportedOperationException(method);
+		});
+		var server = proxy(Server.class, (method, args) -> switch (method) {
+			case "getId" -> GUILD;
+			case "getRoleById" -> Optional.of(role);
+			case "getChannelById" -> Optional.of(logChannel);
+			default -> throw new UnsupportedOperationException(method);
+		});
+		return proxy(DiscordApi.class, (method, args) -> switch (method) {
+			case "getServerById" -> Optional.of(server).filter(s -> s.getId() == (long) args[0]);
+			case "getUserById" -> {
+				if ((long) args[0] == ACTOR) actorLookups.incrementAndGet();
+				yield CompletableFuture.completedFuture(user((long) args[0]));
+			}
+			default -> throw new UnsupportedOperationException(method);
+		});
+	}
+
+	/**
+	 * Creates a user which records each change to their roles.
+	 * @param userId The id of the user.
+	 * @return The user.
+	 */
+	private User user(long userId) {
+		return proxy(User.class, (method, args) -> switch (method) {
+			case "getId" -> userId;
+			case "getDiscriminatedName" -> "user#" + userId;
+			case "getAvatar" -> null;
+			case "sendMessage" -> {
+				directMessages.incrementAndGet();
+				yield CompletableFuture.completedFuture(null);
+			}
+			case "addRole", "removeRole" -> {
+				changes.add(new Change(userId, method.equals("addRole") ? OutboxEffect.ADD_MUTE_ROLE : OutboxEffect.REMOVE_MUTE_ROLE));
+				var error = failures.getOrDefault(userId, new ConcurrentLinkedQueue<>()).poll();
+				// Like Javacord's requests, the change completes on another thread.
+				yield CompletableFuture.runAsync(() -> {}).thenCompose(v -> error == null ? CompletableFuture.completedFuture(null) : CompletableFuture.failedFuture(error));
+			}
+			default -> throw new UnsupportedOperationException(method);
+		});
+	}
+
+	private static <T> T proxy(Class<T> type, Handler handler) {
+		return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (proxy, method, args) -> handler.handle(method.getName(), args)));
+	}
+
+	/**
+	 * Handles a call to a proxy.
+	 */
+	@FunctionalInterface
+	private interface Handler {
+		Object handle(String method, Object[] args);
+	}
+
+	/**
+	 * A condition on the messages in the outbox.
+	 */
+	@FunctionalInterface
+	private interface Condition {
+		boolean test(List<Row> rows);
+	}
+
+	/**
+	 * A message in the outbox.
+	 * @param effect The message's effect.
+	 * @param attempts The number of attempts to deliver it.
+	 * @param nextAttemptAt The time at which it's next due.
+	 * @param failed Whether it failed permanently.
+	 */
+	private record Row(OutboxEffect effect, int attempts, LocalDateTime nextAttemptAt, boolean failed) {}
+
+	/**
+	 * A change to a user's roles.
+	 * @param userId The id of the user.
+	 * @param effect The change.
+	 */
+	private record Change(long userId, OutboxEffect effect) {}
+}
@@ -0,0 +1,225 @@
+package net.javadiscord.javabot2.systems.moderation;
+
+import net.javadiscord.javabot2.Bot;
+import net.javadiscord.javabot2.config.BotConfig;
+import net.javadiscord.javabot2.db.TestDatabase;
+import net.javadiscord.javabot2.systems.moderation.model.OutboxEffect;
+import org.javacord.api.DiscordApi;
+import org.javacord.api.entity.user.User;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.lang.reflect.Proxy;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests for {@link MuteExpiryScheduler}, which check when users' mutes are
+ * discarded. Mutes end on whole seconds, since that's how precisely their
+ * ending times are stored. The bot isn't in any servers, so the outbox
+ * messages that unmute a user are never delivered, and are kept as failed.
+ */
+class MuteExpirySchedulerTest {
+	private static final long GUILD = 1;
+	private static final long BOT = 2;
+	private static final AtomicLong USERS = new AtomicLong();
+	private static final Duration TIMEOUT = Duration.ofSeconds(5);
+	private static final long MARGIN_MILLIS = 300;
+	private static final long RETRY_MILLIS = MARGIN_MILLIS * 2;
+
+	@TempDir
+	Path configDir;
+
+	private final MuteExpiryScheduler scheduler = MuteExpiryScheduler.getInstance();
+
+	@BeforeEach
+	void setUp() throws Exception {
+		Bot.config = new BotConfig(configDir);
+		Bot.config.getSystems().setMuteExpiryRetryMillis(RETRY_MILLIS);
+		TestDatabase.start();
+		var api = api();
+		// Another test may have started the outbox with a bot that can deliver its messages.
+		ModerationOutbox.getInstance().start(api);
+		scheduler.start(api);
+		awaitDatabaseIdle();
+	}
+
+	@AfterEach
+	void tearDown() throws Exception {
+		TestDatabase.stop();
+	}
+
+	@Test
+	void existingMutesAreScheduledOnStart() throws Exception {
+		var now = LocalDateTime.now();
+		long ended = insert(USERS.incrementAndGet(), now.minusMinutes(1));
+		long endingSoon = insert(USERS.incrementAndGet(), nextSecond().plusSeconds(1));
+		long endingLater = insert(USERS.incrementAndGet(), now.plusHours(1));
+		scheduler.start(api());
+		awaitDiscarded(ended);
+		awaitDiscarded(endingSoon);
+		assertFalse(isDiscarded(endingLater));
+	}
+
+	@Test
+	void muteThatWasExtendedIsKeptUntilItsLastEnd() throws Exception {
+		long userId = USERS.incrementAndGet();
+		var firstEnd = nextSecond();
+		long first = insert(userId, firstEnd);
+		// The extension is written without the scheduler seeing it.
+		long extension = insert(userId, firstEnd.plusSeconds(1));
+		scheduler.schedule(GUILD, userId, firstEnd);
+		sleepUntil(firstEnd.plus(MARGIN_MILLIS, ChronoUnit.MILLIS));
+		assertFalse(isDiscarded(first));
+		awaitDiscarded(first);
+		assertTrue(isDiscarded(extension));
+	}
+
+	@Test
+	void laterDeadlineIsKept() throws Exception {
+		long userId = USERS.incrementAndGet();
+		var end = nextSecond();
+		long mute = insert(userId, end);
+		scheduler.schedule(GUILD, userId, end.plusSeconds(1));
+		scheduler.schedule(GUILD, userId, end);
+		sleepUntil(end.plus(MARGIN_MILLIS, ChronoUnit.MILLIS));
+		assertFalse(isDiscarded(mute));
+		awaitDiscarded(mute);
+	}
+
+	@Test
+	void cancelledDeadlineDoesNothing() throws Exception {
+		long userId = USERS.incrementAndGet();
+		var now = LocalDateTime.now();
+		long mute = insert(userId, now.minusMinutes(1));
+		scheduler.schedule(GUILD, userId, now.plus(MARGIN_MILLIS, ChronoUnit.MILLIS));
+		scheduler.cancel(GUILD, userId);
+		sleepUntil(now.plus(MARGIN_MILLIS * 2, ChronoUnit.MILLIS));
+		assertFalse(isDiscarded(mute));
+	}
+
+	@Test
+	void failedUnmuteIsRetried() throws Exception {
+		long mute = insert(USERS.incrementAndGet(), LocalDateTime.now().minusMinutes(1));
+		// Hiding the table makes the first attempt fail.
+		renameMuteTable("mute", "hidden_mute");
+		try {
+			scheduler.schedule(GUILD, USERS.get(), LocalDateTime.now());
+			Thread.sleep(MARGIN_MILLIS);
+		} finally {
+			renameMuteTable("hidden_mute", "mute");
+		}
+		assertFalse(isDiscarded(mute));
+		awaitDiscarded(mute);
+	}
+
+	@Test
+	void expiredMuteIsLiftedThroughTheOutbox() throws Exception {
+		long userId = USERS.incrementAndGet();
+		long mute = insert(userId, LocalDateTime.now().minusMinutes(1));
+		scheduler.schedule(GUILD, userId, LocalDateTime.now());
+		awaitDiscarded(mute);
+		assertEquals(List.of(OutboxEffect.REMOVE_MUTE_ROLE, OutboxEffect.DIRECT_MESSAGE, OutboxEffect.LOG), outboxEffects(userId));
+	}
+
+	/**
+	 * Creates an API for a bot that isn't in any servers.
+	 * @return The API.
+	 */
+	private static DiscordApi api() {
+		var yourself = (User) Proxy.newProxyInstance(User.class.getClassLoader(), new Class<?>[]{User.class}, (proxy, method, args) -> {
+			if (!method.getName().equals("getId")) throw new UnsupportedOperationException(method.getName());
+			return BOT;
+		});
+		return (DiscordApi) Proxy.newProxyInstance(DiscordApi.class.getClassLoader(), new Class<?>[]{DiscordApi.class}, (proxy, method, args) ->
+			switch (method.getName()) {
+				case "getYourself" -> yourself;
+				case "getServerById" -> Optional.empty();
+				default -> throw new UnsupportedOperationException(method.getName());
+			}
+		);
+	}
+
+	/**
+	 * Waits for all database actions that were already submitted, like the
+	 * query which {@link MuteExpiryScheduler#start} finds existing mutes with.
+	 * @throws InterruptedException If interrupted while waiting.
+	 */
+	private static void awaitDatabaseIdle() throws InterruptedException {
+		while (Bot.databasePool.getCompletedTaskCount() < Bot.databasePool.getTaskCount()) {
+			Thread.sleep(1);
+		}
+	}
+
+	private static LocalDateTime nextSecond() {
+		return LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS).plusSeconds(1);
+	}
+
+	private static void sleepUntil(LocalDateTime time) throws InterruptedException {
+		Thread.sleep(Math.max(0, Duration.between(LocalDateTime.now(), time).toMillis()));
+	}
+
+	private static long insert(long userId, LocalDateTime endsAt) throws SQLException {
+		try (var con = Bot.hikariDataSource.getConnection(); var s = con.prepareStatement(
+				"INSERT INTO mute (guild_id, user_id, muted_by, reason, ends_at) VALUES (?, ?, 1, 'test', ?)",
+				new String[]{"id"}
+		)) {
+			s.setLong(1, GUILD);
+			s.setLong(2, userId);
+			s.setTimestamp(3, Timestamp.valueOf(endsAt));
+			s.executeUpdate();
+			var rs = s.getGeneratedKeys();
+			rs.next();
+			return rs.getLong(1);
+		}
+	}
+
+	private static void renameMuteTable(String from, String to) throws SQLException {
+		try (var con = Bot.hikariDataSource.getConnection(); var s = con.createStatement()) {
+			s.execute("ALTER TABLE " + from + " RENAME TO " + to);
+		}
+	}
+
+	private static List<OutboxEffect> outboxEffects(long userId) throws SQLException {
+		try (var con = Bot.hikariDataSource.getConnection(); var s = con.prepareStatement("SELECT effect FROM moderation_outbox WHERE user_id = ? ORDER BY id")) {
+			s.setLong(1, userId);
+			var rs = s.executeQuery();
+			List<OutboxEffect> effects = new ArrayList<>();
+			while (rs.next()) {
+				effects.add(OutboxEffect.valueOf(rs.getString(1)));
+			}
+			return effects;
+		}
+	}
+
+	private static boolean isDiscarded(long muteId) throws SQLException {
+		try (var con = Bot.hikariDataSource.getConnection(); var s = con.prepareStatement("SELECT discarded FROM mute WHERE id = ?")) {
+			s.setLong(1, muteId);
+			var rs = s.executeQuery();
+			rs.next();
+			return rs.getBoolean(1);
+		}
+	}
+
+	private static void awaitDiscarded(long muteId) throws SQLException, InterruptedException {
+		var deadline = LocalDateTime.now().plus(TIMEOUT);
+		while (!isDiscarded(muteId)) {
+			assertTrue(LocalDateTime.now().isBefore(deadline), "Mute " + muteId + " wasn't discarded.");
+			Thread.sleep(10);
+		}
+	}
+}
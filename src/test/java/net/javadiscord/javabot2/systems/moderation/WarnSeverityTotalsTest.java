@@ -0,0 +1,162 @@
+package net.javadiscord.javabot2.systems.moderation;
+
+import net.javadiscord.javabot2.Bot;
+import net.javadiscord.javabot2.config.SystemsConfig;
+import net.javadiscord.javabot2.db.TestDatabase;
+import net.javadiscord.javabot2.systems.moderation.dao.WarnRepository;
+import net.javadiscord.javabot2.systems.moderation.model.Warn;
+import net.javadiscord.javabot2.systems.moderation.model.WarnSeverity;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Tests for {@link WarnSeverityTotals}, with hour-long buckets that start at
+ * {@link #START}. Warns are saved directly to the database without being
+ * recorded, so a total only includes them if it was loaded afterwards.
+ */
+class WarnSeverityTotalsTest {
+	private static final LocalDateTime START = LocalDateTime.of(2021, 11, 1, 0, 0);
+	private static final long GUILD = 1;
+	private static final long USER = 2;
+	private static final long TIMEOUT_SECONDS = 5;
+
+	private WarnSeverityTotals totals;
+
+	@BeforeEach
+	void setUp() throws Exception {
+		TestDatabase.start();
+		var config = new SystemsConfig.WarnTotalsConfig();
+		config.setStripes(4);
+		config.setBucketMinutes(60);
+		totals = new WarnSeverityTotals(config);
+	}
+
+	@AfterEach
+	void tearDown() throws Exception {
+		TestDatabase.stop();
+	}
+
+	@Test
+	void wholeBucketsExpireAsTheCutoffPasses() throws Exception {
+		insert(GUILD, WarnSeverity.LOW, START.plusMinutes(10));
+		insert(GUILD, WarnSeverity.MEDIUM, START.plusMinutes(70));
+		insert(GUILD, WarnSeverity.HIGH, START.plusMinutes(130));
+		assertEquals(70, total(START.plusMinutes(5)));
+		// This isn't counted until the total is loaded again.
+		insert(GUILD, WarnSeverity.LOW, START.plusMinutes(140));
+		// A warn before the cutoff still counts until its whole bucket has expired.
+		assertEquals(70, total(START.plusMinutes(50)));
+		assertEquals(60, total(START.plusMinutes(60)));
+		assertEquals(40, total(START.plusMinutes(179)));
+		assertEquals(0, total(START.plusMinutes(180)));
+		// An earlier cutoff needs buckets that were already expired, so it's loaded again.
+		assertEquals(80, total(START));
+	}
+
+	@Test
+	void warnsAreOnlyCountedInTheirGuild() throws Exception {
+		insert(GUILD, WarnSeverity.LOW, START.plusMinutes(10));
+		insert(GUILD + 1, WarnSeverity.HIGH, START.plusMinutes(10));
+		assertEquals(10, total(START));
+		assertEquals(40, totals.getTotal(GUILD + 1, USER, START).get(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+	}
+
+	@Test
+	void recordedWarnsAreCountedOnce() throws Exception {
+		var loaded = insert(GUILD, WarnSeverity.LOW, START.plusMinutes(10));
+		assertEquals(10, total(START));
+		// The warn was already loaded from the database.
+		totals.recordWarn(loaded);
+		assertEquals(10, total(START));
+		var recorded = insert(GUILD, WarnSeverity.MEDIUM, START.plusMinutes(70));
+		totals.recordWarn(recorded);
+		totals.recordWarn(recorded);
+		insert(GUILD, WarnSeverity.HIGH, START.plusMinutes(70));
+		assertEquals(30, total(START));
+	}
+
+	@Test
+	void warnsBeforeTheLoadedBucketsAreIgnored() throws Exception {
+		assertEquals(0, total(START.plusMinutes(60)));
+		totals.recordWarn(insert(GUILD, WarnSeverity.HIGH, START.plusMinutes(59)));
+		assertEquals(0, total(START.plusMinutes(60)));
+	}
+
+	@Test
+	void discardingAllWarnsClearsTheTotal() throws Exception {
+		insert(GUILD, WarnSeverity.HIGH, START.plusMinutes(10));
+		assertEquals(40, total(START));
+		try (var con = Bot.hikariDataSource.getConnection()) {
+			new WarnRepository(con).discardAll(GUILD, USER);
+		}
+		totals.recordDiscardAll(GUILD, USER);
+		insert(GUILD, WarnSeverity.LOW, START.plusMinutes(10));
+		assertEquals(10, total(START));
+	}
+
+	@Test
+	void committedTotalsLeaveOutUncommittedWarns() throws Exception {
+		insert(GUILD, WarnSeverity.LOW, START.plusMinutes(10));
+		try (var con = Bot.hikariDataSource.getConnection()) {
+			con.setAutoCommit(false);
+			var uncommitted = insert(con, GUILD, WarnSeverity.HIGH, START.plusMinutes(20));
+			assertEquals(10, totals.getCommittedTotal(con, GUILD, USER, START, Set.of(uncommitted.getId())));
+			con.commit();
+			totals.recordWarn(uncommitted);
+		}
+		// The committed total was cached, and the warn was added once it was recorded.
+		insert(GUILD, WarnSeverity.MEDIUM, START.plusMinutes(30));
+		assertEquals(50, total(START));
+	}
+
+	private int total(LocalDateTime cutoff) throws Exception {
+		return totals.getTotal(GUILD, USER, cutoff).get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+	}
+
+	/**
+	 * Saves a warn for {@link #USER} that was created at the given time.
+	 * @param guildId The id of the guild.
+	 * @param severity The severity of the warn.
+	 * @param createdAt The time at which the warn was created.
+	 * @return The saved warn.
+	 * @throws SQLException If an error occurs.
+	 */
+	private static Warn insert(long guildId, WarnSeverity severity, LocalDateTime createdAt) throws SQLException {
+		try (var con = Bot.hikariDataSource.getConnection()) {
+			return insert(con, guildId, severity, createdAt);
+		}
+	}
+
+	private static Warn insert(Connection con, long guildId, WarnSeverity severity, LocalDateTime createdAt) throws SQLException {
+		var warn = new Warn(guildId, USER, 3, severity, "test");
+		warn.setCreatedAt(createdAt);
+		try (var s = con.prepareStatement(
+				"INSERT INTO warn (guild_id, user_id, warned_by, created_at, severity, severity_weight, reason) VALUES (?, ?, ?, ?, ?, ?, ?)",
+				Statement.RETURN_GENERATED_KEYS
+		)) {
+			s.setLong(1, warn.getGuildId());
+			s.setLong(2, warn.getUserId());
+			s.setLong(3, warn.getWarnedBy());
+			s.setTimestamp(4, Timestamp.valueOf(createdAt));
+			s.setString(5, warn.getSeverity());
+			s.setInt(6, warn.getSeverityWeight());
+			s.setString(7, warn.getReason());
+			s.executeUpdate();
+			var rs = s.getGeneratedKeys();
+			rs.next();
+			warn.setId(rs.getLong(1));
+		}
+		return warn;
+	}
+}
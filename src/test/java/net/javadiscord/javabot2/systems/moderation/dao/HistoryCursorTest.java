@@ -0,0 +1,134 @@
+package net.javadiscord.javabot2.systems.moderation.dao;
+
+import net.javadiscord.javabot2.Bot;
+import net.javadiscord.javabot2.db.TestDatabase;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests for paging through a user's history with a {@link HistoryCursor}.
+ * Several of the saved records share a creation time, so that pages have to
+ * be split by id as well.
+ */
+class HistoryCursorTest {
+	private static final LocalDateTime START = LocalDateTime.of(2021, 11, 1, 0, 0);
+	private static final long GUILD = 1;
+	private static final long OTHER_GUILD = 2;
+	private static final long USER = 3;
+	private static final long OTHER_USER = 4;
+	private static final int PAGE_SIZE = 3;
+
+	private Connection con;
+
+	@BeforeEach
+	void setUp() throws Exception {
+		TestDatabase.start();
+		con = Bot.hikariDataSource.getConnection();
+	}
+
+	@AfterEach
+	void tearDown() throws Exception {
+		con.close();
+		TestDatabase.stop();
+	}
+
+	@Test
+	void warnPagesVisitEveryWarnOnceFromNewestToOldest() throws SQLException {
+		List<Long> expected = new ArrayList<>();
+		for (int minutes : new int[]{0, 5, 5, 5, 10, 20, 20}) {
+			expected.add(0, insertWarn(GUILD, USER, START.plusMinutes(minutes)));
+			insertWarn(GUILD, OTHER_USER, START.plusMinutes(minutes));
+			insertWarn(OTHER_GUILD, USER, START.plusMinutes(minutes));
+		}
+		var repo = new WarnRepository(con);
+		assertEquals(expected, readAllPages((before, cursors) -> repo.streamHistory(GUILD, USER, before, PAGE_SIZE, warn -> {
+			cursors.add(new HistoryCursor(warn.getCreatedAt(), warn.getId()));
+		})));
+	}
+
+	@Test
+	void mutePagesVisitEveryMuteOnceFromNewestToOldest() throws SQLException {
+		List<Long> expected = new ArrayList<>();
+		for (int minutes : new int[]{0, 0, 5, 10, 10, 10}) {
+			expected.add(0, insertMute(GUILD, USER, START.plusMinutes(minutes)));
+			insertMute(GUILD, OTHER_USER, START.plusMinutes(minutes));
+			insertMute(OTHER_GUILD, USER, START.plusMinutes(minutes));
+		}
+		var repo = new MuteRepository(con);
+		assertEquals(expected, readAllPages((before, cursors) -> repo.streamHistory(GUILD, USER, before, PAGE_SIZE, mute -> {
+			cursors.add(new HistoryCursor(mute.getCreatedAt(), mute.getId()));
+		})));
+	}
+
+	@Test
+	void cursorIsParsedFromItsToken() {
+		var cursor = new HistoryCursor(START.plusSeconds(42), 7);
+		assertEquals(Optional.of(cursor), HistoryCursor.parse(cursor.toString()));
+	}
+
+	@Test
+	void invalidTokensAreRejected() {
+		for (var token : new String[]{"", "12", "-12", "12-", "a-12", "12-b", "99999999999999999-1"}) {
+			assertTrue(HistoryCursor.parse(token).isEmpty(), token);
+		}
+	}
+
+	/**
+	 * Reads pages until one isn't full, starting each page after the last
+	 * record of the page before it.
+	 * @param pager Reads a single page, adding the cursor of each record on it.
+	 * @return The ids of all records that were read, in order.
+	 * @throws SQLException If an error occurs.
+	 */
+	private static List<Long> readAllPages(Pager pager) throws SQLException {
+		List<Long> ids = new ArrayList<>();
+		var before = HistoryCursor.START;
+		while (true) {
+			List<HistoryCursor> page = new ArrayList<>();
+			pager.read(before, page);
+			page.forEach(cursor -> ids.add(cursor.id()));
+			if (page.size() < PAGE_SIZE) return ids;
+			before = page.get(page.size() - 1);
+		}
+	}
+
+	private long insertWarn(long guildId, long userId, LocalDateTime createdAt) throws SQLException {
+		return insert("INSERT INTO warn (guild_id, user_id, warned_by, created_at, severity, severity_weight, reason) VALUES (?, ?, 5, ?, 'LOW', 10, 'test')", guildId, userId, createdAt);
+	}
+
+	private long insertMute(long guildId, long userId, LocalDateTime createdAt) throws SQLException {
+		return insert("INSERT INTO mute (guild_id, user_id, muted_by, created_at, reason, ends_at) VALUES (?, ?, 5, ?, 'test', CURRENT_TIMESTAMP(0))", guildId, userId, createdAt);
+	}
+
+	private long insert(String sql, long guildId, long userId, LocalDateTime createdAt) throws SQLException {
+		try (var s = con.prepareStatement(sql, new String[]{"id"})) {
+			s.setLong(1, guildId);
+			s.setLong(2, userId);
+			s.setTimestamp(3, Timestamp.valueOf(createdAt));
+			s.executeUpdate();
+			var rs = s.getGeneratedKeys();
+			rs.next();
+			return rs.getLong(1);
+		}
+	}
+
+	/**
+	 * Reads a single page of history.
+	 */
+	@FunctionalInterface
+	private interface Pager {
+		void read(HistoryCursor before, List<HistoryCursor> cursors) throws SQLException;
+	}
+}
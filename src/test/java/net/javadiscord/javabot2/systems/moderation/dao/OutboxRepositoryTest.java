@@ -0,0 +1,109 @@
+package net.javadiscord.javabot2.systems.moderation.dao;
+
+import net.javadiscord.javabot2.Bot;
+import net.javadiscord.javabot2.db.TestDatabase;
+import net.javadiscord.javabot2.systems.moderation.model.OutboxEffect;
+import net.javadiscord.javabot2.systems.moderation.model.OutboxMessage;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests for {@link OutboxRepository}, which check which messages are due.
+ */
+class OutboxRepositoryTest {
+	private static final long GUILD = 1;
+	private static final long USER = 2;
+	private static final long OTHER_USER = 3;
+	private static final int LIMIT = 10;
+
+	private Connection con;
+	private OutboxRepository repo;
+
+	@BeforeEach
+	void setUp() throws Exception {
+		TestDatabase.start();
+		con = Bot.hikariDataSource.getConnection();
+		repo = new OutboxRepository(con);
+	}
+
+	@AfterEach
+	void tearDown() throws Exception {
+		con.close();
+		TestDatabase.stop();
+	}
+
+	@Test
+	void messagesAreDueOldestFirst() throws SQLException {
+		repo.insertAll(List.of(message(USER, OutboxEffect.ADD_MUTE_ROLE), message(OTHER_USER, OutboxEffect.LOG), message(USER, OutboxEffect.REMOVE_MUTE_ROLE)));
+		var due = repo.findDue(LocalDateTime.now(), LIMIT);
+		assertEquals(List.of(OutboxEffect.ADD_MUTE_ROLE, OutboxEffect.LOG, OutboxEffect.REMOVE_MUTE_ROLE), due.stream().map(OutboxMessage::getEffect).toList());
+		assertEquals(Map.of("reason", "test"), due.get(0).getValues());
+		assertEquals(2, repo.findDue(LocalDateTime.now(), 2).size());
+	}
+
+	@Test
+	void messageWaitingForRetryHoldsBackLaterMessagesForTheSameUser() throws SQLException {
+		repo.insertAll(List.of(message(USER, OutboxEffect.ADD_MUTE_ROLE), message(USER, OutboxEffect.REMOVE_MUTE_ROLE), message(OTHER_USER, OutboxEffect.LOG)));
+		var now = LocalDateTime.now().truncatedTo(ChronoUnit.MILLIS);
+		var retried = repo.findDue(now, LIMIT).get(0);
+		retried.setAttempts(1);
+		retried.setNextAttemptAt(now.plusMinutes(1));
+		retried.setLastError("error");
+		repo.updateAttempts(List.of(retried));
+		assertEquals(List.of(OTHER_USER), repo.findDue(now, LIMIT).stream().map(OutboxMessage::getUserId).toList());
+		var due = repo.findDue(now.plusMinutes(1), LIMIT);
+		assertEquals(3, due.size());
+		assertEquals(1, due.get(0).getAttempts());
+		assertEquals("error", due.get(0).getLastError());
+	}
+
+	@Test
+	void failedMessagesAreNeverDueAndDoNotHoldBackLaterMessages() throws SQLException {
+		repo.insertAll(List.of(message(USER, OutboxEffect.ADD_MUTE_ROLE), message(USER, OutboxEffect.REMOVE_MUTE_ROLE)));
+		var now = LocalDateTime.now().truncatedTo(ChronoUnit.MILLIS);
+		var failed = repo.findDue(now, LIMIT).get(0);
+		failed.setAttempts(1);
+		failed.setNextAttemptAt(now.plusMinutes(1));
+		failed.setFailed(true);
+		repo.updateAttempts(List.of(failed));
+		var due = repo.findDue(now.plusMinutes(2), LIMIT);
+		assertEquals(List.of(OutboxEffect.REMOVE_MUTE_ROLE), due.stream().map(OutboxMessage::getEffect).toList());
+	}
+
+	@Test
+	void deliveredMessagesAreDeleted() throws SQLException {
+		repo.insertAll(List.of(message(USER, OutboxEffect.ADD_MUTE_ROLE), message(OTHER_USER, OutboxEffect.LOG)));
+		var due = repo.findDue(LocalDateTime.now(), LIMIT);
+		repo.deleteAll(List.of(due.get(0).getId()));
+		var remaining = repo.findDue(LocalDateTime.now(), LIMIT);
+		assertEquals(List.of(due.get(1).getId()), remaining.stream().map(OutboxMessage::getId).toList());
+		repo.deleteAll(List.of(due.get(1).getId()));
+		assertTrue(repo.findDue(LocalDateTime.now(), LIMIT).isEmpty());
+	}
+
+	@Test
+	void valuesAreStoredUnescapedAndWithoutALengthLimit() throws SQLException {
+		var values = Map.of("reason", "<@123> & 'friends'", "long", "x".repeat(10_000));
+		repo.insertAll(List.of(new OutboxMessage(GUILD, USER, 4, OutboxEffect.LOG, null, null, values)));
+		assertEquals(values, repo.findDue(LocalDateTime.now(), LIMIT).get(0).getValues());
+		try (var s = con.createStatement(); var rs = s.executeQuery("SELECT embed_values FROM moderation_outbox")) {
+			rs.next();
+			assertTrue(rs.getString(1).contains("<@123> & 'friends'"));
+		}
+	}
+
+	private static OutboxMessage message(long userId, OutboxEffect effect) {
+		return new OutboxMessage(GUILD, userId, 4, effect, null, null, Map.of("reason", "test"));
+	}
+}
@@ -0,0 +1,101 @@
+package net.javadiscord.javabot2.systems.moderation.dao;
+
+import net.javadiscord.javabot2.db.MigrationRunner;
+import net.javadiscord.javabot2.systems.moderation.model.Warn;
+import net.javadiscord.javabot2.systems.moderation.model.WarnSeverity;
+import org.h2.jdbcx.JdbcDataSource;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Compares inserting a warn with {@link WarnRepository#insertAll}, which sets
+ * the warn's creation time itself so that only the generated id is read back,
+ * against inserting it and then finding it by its generated id, which is how
+ * warns used to be inserted.
+ * The two are measured in alternating rounds on the same table, so that both
+ * see the table grow in the same way. Run it with
+ * {@code gradle benchmark -Pbenchmark=systems.moderation.dao.WarnInsertBenchmark}.
+ */
+public final class WarnInsertBenchmark {
+	private static final int WARMUP_ROUNDS = 5;
+	private static final int ROUNDS = 20;
+	private static final int INSERTS_PER_ROUND = 2000;
+	private static final double NANOS_PER_MICRO = 1000.0;
+
+	private WarnInsertBenchmark() {}
+
+	/**
+	 * Runs the benchmark against a new in-memory database.
+	 * @param args Unused.
+	 * @throws IOException If a migration can't be read.
+	 * @throws SQLException If an error occurs.
+	 */
+	public static void main(String[] args) throws IOException, SQLException {
+		var dataSource = new JdbcDataSource();
+		dataSource.setURL("jdbc:h2:mem:warn-insert-benchmark");
+		try (var con = dataSource.getConnection()) {
+			MigrationRunner.migrate(dataSource);
+			var repo = new WarnRepository(con);
+			double[] insertAll = new double[ROUNDS];
+			double[] insertThenFind = new double[ROUNDS];
+			for (int round = -WARMUP_ROUNDS; round < ROUNDS; round++) {
+				long start = System.nanoTime();
+				for (int i = 0; i < INSERTS_PER_ROUND; i++) {
+					repo.insertAll(List.of(warn()));
+				}
+				long middle = System.nanoTime();
+				for (int i = 0; i < INSERTS_PER_ROUND; i++) {
+					insertThenFind(con, repo, warn());
+				}
+				long end = System.nanoTime();
+				if (round >= 0) {
+					insertAll[round] = (middle - start) / NANOS_PER_MICRO / INSERTS_PER_ROUND;
+					insertThenFind[round] = (end - middle) / NANOS_PER_MICRO / INSERTS_PER_ROUND;
+				}
+			}
+			System.out.printf("Insert all: median %.1f us per insert%n", median(insertAll));
+			System.out.printf("Insert, then find by id: median %.1f us per insert%n", median(insertThenFind));
+		}
+	}
+
+	/**
+	 * Inserts a warn the way it was done before inserts returned the row.
+	 * @param con The connection to use.
+	 * @param repo The repository to find the warn with.
+	 * @param warn The warn to insert.
+	 * @return The inserted warn.
+	 * @throws SQLException If an error occurs.
+	 */
+	private static Warn insertThenFind(Connection con, WarnRepository repo, Warn warn) throws SQLException {
+		try (var s = con.prepareStatement(
+				"INSERT INTO warn (guild_id, user_id, warned_by, severity, severity_weight, reason) VALUES (?, ?, ?, ?, ?, ?)",
+				Statement.RETURN_GENERATED_KEYS
+		)) {
+			s.setLong(1, warn.getGuildId());
+			s.setLong(2, warn.getUserId());
+			s.setLong(3, warn.getWarnedBy());
+			s.setString(4, warn.getSeverity());
+			s.setInt(5, warn.getSeverityWeight());
+			s.setString(6, warn.getReason());
+			s.executeUpdate();
+			var rs = s.getGeneratedKeys();
+			if (!rs.next()) throw new SQLException("No generated keys returned.");
+			return repo.findById(rs.getLong(1)).orElseThrow();
+		}
+	}
+
+	private static Warn warn() {
+		return new Warn(1, 2, 3, WarnSeverity.LOW, "Benchmark");
+	}
+
+	private static double median(double[] values) {
+		var sorted = values.clone();
+		Arrays.sort(sorted);
+		return sorted[sorted.length / 2];
+	}
+}
@@ -0,0 +1,63 @@
+package net.javadiscord.javabot2.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests for {@link AsyncUtils}.
+ */
+class AsyncUtilsTest {
+	private static final List<Integer> ITEMS = IntStream.range(0, 10).boxed().toList();
+	private static final int CONCURRENCY = 3;
+
+	@Test
+	void actionsThatCompleteRightAwayAreAllRun() {
+		Queue<Integer> ran = new ConcurrentLinkedQueue<>();
+		var done = AsyncUtils.forEachBounded(ITEMS, CONCURRENCY, item -> {
+			ran.add(item);
+			return CompletableFuture.completedFuture(null);
+		});
+		assertTrue(done.isDone());
+		assertEquals(ITEMS, List.copyOf(ran));
+	}
+
+	@Test
+	void actionsThatFailRightAwayAreCountedAsDone() {
+		var done = AsyncUtils.forEachBounded(ITEMS, CONCURRENCY, item -> CompletableFuture.failedFuture(new IllegalStateException()));
+		assertTrue(done.isDone());
+		assertFalse(done.isCompletedExceptionally());
+	}
+
+	@Test
+	void onlyTheGivenNumberOfActionsRunAtOnce() {
+		List<CompletableFuture<Void>> running = new ArrayList<>();
+		var done = AsyncUtils.forEachBounded(ITEMS, CONCURRENCY, item -> {
+			var future = new CompletableFuture<Void>();
+			running.add(future);
+			return future;
+		});
+		assertEquals(CONCURRENCY, running.size());
+		// Completing an action starts the next one in its place.
+		for (int i = 0; i < ITEMS.size(); i++) {
+			assertFalse(done.isDone());
+			running.get(i).complete(null);
+			assertEquals(Math.min(ITEMS.size(), i + 1 + CONCURRENCY), running.size());
+		}
+		assertTrue(done.isDone());
+	}
+
+	@Test
+	void noItemsAreDoneRightAway() {
+		assertTrue(AsyncUtils.forEachBounded(List.of(), CONCURRENCY, item -> new CompletableFuture<>()).isDone());
+	}
+}